@@ -0,0 +1,107 @@
+package com.apex.testsuite.bench;
+
+import com.apex.testsuite.TestSuiteApplication;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.service.SalesforceAuthService;
+import com.apex.testsuite.service.SalesforceSessionResolver;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Boots the backend on a random port against a {@link FakeToolingApiServer} and an in-memory H2 database,
+ * then logs in through the fake OAuth endpoint so every Salesforce-facing service is usable.
+ */
+public final class BenchmarkEnvironment implements AutoCloseable {
+
+    private final FakeToolingApiServer fakeServer;
+    private final ConfigurableApplicationContext context;
+    private final String sessionCookie;
+
+    private BenchmarkEnvironment(FakeToolingApiServer fakeServer, ConfigurableApplicationContext context,
+                                 String sessionCookie) {
+        this.fakeServer = fakeServer;
+        this.context = context;
+        this.sessionCookie = sessionCookie;
+    }
+
+    public static BenchmarkEnvironment start(FakeToolingApiServer.Builder serverBuilder) throws Exception {
+        return start(serverBuilder, Map.of());
+    }
+
+    public static BenchmarkEnvironment start(FakeToolingApiServer.Builder serverBuilder,
+                                             Map<String, String> extraProperties) throws Exception {
+        FakeToolingApiServer fakeServer = serverBuilder.build().start();
+
+        // Devtools would otherwise relaunch the benchmark's main method in a restart class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> props = new LinkedHashMap<>();
+        props.put("server.port", "0");
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        props.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        props.put("spring.h2.console.enabled", "false");
+        props.put("salesforce.login-url", fakeServer.getBaseUrl());
+        props.put("salesforce.client-id", "bench-client");
+        props.put("salesforce.client-secret", "bench-secret");
+        props.put("salesforce.redirect-uri", "http://localhost/api/auth/callback");
+        props.put("app.cors.allowed-origins", "http://localhost");
+        props.putAll(extraProperties);
+
+        // Command-line arguments take precedence over application.properties
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TestSuiteApplication.class)
+                .run(args);
+        String sessionCookie = context.getBean(SalesforceAuthService.class).exchangeCodeForToken("bench-code");
+        return new BenchmarkEnvironment(fakeServer, context, sessionCookie);
+    }
+
+    public FakeToolingApiServer getFakeServer() {
+        return fakeServer;
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /** Value for a {@code Cookie} header that makes HTTP requests act as the benchmark's login. */
+    public String getSessionCookie() {
+        return SalesforceSessionResolver.COOKIE_NAME + "=" + sessionCookie;
+    }
+
+    /** Calls services in-process as the benchmark's login, the way a request with its cookie would. */
+    public <T> T asUser(Supplier<T> call) {
+        return context.getBean(SalesforceSessionResolver.class)
+                .callAs(SalesforceSessionResolver.sessionIdOf(sessionCookie), call);
+    }
+
+    public void asUser(Runnable call) {
+        asUser(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public String getBaseUrl() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        fakeServer.close();
+    }
+}
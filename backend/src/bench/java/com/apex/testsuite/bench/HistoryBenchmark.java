@@ -0,0 +1,193 @@
+package com.apex.testsuite.bench;
+
+import com.apex.testsuite.entity.*;
+import com.apex.testsuite.fake.FakeOrg;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import com.apex.testsuite.repository.TestRunRepository;
+import com.apex.testsuite.service.TestHistoryService;
+import com.apex.testsuite.service.TrendRollupService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmarks for the history endpoints backed by {@link TestHistoryService},
+ * seeded with {@code runs} completed runs spread over the last year. The setup also prints
+ * how many SQL statements each trend variant issues, including the old per-run coverage
+ * lookup for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"100", "1000"})
+    public int runs;
+
+    @Param({"50"})
+    public int coverageRowsPerRun;
+
+    @Param({"20"})
+    public int resultsPerRun;
+
+    private BenchmarkEnvironment env;
+    private TestHistoryService historyService;
+    private TestRunRepository testRunRepository;
+    private CoverageSnapshotRepository coverageSnapshotRepository;
+    private String deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        env = BenchmarkEnvironment.start(FakeToolingApiServer.builder().classCount(50),
+                Map.of("spring.jpa.properties.hibernate.generate_statistics", "true",
+                        "app.rollups.backfill-on-startup", "false"));
+        historyService = env.getBean(TestHistoryService.class);
+        testRunRepository = env.getBean(TestRunRepository.class);
+        coverageSnapshotRepository = env.getBean(CoverageSnapshotRepository.class);
+        seed(testRunRepository);
+        env.getBean(TrendRollupService.class).backfill();
+        reportStatementCounts();
+
+        // Walk to the cursor that precedes the same last page runHistoryDeepPage reads by offset
+        for (int page = 0; page < runs / 20 - 1; page++) {
+            deepCursor = historyService.getRunHistoryPage(FakeOrg.ORG_ID, deepCursor, 20, false).nextCursor();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> passRateTrend90Days() {
+        return historyService.getPassRateTrend(FakeOrg.ORG_ID, 90);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> coverageTrend90Days() {
+        return historyService.getCoverageTrend(FakeOrg.ORG_ID, 90);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> coverageTrend365Days() {
+        return historyService.getCoverageTrend(FakeOrg.ORG_ID, 365);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> coverageTrend90DaysPerRunLegacy() {
+        return legacyCoverageTrend(90);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> coverageTrend90DaysPerRunGrouped() {
+        return historyService.getCoverageTrendByRun(FakeOrg.ORG_ID, 90);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> passRateTrend90DaysPerRunProjection() {
+        return historyService.getPassRateTrendByRun(FakeOrg.ORG_ID, 90);
+    }
+
+    @Benchmark
+    public Object runHistoryFirstPage() {
+        return historyService.getRunHistory(FakeOrg.ORG_ID, 0, 20).getContent();
+    }
+
+    @Benchmark
+    public Object runHistoryDeepPage() {
+        return historyService.getRunHistory(FakeOrg.ORG_ID, runs / 20 - 1, 20).getContent();
+    }
+
+    @Benchmark
+    public Object runHistoryKeysetFirstPage() {
+        return historyService.getRunHistoryPage(FakeOrg.ORG_ID, null, 20, false);
+    }
+
+    @Benchmark
+    public Object runHistoryKeysetDeepPage() {
+        return historyService.getRunHistoryPage(FakeOrg.ORG_ID, deepCursor, 20, false);
+    }
+
+    // The coverage trend as it was before the grouped query: one average query per run in the window
+    private List<Map<String, Object>> legacyCoverageTrend(int days) {
+        List<TestRun> completed = testRunRepository.findCompletedRunsSince(FakeOrg.ORG_ID, LocalDateTime.now().minusDays(days));
+        return completed.stream().map(run -> {
+            Double avgCoverage = coverageSnapshotRepository.findAverageCoverageByTestRunId(run.getId());
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", run.getStartedAt().toString());
+            point.put("coverage", avgCoverage != null ? Math.round(avgCoverage * 100.0) / 100.0 : 0);
+            point.put("runId", run.getId());
+            return point;
+        }).toList();
+    }
+
+    private void reportStatementCounts() {
+        Statistics statistics = env.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        Map<String, Supplier<List<Map<String, Object>>>> variants = new LinkedHashMap<>();
+        variants.put("coverage 90d, per run, N+1 (legacy)", () -> legacyCoverageTrend(90));
+        variants.put("coverage 90d, per run, grouped", () -> historyService.getCoverageTrendByRun(FakeOrg.ORG_ID, 90));
+        variants.put("pass rate 90d, per run, projection", () -> historyService.getPassRateTrendByRun(FakeOrg.ORG_ID, 90));
+        variants.put("coverage 90d, daily rollup", () -> historyService.getCoverageTrend(FakeOrg.ORG_ID, 90));
+        variants.put("coverage 365d, daily rollup", () -> historyService.getCoverageTrend(FakeOrg.ORG_ID, 365));
+
+        System.out.printf("%nSQL statements per call (runs=%d)%n", runs);
+        variants.forEach((name, variant) -> {
+            statistics.clear();
+            int points = variant.get().size();
+            System.out.printf("  %-40s %6d statements, %5d points%n", name, statistics.getPrepareStatementCount(), points);
+        });
+    }
+
+    private void seed(TestRunRepository repository) {
+        LocalDateTime now = LocalDateTime.now();
+        List<TestRun> batch = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            TestRun run = new TestRun();
+            run.setAsyncApexJobId("707BENCH" + i);
+            run.setOrgId(FakeOrg.ORG_ID);
+            run.setStatus(TestRunStatus.COMPLETED);
+            run.setStartedAt(now.minusMinutes((long) i * 365 * 24 * 60 / runs));
+            run.setCompletedAt(run.getStartedAt().plusMinutes(5));
+            run.setTotalTests(resultsPerRun);
+            run.setPassCount(resultsPerRun - i % 3);
+            run.setFailCount(i % 3);
+
+            for (int r = 0; r < resultsPerRun; r++) {
+                TestResult result = new TestResult();
+                result.setClassName("FakeTest" + (r / 5));
+                result.setMethodName("testMethod" + (r % 5));
+                result.setOutcome(r < i % 3 ? TestOutcome.FAIL : TestOutcome.PASS);
+                result.setRunTimeMs(10 + r);
+                result.setTestRun(run);
+                run.getResults().add(result);
+            }
+            for (int c = 0; c < coverageRowsPerRun; c++) {
+                CoverageSnapshot snapshot = new CoverageSnapshot();
+                snapshot.setClassName("FakeService" + c);
+                snapshot.setLinesCovered(50 + (c + i) % 50);
+                snapshot.setLinesUncovered(c % 20);
+                snapshot.setCoveragePercent(snapshot.getLinesCovered() * 100.0
+                        / (snapshot.getLinesCovered() + snapshot.getLinesUncovered()));
+                snapshot.setTestRun(run);
+                run.getCoverageSnapshots().add(snapshot);
+            }
+            batch.add(run);
+            if (batch.size() == 100) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+    }
+}
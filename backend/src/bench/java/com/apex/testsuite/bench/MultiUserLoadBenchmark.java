@@ -0,0 +1,158 @@
+package com.apex.testsuite.bench;
+
+import com.apex.testsuite.entity.TestRunStatus;
+import com.apex.testsuite.fake.FakeOrg;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.repository.TestRunRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Macro benchmark: N simulated users hit the REST API concurrently against a fake org,
+ * periodically starting test runs, and the per-endpoint throughput and p50/p99 latency is reported.
+ * Run-to-completion time of started runs is tracked as the {@code run.completion} pseudo-endpoint.
+ *
+ * <p>Tunable with system properties: {@code bench.users}, {@code bench.durationSeconds},
+ * {@code bench.classCount}, {@code bench.latencyMs}, {@code bench.runEvery}, {@code bench.classesPerRun},
+ * {@code bench.classDurationMs}.
+ */
+public class MultiUserLoadBenchmark {
+
+    private static final List<String> READ_ENDPOINTS = List.of(
+            "/api/tests/classes",
+            "/api/tests/org-stats",
+            "/api/history/runs?page=0&size=20",
+            "/api/history/trends/pass-rate?days=30",
+            "/api/history/trends/coverage?days=30",
+            "/api/auth/status"
+    );
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final Map<Long, Long> pendingRuns = new ConcurrentHashMap<>();
+    // Every request acts as the one benchmark login
+    private volatile String sessionCookie;
+
+    public static void main(String[] args) throws Exception {
+        new MultiUserLoadBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        int users = Integer.getInteger("bench.users", 16);
+        int durationSeconds = Integer.getInteger("bench.durationSeconds", 30);
+        int runEvery = Integer.getInteger("bench.runEvery", 25);
+        int classesPerRun = Integer.getInteger("bench.classesPerRun", 10);
+
+        FakeToolingApiServer.Builder serverBuilder = FakeToolingApiServer.builder()
+                .classCount(Integer.getInteger("bench.classCount", 2000))
+                .latencyMs(Long.getLong("bench.latencyMs", 30L))
+                .latencyJitterMs(10)
+                .classDurationMs(Long.getLong("bench.classDurationMs", 1000L));
+
+        try (BenchmarkEnvironment env = BenchmarkEnvironment.start(serverBuilder)) {
+            FakeOrg org = env.getFakeServer().getOrg();
+            sessionCookie = env.getSessionCookie();
+            List<String> testClassIds = org.testClassIndexes().stream().map(org::classId).toList();
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(Executors.newCachedThreadPool())
+                    .build();
+
+            ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor();
+            TestRunRepository runRepository = env.getBean(TestRunRepository.class);
+            monitor.scheduleWithFixedDelay(() -> checkRuns(runRepository), 200, 200, TimeUnit.MILLISECONDS);
+
+            ExecutorService userPool = Executors.newFixedThreadPool(users);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+            long started = System.nanoTime();
+            for (int u = 0; u < users; u++) {
+                int user = u;
+                userPool.submit(() -> userLoop(client, env.getBaseUrl(), user, deadline,
+                        runEvery, classesPerRun, testClassIds));
+            }
+            userPool.shutdown();
+            userPool.awaitTermination(durationSeconds + 600L, TimeUnit.SECONDS);
+            double elapsed = (System.nanoTime() - started) / 1e9;
+            monitor.shutdownNow();
+
+            System.out.printf("%nMulti-user load: %d users, %.1fs, %d runs still in flight%n",
+                    users, elapsed, pendingRuns.size());
+            recorder.report(System.out, elapsed);
+            System.out.println("\nFake Tooling API calls: " + env.getFakeServer().getRequestCounts());
+        }
+        System.exit(0);
+    }
+
+    private void userLoop(HttpClient client, String baseUrl, int user, long deadline,
+                          int runEvery, int classesPerRun, List<String> testClassIds) {
+        int iteration = 0;
+        while (System.nanoTime() < deadline) {
+            iteration++;
+            if (runEvery > 0 && iteration % runEvery == 0) {
+                int from = Math.floorMod(user * 31 + iteration, Math.max(1, testClassIds.size() - classesPerRun));
+                List<String> selection = testClassIds.subList(from, Math.min(testClassIds.size(), from + classesPerRun));
+                startRun(client, baseUrl, selection);
+            } else {
+                String path = READ_ENDPOINTS.get((user + iteration) % READ_ENDPOINTS.size());
+                timed(path.replaceAll("\\?.*", ""), client,
+                        HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Cookie", sessionCookie).GET().build());
+            }
+        }
+    }
+
+    private void startRun(HttpClient client, String baseUrl, List<String> classIds) {
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("classIds", classIds));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/tests/run"))
+                    .header("Content-Type", "application/json")
+                    .header("Cookie", sessionCookie)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            long start = System.nanoTime();
+            HttpResponse<String> response = timed("/api/tests/run", client, request);
+            if (response != null && response.statusCode() == 200) {
+                Map<?, ?> json = objectMapper.readValue(response.body(), Map.class);
+                Number dbRunId = (Number) json.get("dbRunId");
+                if (dbRunId != null) {
+                    pendingRuns.put(dbRunId.longValue(), start);
+                }
+            }
+        } catch (Exception e) {
+            recorder.record("/api/tests/run", 0, false);
+        }
+    }
+
+    private HttpResponse<String> timed(String endpoint, HttpClient client, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (Exception e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        }
+    }
+
+    private void checkRuns(TestRunRepository runRepository) {
+        for (Map.Entry<Long, Long> entry : pendingRuns.entrySet()) {
+            runRepository.findById(entry.getKey()).ifPresent(run -> {
+                TestRunStatus status = run.getStatus();
+                if (status == TestRunStatus.COMPLETED || status == TestRunStatus.FAILED
+                        || status == TestRunStatus.ABORTED) {
+                    pendingRuns.remove(entry.getKey());
+                    recorder.record("run.completion", System.nanoTime() - entry.getValue(),
+                            status == TestRunStatus.COMPLETED);
+                }
+            });
+        }
+    }
+}
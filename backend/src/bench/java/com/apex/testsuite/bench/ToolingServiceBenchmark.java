@@ -0,0 +1,94 @@
+package com.apex.testsuite.bench;
+
+import com.apex.testsuite.dto.CodeCoverageDTO;
+import com.apex.testsuite.dto.TestResultDTO;
+import com.apex.testsuite.fake.FakeOrg;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.CatalogSyncStateRepository;
+import com.apex.testsuite.service.SalesforceToolingService;
+import com.apex.testsuite.service.TestClassDiscoveryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the Tooling API round trips made by {@link SalesforceToolingService}.
+ * The cache proxy is bypassed so every invocation hits the fake org.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ToolingServiceBenchmark {
+
+    @Param({"500", "3000"})
+    public int classCount;
+
+    @Param({"0", "20"})
+    public long latencyMs;
+
+    private BenchmarkEnvironment env;
+    private SalesforceToolingService toolingService;
+    private TestClassDiscoveryService discoveryService;
+    private ApexClassCatalogRepository catalogRepository;
+    private CatalogSyncStateRepository syncStateRepository;
+    private String completedJobId;
+    private int touched;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        env = BenchmarkEnvironment.start(FakeToolingApiServer.builder()
+                .classCount(classCount)
+                .bodyBytes(8_000)
+                .latencyMs(latencyMs));
+        toolingService = AopTestUtils.getUltimateTargetObject(env.getBean(SalesforceToolingService.class));
+        discoveryService = env.getBean(TestClassDiscoveryService.class);
+        catalogRepository = env.getBean(ApexClassCatalogRepository.class);
+        syncStateRepository = env.getBean(CatalogSyncStateRepository.class);
+
+        FakeOrg org = env.getFakeServer().getOrg();
+        List<String> testClassIds = org.testClassIndexes().stream().map(org::classId).toList();
+        completedJobId = env.getFakeServer().createCompletedJob(testClassIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    // Empty catalog: every class body is downloaded and scanned
+    @Benchmark
+    public void discoverTestClassesCold() {
+        catalogRepository.deleteAllInBatch();
+        syncStateRepository.deleteAllInBatch();
+        env.asUser(() -> discoveryService.syncCatalog(FakeOrg.ORG_ID));
+    }
+
+    // Synced catalog with one modified class per invocation: only the SystemModstamp delta is queried
+    @Benchmark
+    public void discoverTestClassesDelta() {
+        env.getFakeServer().touchClass(touched++ % classCount);
+        env.asUser(() -> discoveryService.syncCatalog(FakeOrg.ORG_ID));
+    }
+
+    @Benchmark
+    public Map<String, Object> getTestQueueStatus() {
+        return env.asUser(() -> toolingService.getTestQueueStatus(completedJobId));
+    }
+
+    @Benchmark
+    public List<TestResultDTO> getTestResults() {
+        return env.asUser(() -> toolingService.getTestResults(completedJobId));
+    }
+
+    @Benchmark
+    public List<CodeCoverageDTO> getCodeCoverage() {
+        return env.asUser(() -> toolingService.getCodeCoverage(completedJobId));
+    }
+}
@@ -1,23 +1,45 @@
 package com.apex.testsuite.config;
 
+import com.apex.testsuite.service.SalesforceSessionResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
     @Bean(name = "testExecutor")
-    public Executor testExecutor() {
+    public Executor testExecutor(SalesforceSessionResolver sessionResolver) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(25);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(500);
         executor.setThreadNamePrefix("test-exec-");
+        // Ingestion and finalization of many concurrent runs must never be dropped
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Tasks act for the Salesforce session of whoever submitted them
+        executor.setTaskDecorator(sessionResolver::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    // Fetches the next Tooling API result page while the current one is being consumed
+    @Bean(name = "toolingPrefetchExecutor")
+    public Executor toolingPrefetchExecutor(SalesforceSessionResolver sessionResolver) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("tooling-prefetch-");
+        // A page fetch that needs a token refresh must know whose session to refresh
+        executor.setTaskDecorator(sessionResolver::propagate);
         executor.initialize();
         return executor;
     }
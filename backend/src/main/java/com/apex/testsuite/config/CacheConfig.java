@@ -19,7 +19,7 @@ public class CacheConfig {
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(500)
                 .expireAfterWrite(10, TimeUnit.MINUTES));
-        cacheManager.setCacheNames(java.util.List.of("testClasses", "orgStats"));
+        cacheManager.setCacheNames(java.util.List.of("orgStats"));
         return cacheManager;
     }
 }
@@ -19,7 +19,9 @@ public class DataSourceConfig {
 
         String jdbcUrl = "jdbc:postgresql://" + uri.getHost()
                 + (uri.getPort() > 0 ? ":" + uri.getPort() : "")
-                + uri.getPath();
+                + uri.getPath()
+                // Lets the driver collapse Hibernate's JDBC insert batches into multi-row INSERTs
+                + "?reWriteBatchedInserts=true";
 
         String[] userInfo = uri.getUserInfo().split(":", 2);
 
@@ -0,0 +1,87 @@
+package com.apex.testsuite.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Moves the pooled id sequences past rows written while the tables still used IDENTITY columns.
+ * The Flyway migrations create the sequences with {@code INCREMENT BY 50}, starting at 1, so on a
+ * database that already has rows they would hand out taken ids. Runs once at startup, after the
+ * migrations. The check reads each sequence's position without drawing a value, so restarts do
+ * not skip id blocks; once a sequence is past its table's rows this is a no-op.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+    // Must match allocationSize on the entities' @SequenceGenerator
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "test_runs", "test_runs_seq",
+            "test_results", "test_results_seq",
+            "coverage_snapshots", "coverage_snapshots_seq",
+            "apex_class_catalog", "apex_class_catalog_seq",
+            "test_method_stats", "test_method_stats_seq",
+            "test_impact_edges", "test_impact_edges_seq",
+            "test_run_shards", "test_run_shards_seq");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        boolean postgres = isPostgres();
+        SEQUENCES.forEach((table, sequence) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            if (maxId == null || maxId == 0) {
+                return;
+            }
+            // A pooled sequence value v hands out ids v-49..v, so the next value must clear maxId by a full block
+            long next = nextValue(sequence, postgres);
+            if (next - ALLOCATION_SIZE + 1 > maxId) {
+                return;
+            }
+            long restart = maxId + ALLOCATION_SIZE;
+            if (postgres) {
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', " + restart + ", false)", Long.class);
+            } else {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+            }
+            log.info("Advanced {} to {} past existing {} rows", sequence, restart, table);
+        });
+    }
+
+    // The value the sequence's next call would return, read without advancing it
+    private long nextValue(String sequence, boolean postgres) {
+        if (postgres) {
+            return jdbcTemplate.queryForObject("SELECT CASE WHEN is_called THEN last_value + " + ALLOCATION_SIZE
+                    + " ELSE last_value END FROM " + sequence, Long.class);
+        }
+        return jdbcTemplate.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES"
+                + " WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = ?", Long.class,
+                sequence.toUpperCase(Locale.ROOT));
+    }
+
+    private boolean isPostgres() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.apex.testsuite.config;
+
+import com.apex.testsuite.service.SalesforceAuthService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class SalesforceHttpConfig {
+
+    @Value("${salesforce.http.connect-timeout:10s}")
+    private Duration connectTimeout;
+
+    @Value("${salesforce.http.read-timeout:60s}")
+    private Duration readTimeout;
+
+    // One client for every Salesforce call: the JDK client keeps connections alive in its pool,
+    // negotiates HTTP/2 over TLS via ALPN and falls back to HTTP/1.1 where the server doesn't offer it
+    @Bean
+    public HttpClient salesforceHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate salesforceRestTemplate(RestTemplateBuilder builder, HttpClient salesforceHttpClient,
+                                               ObjectProvider<SalesforceAuthService> authService) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(salesforceHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return builder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(new GzipClientHttpRequestInterceptor(), new SessionRefreshInterceptor(authService))
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.apex.testsuite.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Reports, at startup, any index the history queries rely on that is missing from the database,
+ * e.g. when migrations were skipped or an index was dropped by hand. An index counts as present
+ * when its leading columns match, whatever its name.
+ */
+@Component
+public class SchemaIndexVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexVerifier.class);
+
+    record RequiredIndex(String table, List<String> columns) {
+        @Override
+        public String toString() {
+            return table + "(" + String.join(", ", columns) + ")";
+        }
+    }
+
+    // Mirrors the indexes created in db/migration (V2, V4)
+    private static final List<RequiredIndex> REQUIRED = List.of(
+            new RequiredIndex("test_runs", List.of("org_id", "status", "started_at")),
+            new RequiredIndex("test_runs", List.of("started_at")),
+            new RequiredIndex("test_runs", List.of("org_id", "started_at", "id")),
+            new RequiredIndex("test_runs", List.of("async_apex_job_id")),
+            new RequiredIndex("test_results", List.of("test_run_id", "class_name", "method_name")),
+            new RequiredIndex("coverage_snapshots", List.of("test_run_id", "class_name")));
+
+    private final DataSource dataSource;
+
+    public SchemaIndexVerifier(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyIndexes() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String schema = connection.getSchema();
+            List<RequiredIndex> missing = new ArrayList<>();
+            Map<String, List<List<String>>> indexesByTable = new HashMap<>();
+            for (RequiredIndex required : REQUIRED) {
+                List<List<String>> indexes = indexesByTable.computeIfAbsent(required.table(),
+                        table -> readIndexes(metaData, schema, table));
+                boolean present = indexes.stream().anyMatch(columns ->
+                        columns.size() >= required.columns().size()
+                                && columns.subList(0, required.columns().size()).equals(required.columns()));
+                if (!present) {
+                    missing.add(required);
+                }
+            }
+            if (missing.isEmpty()) {
+                log.info("All {} history indexes are present", REQUIRED.size());
+            } else {
+                log.warn("Missing indexes (history queries will fall back to table scans): {}", missing);
+            }
+        } catch (SQLException e) {
+            log.warn("Could not verify schema indexes: {}", e.getMessage());
+        }
+    }
+
+    // Returns the column lists of every index on the table, lowercased and in key order
+    private static List<List<String>> readIndexes(DatabaseMetaData metaData, String schema, String table) {
+        Map<String, SortedMap<Short, String>> columnsByIndex = new HashMap<>();
+        // Unquoted identifiers are stored uppercase by H2 and lowercase by PostgreSQL
+        for (String name : Set.of(table, table.toUpperCase(Locale.ROOT))) {
+            try (ResultSet rs = metaData.getIndexInfo(null, schema, name, false, false)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (indexName == null || column == null) continue;
+                    columnsByIndex.computeIfAbsent(indexName, k -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                }
+            } catch (SQLException e) {
+                log.debug("Could not read indexes of {}: {}", name, e.getMessage());
+            }
+        }
+        return columnsByIndex.values().stream().map(m -> List.copyOf(m.values())).toList();
+    }
+}
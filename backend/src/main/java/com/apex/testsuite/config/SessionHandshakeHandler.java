@@ -0,0 +1,34 @@
+package com.apex.testsuite.config;
+
+import com.apex.testsuite.service.SalesforceSessionResolver;
+import jakarta.servlet.http.Cookie;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.WebUtils;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Names each WebSocket connection after the Salesforce session of its session cookie, so
+ * {@code convertAndSendToUser} with a session id reaches only the browsers of that login.
+ * A connection without a session cookie gets no user and receives no user messages.
+ */
+public class SessionHandshakeHandler extends DefaultHandshakeHandler {
+
+    @Override
+    protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                      Map<String, Object> attributes) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return null;
+        }
+        Cookie cookie = WebUtils.getCookie(servletRequest.getServletRequest(), SalesforceSessionResolver.COOKIE_NAME);
+        if (cookie == null || cookie.getValue().isEmpty()) {
+            return null;
+        }
+        String sessionId = SalesforceSessionResolver.sessionIdOf(cookie.getValue());
+        return () -> sessionId;
+    }
+}
@@ -0,0 +1,122 @@
+package com.apex.testsuite.config;
+
+import com.apex.testsuite.service.SalesforceAuthService;
+import com.apex.testsuite.service.SalesforceSession;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Retries a Salesforce call once with a fresh access token when its token was rejected.
+ * Salesforce answers an expired or revoked token with 401 and errorCode INVALID_SESSION_ID;
+ * other 401s are returned as they are. Concurrent calls rejected together share a single
+ * refresh of their session, see {@link SalesforceAuthService#refreshRejected}. Must be the last
+ * interceptor, so the retry goes straight to the request factory.
+ */
+public class SessionRefreshInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String INVALID_SESSION_ID = "INVALID_SESSION_ID";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Lazy: the auth service itself calls Salesforce through this interceptor
+    private final ObjectProvider<SalesforceAuthService> authService;
+
+    public SessionRefreshInterceptor(ObjectProvider<SalesforceAuthService> authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (response.getStatusCode().value() != HttpStatus.UNAUTHORIZED.value()
+                || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return response;
+        }
+
+        // The error body is read to decide, so the caller gets a buffered copy of it
+        BufferedResponse rejected = new BufferedResponse(response);
+        if (!isInvalidSession(rejected)) {
+            return rejected;
+        }
+        Optional<SalesforceSession> refreshed =
+                authService.getObject().refreshRejected(authorization.substring(BEARER_PREFIX.length()));
+        if (refreshed.isEmpty()) {
+            return rejected;
+        }
+        rejected.close();
+        request.getHeaders().setBearerAuth(refreshed.get().accessToken());
+        return execution.execute(request, body);
+    }
+
+    // Salesforce REST errors are a list of {message, errorCode}
+    private static boolean isInvalidSession(BufferedResponse response) {
+        if (response.bytes.length == 0) {
+            return false;
+        }
+        // Runs after the gzip interceptor has handed the request on, so the body may still be compressed
+        String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        try (InputStream in = encoding != null && encoding.toLowerCase(Locale.ROOT).contains("gzip")
+                ? new GZIPInputStream(new ByteArrayInputStream(response.bytes))
+                : new ByteArrayInputStream(response.bytes)) {
+            JsonNode errors = MAPPER.readTree(in);
+            return errors != null && errors.findValuesAsText("errorCode").contains(INVALID_SESSION_ID);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static final class BufferedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final byte[] bytes;
+
+        BufferedResponse(ClientHttpResponse delegate) throws IOException {
+            this.delegate = delegate;
+            try (InputStream body = delegate.getBody()) {
+                this.bytes = body.readAllBytes();
+            }
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
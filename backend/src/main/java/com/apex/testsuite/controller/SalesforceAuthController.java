@@ -2,13 +2,17 @@ package com.apex.testsuite.controller;
 
 import com.apex.testsuite.dto.UserInfoResponse;
 import com.apex.testsuite.service.SalesforceAuthService;
+import com.apex.testsuite.service.SalesforceSessionResolver;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
 
 @RestController
@@ -20,6 +24,13 @@ public class SalesforceAuthController {
     @Value("${app.frontend-url:http://localhost:5173}")
     private String frontendUrl;
 
+    @Value("${app.session.cookie-secure:false}")
+    private boolean cookieSecure;
+
+    // None when the frontend is served from another site than the API
+    @Value("${app.session.cookie-same-site:Lax}")
+    private String cookieSameSite;
+
     public SalesforceAuthController(SalesforceAuthService authService) {
         this.authService = authService;
     }
@@ -31,7 +42,8 @@ public class SalesforceAuthController {
 
     @GetMapping("/callback")
     public void handleCallback(@RequestParam("code") String code, HttpServletResponse response) throws IOException {
-        authService.exchangeCodeForToken(code);
+        String sessionCookie = authService.exchangeCodeForToken(code);
+        response.addHeader(HttpHeaders.SET_COOKIE, sessionCookie(sessionCookie, null).toString());
         response.sendRedirect(frontendUrl + "/auth/callback");
     }
 
@@ -40,12 +52,16 @@ public class SalesforceAuthController {
         return Map.of("connected", authService.isConnected());
     }
 
+    // refresh=true reads the identity from Salesforce again instead of serving the session's copy
     @GetMapping("/user-info")
-    public ResponseEntity<UserInfoResponse> getUserInfo() {
+    public ResponseEntity<UserInfoResponse> getUserInfo(@RequestParam(defaultValue = "false") boolean refresh) {
         if (!authService.isConnected()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        return ResponseEntity.ok(authService.getUserInfoResponse());
+        if (refresh) {
+            authService.invalidateIdentity();
+        }
+        return ResponseEntity.ok(authService.getIdentity());
     }
 
     @PostMapping("/heartbeat")
@@ -61,6 +77,21 @@ public class SalesforceAuthController {
     @PostMapping("/logout")
     public ResponseEntity<Map<String, String>> logout() {
         authService.logout();
-        return ResponseEntity.ok(Map.of("status", "logged_out"));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, sessionCookie("", Duration.ZERO).toString())
+                .body(Map.of("status", "logged_out"));
+    }
+
+    // Lives until the browser closes; the server expires the session itself after inactivity
+    private ResponseCookie sessionCookie(String value, Duration maxAge) {
+        ResponseCookie.ResponseCookieBuilder cookie = ResponseCookie.from(SalesforceSessionResolver.COOKIE_NAME, value)
+                .httpOnly(true)
+                .secure(cookieSecure)
+                .sameSite(cookieSameSite)
+                .path("/");
+        if (maxAge != null) {
+            cookie.maxAge(maxAge);
+        }
+        return cookie.build();
     }
 }
@@ -1,88 +1,209 @@
 package com.apex.testsuite.controller;
 
-import com.apex.testsuite.dto.CodeCoverageDTO;
-import com.apex.testsuite.dto.TestResultDTO;
-import com.apex.testsuite.entity.CoverageSnapshot;
-import com.apex.testsuite.entity.TestResult;
+import com.apex.testsuite.dto.CoverageDiffDTO;
+import com.apex.testsuite.dto.CoverageReportDTO;
+import com.apex.testsuite.dto.FlakyTestDTO;
+import com.apex.testsuite.dto.RunHistoryPageDTO;
+import com.apex.testsuite.dto.RunSummaryDTO;
+import com.apex.testsuite.dto.TestResultPageDTO;
+import com.apex.testsuite.entity.TestOutcome;
 import com.apex.testsuite.entity.TestRun;
-import com.apex.testsuite.repository.CoverageSnapshotRepository;
-import com.apex.testsuite.repository.TestResultRepository;
+import com.apex.testsuite.service.CoverageService;
+import com.apex.testsuite.service.FlakyTestService;
 import com.apex.testsuite.service.SalesforceAuthService;
 import com.apex.testsuite.service.TestHistoryService;
+import com.apex.testsuite.service.TestRunDetailService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/history")
 public class TestHistoryController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_RESULT_PAGE_SIZE = 1000;
+    private static final int DETAIL_RESULT_PAGE_SIZE = 100;
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TestHistoryService historyService;
-    private final TestResultRepository testResultRepository;
-    private final CoverageSnapshotRepository coverageSnapshotRepository;
     private final SalesforceAuthService authService;
+    private final TestRunDetailService detailService;
+    private final FlakyTestService flakyTestService;
+    private final CoverageService coverageService;
+    private final ObjectMapper objectMapper;
 
     public TestHistoryController(TestHistoryService historyService,
-                                 TestResultRepository testResultRepository,
-                                 CoverageSnapshotRepository coverageSnapshotRepository,
-                                 SalesforceAuthService authService) {
+                                 SalesforceAuthService authService,
+                                 TestRunDetailService detailService,
+                                 FlakyTestService flakyTestService,
+                                 CoverageService coverageService,
+                                 ObjectMapper objectMapper) {
         this.historyService = historyService;
-        this.testResultRepository = testResultRepository;
-        this.coverageSnapshotRepository = coverageSnapshotRepository;
         this.authService = authService;
+        this.detailService = detailService;
+        this.flakyTestService = flakyTestService;
+        this.coverageService = coverageService;
+        this.objectMapper = objectMapper;
     }
 
-    @GetMapping("/runs")
+    // Offset pages, kept for clients that jump to a page number; costs grow with the page index
+    @GetMapping(value = "/runs", params = "page")
     public ResponseEntity<Map<String, Object>> getRunHistory(
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam int page,
             @RequestParam(defaultValue = "20") int size) {
-        Page<TestRun> runs = historyService.getRunHistory(page, size);
+        Page<RunSummaryDTO> runs = historyService.getRunHistory(getOrgId(), page, Math.min(size, MAX_PAGE_SIZE));
         Map<String, Object> response = new HashMap<>();
-        response.put("runs", runs.getContent().stream().map(this::mapRun).toList());
+        response.put("runs", runs.getContent());
         response.put("totalPages", runs.getTotalPages());
         response.put("totalElements", runs.getTotalElements());
         response.put("currentPage", page);
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/runs")
+    public ResponseEntity<RunHistoryPageDTO> getRunHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        return ResponseEntity.ok(historyService.getRunHistoryPage(
+                getOrgId(), cursor, Math.max(1, Math.min(size, MAX_PAGE_SIZE)), includeTotal));
+    }
+
+    // The run and only its first page of results, without stack traces; the rest is paged from
+    // /runs/{id}/results starting at nextCursor, and coverage comes from /runs/{id}/coverage
     @GetMapping("/runs/{id}")
     public ResponseEntity<Map<String, Object>> getRunDetail(@PathVariable Long id) {
-        return historyService.getRunById(id).map(run -> {
+        return historyService.getRunById(getOrgId(), id).map(run -> {
             Map<String, Object> response = new HashMap<>(mapRun(run));
+            TestResultPageDTO firstPage = detailService.getResultPage(id,
+                    new TestRunDetailService.ResultFilter(null, null, TestRunDetailService.ResultSort.NAME),
+                    null, DETAIL_RESULT_PAGE_SIZE, false);
+            response.put("results", firstPage.results());
+            response.put("nextCursor", firstPage.nextCursor());
+            return ResponseEntity.ok(response);
+        }).orElse(ResponseEntity.notFound().build());
+    }
 
-            List<TestResult> results = testResultRepository.findByTestRunIdOrderByClassNameAscMethodNameAsc(id);
-            response.put("results", results.stream().map(r -> new TestResultDTO(
-                    r.getClassName(), r.getMethodName(), r.getOutcome().name(),
-                    r.getMessage(), r.getStackTrace(), r.getRunTimeMs()
-            )).toList());
+    @GetMapping("/runs/{id}/results")
+    public ResponseEntity<TestResultPageDTO> getRunResults(
+            @PathVariable Long id,
+            @RequestParam(required = false) String outcome,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "false") boolean includeStackTrace) {
+        if (historyService.getRunById(getOrgId(), id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        TestRunDetailService.ResultFilter filter = resultFilter(outcome, className, sort);
+        return ResponseEntity.ok(detailService.getResultPage(id, filter, cursor,
+                Math.max(1, Math.min(size, MAX_RESULT_PAGE_SIZE)), includeStackTrace));
+    }
 
-            List<CoverageSnapshot> coverage = coverageSnapshotRepository.findByTestRunIdOrderByClassNameAsc(id);
-            response.put("coverage", coverage.stream().map(c -> new CodeCoverageDTO(
-                    c.getClassName(), c.getLinesCovered(), c.getLinesUncovered(), c.getCoveragePercent()
-            )).toList());
+    // Same rows as newline-delimited JSON, written as they are read from the database
+    @GetMapping(value = "/runs/{id}/results", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamRunResults(
+            @PathVariable Long id,
+            @RequestParam(required = false) String outcome,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(defaultValue = "false") boolean includeStackTrace) {
+        if (historyService.getRunById(getOrgId(), id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        TestRunDetailService.ResultFilter filter = resultFilter(outcome, className, sort);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            detailService.streamResults(id, filter, includeStackTrace, row -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
 
-            return ResponseEntity.ok(response);
-        }).orElse(ResponseEntity.notFound().build());
+    @GetMapping("/runs/{id}/coverage")
+    public ResponseEntity<CoverageReportDTO> getRunCoverage(@PathVariable Long id) {
+        if (historyService.getRunById(getOrgId(), id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(coverageService.getRunCoverage(id));
+    }
+
+    // Union of the org's recent runs: a line counts as covered if any of them covered it
+    @GetMapping("/coverage/org")
+    public ResponseEntity<CoverageReportDTO> getOrgCoverage(@RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(coverageService.getOrgCoverage(getOrgId(), Math.max(1, days)));
+    }
+
+    // Which lines gained or lost coverage between two runs; summary=true keeps only per-class counts
+    @GetMapping("/coverage/diff")
+    public ResponseEntity<CoverageDiffDTO> getCoverageDiff(
+            @RequestParam Long base,
+            @RequestParam Long head,
+            @RequestParam(defaultValue = "false") boolean summary,
+            @RequestParam(defaultValue = "false") boolean includeUnchanged) {
+        String orgId = getOrgId();
+        if (historyService.getRunById(orgId, base).isEmpty() || historyService.getRunById(orgId, head).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(coverageService.diff(base, head, summary, includeUnchanged));
     }
 
     @GetMapping("/trends/pass-rate")
     public ResponseEntity<List<Map<String, Object>>> getPassRateTrend(
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "day") String granularity) {
         String orgId = getOrgId();
+        if ("run".equals(granularity)) {
+            return ResponseEntity.ok(historyService.getPassRateTrendByRun(orgId, days));
+        }
         return ResponseEntity.ok(historyService.getPassRateTrend(orgId, days));
     }
 
     @GetMapping("/trends/coverage")
     public ResponseEntity<List<Map<String, Object>>> getCoverageTrend(
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "day") String granularity) {
         String orgId = getOrgId();
+        if ("run".equals(granularity)) {
+            return ResponseEntity.ok(historyService.getCoverageTrendByRun(orgId, days));
+        }
         return ResponseEntity.ok(historyService.getCoverageTrend(orgId, days));
     }
 
+    @GetMapping("/flaky")
+    public ResponseEntity<List<FlakyTestDTO>> getFlakyTests(
+            @RequestParam(required = false) Integer minRuns,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(flakyTestService.getFlakyTests(getOrgId(), minRuns,
+                Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+
+    private static TestRunDetailService.ResultFilter resultFilter(String outcome, String className, String sort) {
+        return new TestRunDetailService.ResultFilter(
+                outcome != null && !outcome.isBlank() ? TestOutcome.valueOf(outcome.toUpperCase(Locale.ROOT)) : null,
+                className,
+                TestRunDetailService.ResultSort.valueOf(sort.toUpperCase(Locale.ROOT)));
+    }
+
     private Map<String, Object> mapRun(TestRun run) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", run.getId());
@@ -97,11 +218,6 @@ public class TestHistoryController {
     }
 
     private String getOrgId() {
-        try {
-            Map<String, Object> userInfo = authService.getUserInfo();
-            return userInfo != null ? (String) userInfo.get("organization_id") : "unknown";
-        } catch (Exception e) {
-            return "unknown";
-        }
+        return authService.getCurrentOrgId();
     }
 }
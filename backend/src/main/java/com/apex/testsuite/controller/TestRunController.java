@@ -1,11 +1,16 @@
 package com.apex.testsuite.controller;
 
 import com.apex.testsuite.dto.*;
+import com.apex.testsuite.entity.RunProfile;
 import com.apex.testsuite.service.SalesforceToolingService;
+import com.apex.testsuite.service.TestClassDiscoveryService;
 import com.apex.testsuite.service.TestExecutionService;
+import com.apex.testsuite.service.TestImpactService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,32 +19,63 @@ import java.util.Map;
 public class TestRunController {
 
     private final SalesforceToolingService toolingService;
+    private final TestClassDiscoveryService discoveryService;
     private final TestExecutionService executionService;
+    private final TestImpactService impactService;
 
     public TestRunController(SalesforceToolingService toolingService,
-                             TestExecutionService executionService) {
+                             TestClassDiscoveryService discoveryService,
+                             TestExecutionService executionService,
+                             TestImpactService impactService) {
         this.toolingService = toolingService;
+        this.discoveryService = discoveryService;
         this.executionService = executionService;
+        this.impactService = impactService;
     }
 
     @GetMapping("/classes")
     public ResponseEntity<List<ApexTestClassDTO>> getTestClasses() {
-        return ResponseEntity.ok(toolingService.getTestClasses());
+        return ResponseEntity.ok(discoveryService.getTestClasses());
     }
 
     @GetMapping("/org-stats")
     public ResponseEntity<OrgStatsDTO> getOrgStats() {
-        return ResponseEntity.ok(toolingService.getOrgStats());
+        return ResponseEntity.ok(discoveryService.getOrgStats());
     }
 
     @PostMapping("/run")
     public ResponseEntity<Map<String, Object>> runTests(@RequestBody TestRunRequest request) {
-        Map<String, Object> result = executionService.startTestRun(request.classIds());
-        result = new java.util.HashMap<>(result);
+        List<String> classIds = request.classIds();
+        ImpactSelectionDTO selection = null;
+        if ("impacted".equalsIgnoreCase(request.mode())) {
+            selection = impactService.selectImpactedTests(request.changedClasses(), request.since());
+            if (selection.testClassIds().isEmpty()) {
+                return ResponseEntity.ok(Map.of("status", "nothing-to-run", "impact", selection));
+            }
+            classIds = selection.testClassIds();
+        }
+
+        TestExecutionService.RunOptions options = new TestExecutionService.RunOptions(
+                RunProfile.fromValue(request.profile()), request.maxFailedTests());
+        Map<String, Object> result = request.shards() != null && request.shards() > 1
+                ? executionService.startShardedTestRun(classIds, request.shards(), options)
+                : executionService.startTestRun(classIds, options);
+        result = new HashMap<>(result);
         result.put("status", "queued");
+        if (selection != null) {
+            result.put("impact", selection);
+        }
         return ResponseEntity.ok(result);
     }
 
+    // Preview of what an impacted run would execute
+    @GetMapping("/impacted")
+    public ResponseEntity<ImpactSelectionDTO> getImpactedTests(
+            @RequestParam(required = false) List<String> changed,
+            @RequestParam(required = false) Instant since) {
+        return ResponseEntity.ok(impactService.selectImpactedTests(changed, since));
+    }
+
     @GetMapping("/results/{testRunId}")
     public ResponseEntity<List<TestResultDTO>> getTestResults(@PathVariable String testRunId) {
         return ResponseEntity.ok(toolingService.getTestResults(testRunId));
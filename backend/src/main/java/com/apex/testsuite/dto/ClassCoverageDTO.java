@@ -0,0 +1,10 @@
+package com.apex.testsuite.dto;
+
+public record ClassCoverageDTO(
+        String classId,
+        String className,
+        int linesCovered,
+        int linesUncovered,
+        double coveragePercent
+) {
+}
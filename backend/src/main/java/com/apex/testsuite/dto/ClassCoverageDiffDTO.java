@@ -0,0 +1,20 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+/**
+ * How one class's coverage changed from the base run to the head run. The line lists are null
+ * in summary mode, and also when either run predates per-line coverage.
+ */
+public record ClassCoverageDiffDTO(
+        String classId,
+        String className,
+        Double baseCoveragePercent,
+        Double headCoveragePercent,
+        int newlyCoveredCount,
+        int newlyUncoveredCount,
+        int unchangedCoveredCount,
+        List<Integer> newlyCoveredLines,
+        List<Integer> newlyUncoveredLines
+) {
+}
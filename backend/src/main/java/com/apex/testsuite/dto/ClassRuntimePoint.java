@@ -0,0 +1,8 @@
+package com.apex.testsuite.dto;
+
+public record ClassRuntimePoint(
+        String className,
+        Long totalRunTimeMs,
+        Long runCount
+) {
+}
@@ -0,0 +1,14 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+public record CoverageDiffDTO(
+        Long baseRunId,
+        Long headRunId,
+        double baseCoveragePercent,
+        double headCoveragePercent,
+        long newlyCoveredLines,
+        long newlyUncoveredLines,
+        List<ClassCoverageDiffDTO> classes
+) {
+}
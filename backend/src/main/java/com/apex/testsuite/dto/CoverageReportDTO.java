@@ -0,0 +1,14 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+/** Line coverage over a set of classes; the totals count every line once, however many tests hit it. */
+public record CoverageReportDTO(
+        int runCount,
+        int classCount,
+        long linesCovered,
+        long linesUncovered,
+        double coveragePercent,
+        List<ClassCoverageDTO> classes
+) {
+}
@@ -0,0 +1,16 @@
+package com.apex.testsuite.dto;
+
+import java.time.LocalDateTime;
+
+public record FlakyTestDTO(
+        String className,
+        String methodName,
+        int runs,
+        int failures,
+        int flips,
+        double flipRate,
+        double failureRate,
+        String lastOutcome,
+        LocalDateTime lastSeenAt
+) {
+}
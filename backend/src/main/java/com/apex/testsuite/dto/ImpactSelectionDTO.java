@@ -0,0 +1,12 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+/** Test classes picked for a set of changed classes, plus how much of the change the index knew about. */
+public record ImpactSelectionDTO(
+        List<String> changedClasses,
+        List<String> testClassIds,
+        List<String> testClassNames,
+        long indexedEdges
+) {
+}
@@ -0,0 +1,10 @@
+package com.apex.testsuite.dto;
+
+import java.time.LocalDateTime;
+
+public record RunCoveragePoint(
+        Long runId,
+        LocalDateTime startedAt,
+        Double avgCoverage
+) {
+}
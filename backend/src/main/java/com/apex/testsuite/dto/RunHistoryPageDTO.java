@@ -0,0 +1,14 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of run history. {@code nextCursor} is null on the last page and
+ * {@code totalElements} is only filled in when the caller asked for it.
+ */
+public record RunHistoryPageDTO(
+        List<RunSummaryDTO> runs,
+        String nextCursor,
+        Long totalElements
+) {
+}
@@ -0,0 +1,12 @@
+package com.apex.testsuite.dto;
+
+import java.time.LocalDateTime;
+
+public record RunPassRatePoint(
+        Long runId,
+        LocalDateTime startedAt,
+        int totalTests,
+        int passCount,
+        int failCount
+) {
+}
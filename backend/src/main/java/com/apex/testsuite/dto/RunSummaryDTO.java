@@ -0,0 +1,17 @@
+package com.apex.testsuite.dto;
+
+import com.apex.testsuite.entity.TestRunStatus;
+
+import java.time.LocalDateTime;
+
+public record RunSummaryDTO(
+        Long id,
+        String asyncApexJobId,
+        TestRunStatus status,
+        int totalTests,
+        int passCount,
+        int failCount,
+        LocalDateTime startedAt,
+        LocalDateTime completedAt
+) {
+}
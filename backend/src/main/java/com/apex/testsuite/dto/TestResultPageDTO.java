@@ -0,0 +1,10 @@
+package com.apex.testsuite.dto;
+
+import java.util.List;
+
+/** One page of a run's results; {@code nextCursor} is null on the last page. */
+public record TestResultPageDTO(
+        List<TestResultRowDTO> results,
+        String nextCursor
+) {
+}
@@ -0,0 +1,14 @@
+package com.apex.testsuite.dto;
+
+import com.apex.testsuite.entity.TestOutcome;
+
+public record TestResultRowDTO(
+        Long id,
+        String className,
+        String methodName,
+        TestOutcome outcome,
+        String message,
+        String stackTrace,
+        long runTimeMs
+) {
+}
@@ -1,8 +1,22 @@
 package com.apex.testsuite.dto;
 
+import java.time.Instant;
 import java.util.List;
 
+/**
+ * Classes to run. With {@code mode = "impacted"} the test classes are instead chosen from the
+ * impact index for {@code changedClasses} (names or ids) and/or classes modified after {@code since}.
+ * {@code shards > 1} splits the run into that many parallel async jobs, balanced by past runtime.
+ * {@code profile} is {@code full} (default), {@code fast} (no coverage) or {@code fail-fast}, which
+ * aborts the run once more than {@code maxFailedTests} tests have failed.
+ */
 public record TestRunRequest(
-        List<String> classIds
+        List<String> classIds,
+        String mode,
+        List<String> changedClasses,
+        Instant since,
+        Integer shards,
+        String profile,
+        Integer maxFailedTests
 ) {
 }
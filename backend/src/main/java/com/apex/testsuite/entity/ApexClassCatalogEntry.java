@@ -0,0 +1,96 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "apex_class_catalog",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"org_id", "class_id"}))
+public class ApexClassCatalogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "apex_class_catalog_seq")
+    @SequenceGenerator(name = "apex_class_catalog_seq", sequenceName = "apex_class_catalog_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "org_id", length = 18, nullable = false)
+    private String orgId;
+
+    @Column(name = "class_id", length = 18, nullable = false)
+    private String classId;
+
+    private String name;
+    private String namespacePrefix;
+    private boolean testClass;
+
+    // Salesforce SystemModstamp of the class when it was last classified
+    private Instant systemModstamp;
+    private Instant lastSyncedAt;
+
+    public ApexClassCatalogEntry() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public String getClassId() {
+        return classId;
+    }
+
+    public void setClassId(String classId) {
+        this.classId = classId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNamespacePrefix() {
+        return namespacePrefix;
+    }
+
+    public void setNamespacePrefix(String namespacePrefix) {
+        this.namespacePrefix = namespacePrefix;
+    }
+
+    public boolean isTestClass() {
+        return testClass;
+    }
+
+    public void setTestClass(boolean testClass) {
+        this.testClass = testClass;
+    }
+
+    public Instant getSystemModstamp() {
+        return systemModstamp;
+    }
+
+    public void setSystemModstamp(Instant systemModstamp) {
+        this.systemModstamp = systemModstamp;
+    }
+
+    public Instant getLastSyncedAt() {
+        return lastSyncedAt;
+    }
+
+    public void setLastSyncedAt(Instant lastSyncedAt) {
+        this.lastSyncedAt = lastSyncedAt;
+    }
+}
@@ -11,6 +11,9 @@ public class AuthSession {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(length = 64, unique = true)
+    private String sessionKey;
+
     @Column(length = 1000)
     private String encryptedAccessToken;
 
@@ -20,6 +23,9 @@ public class AuthSession {
     private String instanceUrl;
     private String orgId;
     private String username;
+    private String orgName;
+    private String displayName;
+    private String email;
 
     private Instant createdAt;
     private Instant lastActivityAt;
@@ -30,6 +36,9 @@ public class AuthSession {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public String getSessionKey() { return sessionKey; }
+    public void setSessionKey(String sessionKey) { this.sessionKey = sessionKey; }
+
     public String getEncryptedAccessToken() { return encryptedAccessToken; }
     public void setEncryptedAccessToken(String encryptedAccessToken) { this.encryptedAccessToken = encryptedAccessToken; }
 
@@ -45,6 +54,15 @@ public class AuthSession {
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
 
+    public String getOrgName() { return orgName; }
+    public void setOrgName(String orgName) { this.orgName = orgName; }
+
+    public String getDisplayName() { return displayName; }
+    public void setDisplayName(String displayName) { this.displayName = displayName; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,64 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "catalog_sync_state")
+public class CatalogSyncState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "org_id", length = 18, nullable = false, unique = true)
+    private String orgId;
+
+    // Highest ApexClass SystemModstamp applied to the catalog
+    private Instant watermark;
+    private Instant lastSyncAt;
+    private Instant lastReconcileAt;
+
+    public CatalogSyncState() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public Instant getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(Instant watermark) {
+        this.watermark = watermark;
+    }
+
+    public Instant getLastSyncAt() {
+        return lastSyncAt;
+    }
+
+    public void setLastSyncAt(Instant lastSyncAt) {
+        this.lastSyncAt = lastSyncAt;
+    }
+
+    public Instant getLastReconcileAt() {
+        return lastReconcileAt;
+    }
+
+    public void setLastReconcileAt(Instant lastReconcileAt) {
+        this.lastReconcileAt = lastReconcileAt;
+    }
+}
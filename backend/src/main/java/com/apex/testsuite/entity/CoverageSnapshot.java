@@ -1,20 +1,31 @@
 package com.apex.testsuite.entity;
 
 import jakarta.persistence.*;
+import java.util.BitSet;
 
 @Entity
 @Table(name = "coverage_snapshots")
 public class CoverageSnapshot {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coverage_snapshots_seq")
+    @SequenceGenerator(name = "coverage_snapshots_seq", sequenceName = "coverage_snapshots_seq", allocationSize = 50)
     private Long id;
 
     private String className;
+    @Column(length = 18)
+    private String classId;
     private int linesCovered;
     private int linesUncovered;
     private double coveragePercent;
 
+    // Null on snapshots recorded before per-line coverage was stored
+    @Convert(converter = LineBitmapConverter.class)
+    private BitSet coveredLines;
+
+    @Convert(converter = LineBitmapConverter.class)
+    private BitSet uncoveredLines;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "test_run_id")
     private TestRun testRun;
@@ -38,6 +49,14 @@ public class CoverageSnapshot {
         this.className = className;
     }
 
+    public String getClassId() {
+        return classId;
+    }
+
+    public void setClassId(String classId) {
+        this.classId = classId;
+    }
+
     public int getLinesCovered() {
         return linesCovered;
     }
@@ -62,6 +81,22 @@ public class CoverageSnapshot {
         this.coveragePercent = coveragePercent;
     }
 
+    public BitSet getCoveredLines() {
+        return coveredLines;
+    }
+
+    public void setCoveredLines(BitSet coveredLines) {
+        this.coveredLines = coveredLines;
+    }
+
+    public BitSet getUncoveredLines() {
+        return uncoveredLines;
+    }
+
+    public void setUncoveredLines(BitSet uncoveredLines) {
+        this.uncoveredLines = uncoveredLines;
+    }
+
     public TestRun getTestRun() {
         return testRun;
     }
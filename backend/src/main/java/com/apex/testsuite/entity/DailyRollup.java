@@ -0,0 +1,104 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Per-org, per-day totals rebuilt from {@link RunRollup} rows whenever a run of that day completes.
+ */
+@Entity
+@Table(name = "daily_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"org_id", "rollup_date"}))
+public class DailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "org_id", nullable = false)
+    private String orgId;
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+    private int runCount;
+    private long totalTests;
+    private long passCount;
+    private long failCount;
+    // Sum of per-run average coverage over the coverageRunCount runs that had coverage
+    private double coverageSum;
+    private int coverageRunCount;
+
+    public DailyRollup() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public LocalDate getRollupDate() {
+        return rollupDate;
+    }
+
+    public void setRollupDate(LocalDate rollupDate) {
+        this.rollupDate = rollupDate;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public void setRunCount(int runCount) {
+        this.runCount = runCount;
+    }
+
+    public long getTotalTests() {
+        return totalTests;
+    }
+
+    public void setTotalTests(long totalTests) {
+        this.totalTests = totalTests;
+    }
+
+    public long getPassCount() {
+        return passCount;
+    }
+
+    public void setPassCount(long passCount) {
+        this.passCount = passCount;
+    }
+
+    public long getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(long failCount) {
+        this.failCount = failCount;
+    }
+
+    public double getCoverageSum() {
+        return coverageSum;
+    }
+
+    public void setCoverageSum(double coverageSum) {
+        this.coverageSum = coverageSum;
+    }
+
+    public int getCoverageRunCount() {
+        return coverageRunCount;
+    }
+
+    public void setCoverageRunCount(int coverageRunCount) {
+        this.coverageRunCount = coverageRunCount;
+    }
+}
@@ -0,0 +1,55 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A failure message or stack trace, keyed by the SHA-256 of its normalized text so that a
+ * failure repeated across many runs is stored once. The text is kept compressed.
+ */
+@Entity
+@Table(name = "failure_texts")
+public class FailureText {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private int textLength;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "compressed_text", nullable = false)
+    private String text;
+
+    public FailureText() {
+    }
+
+    public FailureText(String hash, String text) {
+        this.hash = hash;
+        this.text = text;
+        this.textLength = text.length();
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    public void setTextLength(int textLength) {
+        this.textLength = textLength;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
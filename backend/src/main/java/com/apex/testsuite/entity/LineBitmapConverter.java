@@ -0,0 +1,141 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.BitSet;
+
+/**
+ * Stores a set of line numbers in the smallest of three encodings, chosen per value the way
+ * Roaring bitmaps choose a container: a sorted array of gaps for a few scattered lines, runs of
+ * consecutive lines for the usual covered blocks, or a plain bitset for dense, fragmented sets.
+ * Numbers are written as unsigned varints, so small gaps and short runs take a byte each.
+ */
+@Converter
+public class LineBitmapConverter implements AttributeConverter<BitSet, byte[]> {
+
+    private static final byte ARRAY = 0;
+    private static final byte RUNS = 1;
+    private static final byte BITSET = 2;
+
+    @Override
+    public byte[] convertToDatabaseColumn(BitSet lines) {
+        return encode(lines);
+    }
+
+    @Override
+    public BitSet convertToEntityAttribute(byte[] encoded) {
+        return decode(encoded);
+    }
+
+    public static byte[] encode(BitSet lines) {
+        if (lines == null) {
+            return null;
+        }
+        byte[] array = encodeArray(lines);
+        byte[] runs = encodeRuns(lines);
+        byte[] bitset = lines.toByteArray();
+        if (array.length <= runs.length && array.length <= bitset.length) {
+            return withType(ARRAY, array);
+        }
+        return runs.length <= bitset.length ? withType(RUNS, runs) : withType(BITSET, bitset);
+    }
+
+    public static BitSet decode(byte[] encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        if (encoded.length == 0) {
+            return new BitSet();
+        }
+        int[] pos = {1};
+        BitSet lines = new BitSet();
+        switch (encoded[0]) {
+            case ARRAY -> {
+                int count = readVarint(encoded, pos);
+                int line = -1;
+                for (int i = 0; i < count; i++) {
+                    line += readVarint(encoded, pos) + 1;
+                    lines.set(line);
+                }
+            }
+            case RUNS -> {
+                int count = readVarint(encoded, pos);
+                int end = 0;
+                for (int i = 0; i < count; i++) {
+                    int start = end + readVarint(encoded, pos);
+                    end = start + readVarint(encoded, pos) + 1;
+                    lines.set(start, end);
+                }
+            }
+            case BITSET -> {
+                byte[] bits = new byte[encoded.length - 1];
+                System.arraycopy(encoded, 1, bits, 0, bits.length);
+                lines = BitSet.valueOf(bits);
+            }
+            default -> throw new IllegalStateException("Unknown line bitmap encoding " + encoded[0]);
+        }
+        return lines;
+    }
+
+    // Gap to the previous line minus one, so consecutive lines cost a zero byte
+    private static byte[] encodeArray(BitSet lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, lines.cardinality());
+        int previous = -1;
+        for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+            writeVarint(out, line - previous - 1);
+            previous = line;
+        }
+        return out.toByteArray();
+    }
+
+    // Each run is its gap from the end of the previous run and its length minus one
+    private static byte[] encodeRuns(BitSet lines) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int count = 0;
+        int end = 0;
+        for (int start = lines.nextSetBit(0); start >= 0; start = lines.nextSetBit(end)) {
+            int runEnd = lines.nextClearBit(start);
+            writeVarint(body, start - end);
+            writeVarint(body, runEnd - start - 1);
+            end = runEnd;
+            count++;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 5);
+        writeVarint(out, count);
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static byte[] withType(byte type, byte[] payload) {
+        byte[] encoded = new byte[payload.length + 1];
+        encoded[0] = type;
+        System.arraycopy(payload, 0, encoded, 1, payload.length);
+        return encoded;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] in, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (pos[0] >= in.length) {
+                throw new IllegalStateException("Truncated line bitmap");
+            }
+            b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.apex.testsuite.entity;
+
+import java.util.Locale;
+
+public enum RunProfile {
+    // Coverage collected, every test runs
+    FULL,
+    // No coverage collection, for quick developer feedback
+    FAST,
+    // Stops once more than maxFailedTests tests have failed
+    FAIL_FAST;
+
+    /** Accepts the request form ({@code full}, {@code fast}, {@code fail-fast}); null means {@link #FULL}. */
+    public static RunProfile fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown run profile: " + value + " (expected full, fast or fail-fast)");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Trend figures for one completed run, so trend queries never touch results or coverage rows.
+ */
+@Entity
+@Table(name = "run_rollups")
+public class RunRollup {
+
+    // Same id as the TestRun it summarizes
+    @Id
+    private Long runId;
+
+    private String orgId;
+    @Column(nullable = false)
+    private LocalDate rollupDate;
+    private LocalDateTime startedAt;
+    private int totalTests;
+    private int passCount;
+    private int failCount;
+    // Null when the run stored no coverage
+    private Double avgCoverage;
+
+    public RunRollup() {
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(Long runId) {
+        this.runId = runId;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public LocalDate getRollupDate() {
+        return rollupDate;
+    }
+
+    public void setRollupDate(LocalDate rollupDate) {
+        this.rollupDate = rollupDate;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public int getTotalTests() {
+        return totalTests;
+    }
+
+    public void setTotalTests(int totalTests) {
+        this.totalTests = totalTests;
+    }
+
+    public int getPassCount() {
+        return passCount;
+    }
+
+    public void setPassCount(int passCount) {
+        this.passCount = passCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    public Double getAvgCoverage() {
+        return avgCoverage;
+    }
+
+    public void setAvgCoverage(Double avgCoverage) {
+        this.avgCoverage = avgCoverage;
+    }
+}
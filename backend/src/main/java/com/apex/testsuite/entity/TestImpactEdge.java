@@ -0,0 +1,87 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One edge of the test impact index: running {@code testClassId} executed code in {@code coveredClassId}.
+ */
+@Entity
+@Table(name = "test_impact_edges",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"org_id", "test_class_id", "covered_class_id"}))
+public class TestImpactEdge {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_impact_edges_seq")
+    @SequenceGenerator(name = "test_impact_edges_seq", sequenceName = "test_impact_edges_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String orgId;
+    @Column(nullable = false, length = 18)
+    private String testClassId;
+    @Column(nullable = false, length = 18)
+    private String coveredClassId;
+    private String coveredClassName;
+    private Long lastRunId;
+    private LocalDateTime updatedAt;
+
+    public TestImpactEdge() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public String getTestClassId() {
+        return testClassId;
+    }
+
+    public void setTestClassId(String testClassId) {
+        this.testClassId = testClassId;
+    }
+
+    public String getCoveredClassId() {
+        return coveredClassId;
+    }
+
+    public void setCoveredClassId(String coveredClassId) {
+        this.coveredClassId = coveredClassId;
+    }
+
+    public String getCoveredClassName() {
+        return coveredClassName;
+    }
+
+    public void setCoveredClassName(String coveredClassName) {
+        this.coveredClassName = coveredClassName;
+    }
+
+    public Long getLastRunId() {
+        return lastRunId;
+    }
+
+    public void setLastRunId(Long lastRunId) {
+        this.lastRunId = lastRunId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,161 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Recent pass/fail history of one test method in one org, kept as a bit window so each new
+ * outcome is applied in constant time. See {@code FlakyTestService}.
+ */
+@Entity
+@Table(name = "test_method_stats",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"org_id", "class_name", "method_name"}))
+public class TestMethodStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_method_stats_seq")
+    @SequenceGenerator(name = "test_method_stats_seq", sequenceName = "test_method_stats_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String orgId;
+    @Column(nullable = false)
+    private String className;
+    @Column(nullable = false)
+    private String methodName;
+    private long outcomeWindow;
+    private int windowSize;
+    private int failCount;
+    private int flipCount;
+    private double failureRate;
+    private double flipRate;
+    private long totalRuns;
+    private long totalFailures;
+    @Enumerated(EnumType.STRING)
+    private TestOutcome lastOutcome;
+    private Long lastRunId;
+    private LocalDateTime lastSeenAt;
+
+    public TestMethodStats() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public void setClassName(String className) {
+        this.className = className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public void setMethodName(String methodName) {
+        this.methodName = methodName;
+    }
+
+    public long getOutcomeWindow() {
+        return outcomeWindow;
+    }
+
+    public void setOutcomeWindow(long outcomeWindow) {
+        this.outcomeWindow = outcomeWindow;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    public int getFlipCount() {
+        return flipCount;
+    }
+
+    public void setFlipCount(int flipCount) {
+        this.flipCount = flipCount;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public double getFlipRate() {
+        return flipRate;
+    }
+
+    public void setFlipRate(double flipRate) {
+        this.flipRate = flipRate;
+    }
+
+    public long getTotalRuns() {
+        return totalRuns;
+    }
+
+    public void setTotalRuns(long totalRuns) {
+        this.totalRuns = totalRuns;
+    }
+
+    public long getTotalFailures() {
+        return totalFailures;
+    }
+
+    public void setTotalFailures(long totalFailures) {
+        this.totalFailures = totalFailures;
+    }
+
+    public TestOutcome getLastOutcome() {
+        return lastOutcome;
+    }
+
+    public void setLastOutcome(TestOutcome lastOutcome) {
+        this.lastOutcome = lastOutcome;
+    }
+
+    public Long getLastRunId() {
+        return lastRunId;
+    }
+
+    public void setLastRunId(Long lastRunId) {
+        this.lastRunId = lastRunId;
+    }
+
+    public LocalDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(LocalDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
@@ -7,7 +7,8 @@ import jakarta.persistence.*;
 public class TestResult {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_results_seq")
+    @SequenceGenerator(name = "test_results_seq", sequenceName = "test_results_seq", allocationSize = 50)
     private Long id;
 
     private String className;
@@ -16,14 +17,26 @@ public class TestResult {
     @Enumerated(EnumType.STRING)
     private TestOutcome outcome;
 
+    // Inline text of rows written before failure texts were split out; null for newer rows
     @Column(length = 4000)
     private String message;
 
     @Column(length = 8000)
     private String stackTrace;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "message_hash")
+    private FailureText messageText;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stack_trace_hash")
+    private FailureText stackTraceText;
+
     private long runTimeMs;
 
+    // Set for results of sharded runs only
+    private Long shardId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "test_run_id")
     private TestRun testRun;
@@ -79,6 +92,22 @@ public class TestResult {
         this.stackTrace = stackTrace;
     }
 
+    public FailureText getMessageText() {
+        return messageText;
+    }
+
+    public void setMessageText(FailureText messageText) {
+        this.messageText = messageText;
+    }
+
+    public FailureText getStackTraceText() {
+        return stackTraceText;
+    }
+
+    public void setStackTraceText(FailureText stackTraceText) {
+        this.stackTraceText = stackTraceText;
+    }
+
     public long getRunTimeMs() {
         return runTimeMs;
     }
@@ -87,6 +116,14 @@ public class TestResult {
         this.runTimeMs = runTimeMs;
     }
 
+    public Long getShardId() {
+        return shardId;
+    }
+
+    public void setShardId(Long shardId) {
+        this.shardId = shardId;
+    }
+
     public TestRun getTestRun() {
         return testRun;
     }
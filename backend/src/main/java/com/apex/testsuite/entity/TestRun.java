@@ -10,7 +10,8 @@ import java.util.List;
 public class TestRun {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_runs_seq")
+    @SequenceGenerator(name = "test_runs_seq", sequenceName = "test_runs_seq", allocationSize = 50)
     private Long id;
 
     private String asyncApexJobId;
@@ -23,6 +24,21 @@ public class TestRun {
     private int passCount;
     private int failCount;
 
+    // Id of the last ApexTestResult ingested while the run was in progress
+    @Column(length = 18)
+    private String lastResultId;
+
+    // Number of runTestsAsynchronous jobs the run was split into; see TestRunShard
+    @Column(nullable = false)
+    private int shardCount = 1;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RunProfile profile = RunProfile.FULL;
+
+    // Failures tolerated before a fail-fast run is aborted
+    private Integer maxFailedTests;
+
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
 
@@ -91,6 +107,38 @@ public class TestRun {
         this.failCount = failCount;
     }
 
+    public String getLastResultId() {
+        return lastResultId;
+    }
+
+    public void setLastResultId(String lastResultId) {
+        this.lastResultId = lastResultId;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public RunProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(RunProfile profile) {
+        this.profile = profile;
+    }
+
+    public Integer getMaxFailedTests() {
+        return maxFailedTests;
+    }
+
+    public void setMaxFailedTests(Integer maxFailedTests) {
+        this.maxFailedTests = maxFailedTests;
+    }
+
     public LocalDateTime getStartedAt() {
         return startedAt;
     }
@@ -0,0 +1,136 @@
+package com.apex.testsuite.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One {@code runTestsAsynchronous} job of a sharded {@link TestRun}, with its own ingestion
+ * watermark and counters.
+ */
+@Entity
+@Table(name = "test_run_shards")
+public class TestRunShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_run_shards_seq")
+    @SequenceGenerator(name = "test_run_shards_seq", sequenceName = "test_run_shards_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long testRunId;
+    private int shardIndex;
+    @Column(nullable = false, unique = true)
+    private String asyncApexJobId;
+    private int classCount;
+    // Expected runtime of the shard's classes, from their history
+    private long estimatedMs;
+
+    @Enumerated(EnumType.STRING)
+    private TestRunStatus status;
+
+    @Column(length = 18)
+    private String lastResultId;
+    private int totalTests;
+    private int passCount;
+    private int failCount;
+    private LocalDateTime completedAt;
+
+    public TestRunShard() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTestRunId() {
+        return testRunId;
+    }
+
+    public void setTestRunId(Long testRunId) {
+        this.testRunId = testRunId;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(int shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public String getAsyncApexJobId() {
+        return asyncApexJobId;
+    }
+
+    public void setAsyncApexJobId(String asyncApexJobId) {
+        this.asyncApexJobId = asyncApexJobId;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public void setClassCount(int classCount) {
+        this.classCount = classCount;
+    }
+
+    public long getEstimatedMs() {
+        return estimatedMs;
+    }
+
+    public void setEstimatedMs(long estimatedMs) {
+        this.estimatedMs = estimatedMs;
+    }
+
+    public TestRunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TestRunStatus status) {
+        this.status = status;
+    }
+
+    public String getLastResultId() {
+        return lastResultId;
+    }
+
+    public void setLastResultId(String lastResultId) {
+        this.lastResultId = lastResultId;
+    }
+
+    public int getTotalTests() {
+        return totalTests;
+    }
+
+    public void setTotalTests(int totalTests) {
+        this.totalTests = totalTests;
+    }
+
+    public int getPassCount() {
+        return passCount;
+    }
+
+    public void setPassCount(int passCount) {
+        this.passCount = passCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    public void setFailCount(int failCount) {
+        this.failCount = failCount;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,38 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ApexClassCatalogRepository extends JpaRepository<ApexClassCatalogEntry, Long> {
+
+    List<ApexClassCatalogEntry> findByOrgId(String orgId);
+
+    List<ApexClassCatalogEntry> findByOrgIdAndClassIdIn(String orgId, Collection<String> classIds);
+
+    List<ApexClassCatalogEntry> findByOrgIdAndTestClassTrueOrderByNameAsc(String orgId);
+
+    @Query("SELECT e FROM ApexClassCatalogEntry e WHERE e.orgId = :orgId "
+            + "AND (e.classId IN :classIds OR LOWER(e.name) IN :lowerCaseNames)")
+    List<ApexClassCatalogEntry> findByOrgIdAndIdsOrNames(String orgId, Collection<String> classIds,
+                                                          Collection<String> lowerCaseNames);
+
+    @Query("SELECT e.classId FROM ApexClassCatalogEntry e WHERE e.orgId = :orgId")
+    List<String> findClassIdsByOrgId(String orgId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ApexClassCatalogEntry e WHERE e.orgId = :orgId AND e.classId IN :classIds")
+    int deleteByOrgIdAndClassIdIn(String orgId, Collection<String> classIds);
+
+    long countByOrgId(String orgId);
+
+    long countByOrgIdAndTestClassTrue(String orgId);
+}
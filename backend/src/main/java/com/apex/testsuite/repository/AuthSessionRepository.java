@@ -2,14 +2,35 @@ package com.apex.testsuite.repository;
 
 import com.apex.testsuite.entity.AuthSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AuthSessionRepository extends JpaRepository<AuthSession, Long> {
 
-    Optional<AuthSession> findTopByOrderByLastActivityAtDesc();
+    Optional<AuthSession> findBySessionKey(String sessionKey);
 
-    void deleteAll();
+    List<AuthSession> findBySessionKeyNotNull();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AuthSession s SET s.lastActivityAt = :at WHERE s.sessionKey = :sessionKey")
+    int updateLastActivity(@Param("sessionKey") String sessionKey, @Param("at") Instant at);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.sessionKey = :sessionKey")
+    int deleteBySessionKey(@Param("sessionKey") String sessionKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AuthSession s WHERE s.sessionKey IS NULL OR s.lastActivityAt IS NULL OR s.lastActivityAt < :before")
+    int deleteStale(@Param("before") Instant before);
 }
@@ -0,0 +1,13 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.CatalogSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogSyncStateRepository extends JpaRepository<CatalogSyncState, Long> {
+
+    Optional<CatalogSyncState> findByOrgId(String orgId);
+}
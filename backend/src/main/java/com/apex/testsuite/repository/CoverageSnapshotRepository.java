@@ -1,10 +1,13 @@
 package com.apex.testsuite.repository;
 
+import com.apex.testsuite.dto.RunCoveragePoint;
 import com.apex.testsuite.entity.CoverageSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,6 +15,21 @@ public interface CoverageSnapshotRepository extends JpaRepository<CoverageSnapsh
 
     List<CoverageSnapshot> findByTestRunIdOrderByClassNameAsc(Long testRunId);
 
-    @Query("SELECT AVG(c.coveragePercent) FROM CoverageSnapshot c WHERE c.testRun.id = :testRunId")
+    // Covered lines over all lines of the run's classes, so large classes weigh in by their size
+    @Query("SELECT SUM(c.linesCovered) * 100.0 / NULLIF(SUM(c.linesCovered) + SUM(c.linesUncovered), 0) FROM CoverageSnapshot c WHERE c.testRun.id = :testRunId")
     Double findAverageCoverageByTestRunId(Long testRunId);
+
+    @Query("SELECT new com.apex.testsuite.dto.RunCoveragePoint(t.id, t.startedAt, "
+            + "SUM(c.linesCovered) * 100.0 / NULLIF(SUM(c.linesCovered) + SUM(c.linesUncovered), 0)) "
+            + "FROM CoverageSnapshot c JOIN c.testRun t WHERE t.id IN :testRunIds GROUP BY t.id, t.startedAt")
+    List<RunCoveragePoint> findAverageCoverageByTestRunIds(Collection<Long> testRunIds);
+
+    // Line bitmaps included; a run has one row per covered class
+    @Query("SELECT c.classId, c.className, c.linesCovered, c.linesUncovered, c.coveredLines, c.uncoveredLines "
+            + "FROM CoverageSnapshot c WHERE c.testRun.id = :testRunId")
+    List<Object[]> findLineCoverageByTestRunId(Long testRunId);
+
+    @Modifying
+    @Query("DELETE FROM CoverageSnapshot c WHERE c.testRun.id = :testRunId")
+    int deleteByTestRunId(Long testRunId);
 }
@@ -0,0 +1,17 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.DailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, Long> {
+
+    Optional<DailyRollup> findByOrgIdAndRollupDate(String orgId, LocalDate rollupDate);
+
+    List<DailyRollup> findByOrgIdAndRollupDateGreaterThanEqualOrderByRollupDateAsc(String orgId, LocalDate since);
+}
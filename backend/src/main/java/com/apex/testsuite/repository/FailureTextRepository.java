@@ -0,0 +1,16 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.FailureText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FailureTextRepository extends JpaRepository<FailureText, String> {
+
+    @Query("SELECT f.hash FROM FailureText f WHERE f.hash IN :hashes")
+    List<String> findExistingHashes(Collection<String> hashes);
+}
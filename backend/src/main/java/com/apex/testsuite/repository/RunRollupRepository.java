@@ -0,0 +1,14 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.RunRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RunRollupRepository extends JpaRepository<RunRollup, Long> {
+
+    List<RunRollup> findByOrgIdAndRollupDate(String orgId, LocalDate rollupDate);
+}
@@ -0,0 +1,24 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.TestImpactEdge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TestImpactEdgeRepository extends JpaRepository<TestImpactEdge, Long> {
+
+    @Query("SELECT DISTINCT e.testClassId FROM TestImpactEdge e WHERE e.orgId = :orgId "
+            + "AND (e.coveredClassId IN :classIds OR LOWER(e.coveredClassName) IN :lowerCaseNames)")
+    List<String> findTestClassIdsCovering(String orgId, Collection<String> classIds, Collection<String> lowerCaseNames);
+
+    @Modifying
+    @Query("DELETE FROM TestImpactEdge e WHERE e.orgId = :orgId AND e.testClassId IN :testClassIds")
+    int deleteByOrgIdAndTestClassIdIn(String orgId, Collection<String> testClassIds);
+
+    long countByOrgId(String orgId);
+}
@@ -0,0 +1,20 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.TestMethodStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TestMethodStatsRepository extends JpaRepository<TestMethodStats, Long> {
+
+    List<TestMethodStats> findByOrgIdAndClassNameIn(String orgId, Collection<String> classNames);
+
+    @Query("SELECT s FROM TestMethodStats s WHERE s.orgId = :orgId AND s.windowSize >= :minRuns AND s.flipCount > 0 "
+            + "ORDER BY s.flipRate DESC, s.failureRate DESC, s.className ASC, s.methodName ASC")
+    List<TestMethodStats> findFlaky(String orgId, int minRuns, Pageable pageable);
+}
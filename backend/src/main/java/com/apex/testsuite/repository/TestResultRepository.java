@@ -1,13 +1,32 @@
 package com.apex.testsuite.repository;
 
+import com.apex.testsuite.dto.ClassRuntimePoint;
 import com.apex.testsuite.entity.TestResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TestResultRepository extends JpaRepository<TestResult, Long> {
 
     List<TestResult> findByTestRunIdOrderByClassNameAscMethodNameAsc(Long testRunId);
+
+    @Modifying
+    @Query("DELETE FROM TestResult r WHERE r.testRun.id = :testRunId")
+    int deleteByTestRunId(Long testRunId);
+
+    @Modifying
+    @Query("DELETE FROM TestResult r WHERE r.testRun.id = :testRunId AND r.shardId = :shardId")
+    int deleteByTestRunIdAndShardId(Long testRunId, Long shardId);
+
+    // Per-class runtime summed over the org's recent completed runs, for balancing shards
+    @Query("SELECT new com.apex.testsuite.dto.ClassRuntimePoint(r.className, SUM(r.runTimeMs), COUNT(DISTINCT r.testRun.id)) "
+            + "FROM TestResult r WHERE r.testRun.orgId = :orgId AND r.testRun.status = 'COMPLETED' "
+            + "AND r.testRun.startedAt >= :since AND r.className IN :classNames GROUP BY r.className")
+    List<ClassRuntimePoint> findClassRuntimes(String orgId, LocalDateTime since, Collection<String> classNames);
 }
@@ -1,12 +1,17 @@
 package com.apex.testsuite.repository;
 
+import com.apex.testsuite.dto.RunCoveragePoint;
+import com.apex.testsuite.dto.RunPassRatePoint;
+import com.apex.testsuite.dto.RunSummaryDTO;
 import com.apex.testsuite.entity.TestRun;
 import com.apex.testsuite.entity.TestRunStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,6 +24,28 @@ public interface TestRunRepository extends JpaRepository<TestRun, Long> {
 
     List<TestRun> findByOrgIdOrderByStartedAtDesc(String orgId);
 
+    @Query(value = "SELECT new com.apex.testsuite.dto.RunSummaryDTO(t.id, t.asyncApexJobId, t.status, t.totalTests, "
+            + "t.passCount, t.failCount, t.startedAt, t.completedAt) FROM TestRun t WHERE t.orgId = :orgId "
+            + "ORDER BY t.startedAt DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM TestRun t WHERE t.orgId = :orgId")
+    Page<RunSummaryDTO> findRunSummaries(String orgId, Pageable pageable);
+
+    @Query("SELECT new com.apex.testsuite.dto.RunSummaryDTO(t.id, t.asyncApexJobId, t.status, t.totalTests, "
+            + "t.passCount, t.failCount, t.startedAt, t.completedAt) FROM TestRun t WHERE t.orgId = :orgId "
+            + "ORDER BY t.startedAt DESC, t.id DESC")
+    List<RunSummaryDTO> findFirstRunSummaries(String orgId, Pageable pageable);
+
+    // Seek past the cursor instead of skipping rows, so every page costs the same however deep it is
+    @Query("SELECT new com.apex.testsuite.dto.RunSummaryDTO(t.id, t.asyncApexJobId, t.status, t.totalTests, "
+            + "t.passCount, t.failCount, t.startedAt, t.completedAt) FROM TestRun t WHERE t.orgId = :orgId "
+            + "AND (t.startedAt < :startedAt OR (t.startedAt = :startedAt AND t.id < :id)) "
+            + "ORDER BY t.startedAt DESC, t.id DESC")
+    List<RunSummaryDTO> findRunSummariesBefore(String orgId, LocalDateTime startedAt, Long id, Pageable pageable);
+
+    long countByOrgId(String orgId);
+
+    Optional<TestRun> findByIdAndOrgId(Long id, String orgId);
+
     Optional<TestRun> findByAsyncApexJobId(String asyncApexJobId);
 
     List<TestRun> findByStatusAndOrgId(TestRunStatus status, String orgId);
@@ -26,6 +53,47 @@ public interface TestRunRepository extends JpaRepository<TestRun, Long> {
     @Query("SELECT t FROM TestRun t WHERE t.orgId = :orgId AND t.status = 'COMPLETED' AND t.startedAt >= :since ORDER BY t.startedAt ASC")
     List<TestRun> findCompletedRunsSince(String orgId, LocalDateTime since);
 
+    @Query("SELECT new com.apex.testsuite.dto.RunPassRatePoint(t.id, t.startedAt, t.totalTests, t.passCount, t.failCount) "
+            + "FROM TestRun t WHERE t.orgId = :orgId AND t.status = 'COMPLETED' AND t.startedAt >= :since ORDER BY t.startedAt ASC")
+    List<RunPassRatePoint> findPassRatePointsSince(String orgId, LocalDateTime since);
+
+    // One grouped query for the whole window; runs without coverage rows come back with a null average
+    @Query("SELECT new com.apex.testsuite.dto.RunCoveragePoint(t.id, t.startedAt, "
+            + "SUM(c.linesCovered) * 100.0 / NULLIF(SUM(c.linesCovered) + SUM(c.linesUncovered), 0)) "
+            + "FROM TestRun t LEFT JOIN t.coverageSnapshots c "
+            + "WHERE t.orgId = :orgId AND t.status = 'COMPLETED' AND t.startedAt >= :since "
+            + "GROUP BY t.id, t.startedAt ORDER BY t.startedAt ASC")
+    List<RunCoveragePoint> findCoveragePointsSince(String orgId, LocalDateTime since);
+
     @Query("SELECT t FROM TestRun t WHERE t.orgId = :orgId AND t.status = 'COMPLETED' ORDER BY t.startedAt DESC")
     List<TestRun> findRecentCompleted(String orgId, Pageable pageable);
+
+    @Query("SELECT t FROM TestRun t WHERE t.status = 'COMPLETED' AND t.id > :afterId "
+            + "AND NOT EXISTS (SELECT 1 FROM RunRollup r WHERE r.runId = t.id) ORDER BY t.id ASC")
+    List<TestRun> findCompletedWithoutRollup(Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE TestRun t SET t.lastResultId = :lastResultId, t.totalTests = t.totalTests + :total, "
+            + "t.passCount = t.passCount + :passCount, t.failCount = t.failCount + :failCount WHERE t.id = :id")
+    int advanceIngestion(Long id, String lastResultId, int total, int passCount, int failCount);
+
+    // Sharded runs keep their watermarks on the shards and only sum the counters here
+    @Modifying
+    @Query("UPDATE TestRun t SET t.totalTests = t.totalTests + :total, "
+            + "t.passCount = t.passCount + :passCount, t.failCount = t.failCount + :failCount WHERE t.id = :id")
+    int addIngestedCounts(Long id, int total, int passCount, int failCount);
+
+    @Modifying
+    @Query("UPDATE TestRun t SET t.lastResultId = NULL, t.totalTests = 0, t.passCount = 0, t.failCount = 0 WHERE t.id = :id")
+    int resetIngestion(Long id);
+
+    // Only a run still in flight can be aborted; a finished run keeps its final status
+    @Modifying
+    @Transactional
+    @Query("UPDATE TestRun t SET t.status = 'ABORTED' WHERE t.id = :id AND t.status IN ('QUEUED', 'PROCESSING')")
+    int markAborted(Long id);
+
+    @Modifying
+    @Query("UPDATE TestRun t SET t.status = :status WHERE t.id = :id AND t.status = :current")
+    int updateStatusIfCurrent(Long id, TestRunStatus current, TestRunStatus status);
 }
@@ -0,0 +1,33 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.TestRunShard;
+import com.apex.testsuite.entity.TestRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TestRunShardRepository extends JpaRepository<TestRunShard, Long> {
+
+    List<TestRunShard> findByTestRunIdOrderByShardIndexAsc(Long testRunId);
+
+    Optional<TestRunShard> findByAsyncApexJobId(String asyncApexJobId);
+
+    @Modifying
+    @Query("UPDATE TestRunShard s SET s.lastResultId = :lastResultId, s.totalTests = s.totalTests + :total, "
+            + "s.passCount = s.passCount + :passCount, s.failCount = s.failCount + :failCount WHERE s.id = :id")
+    int advanceIngestion(Long id, String lastResultId, int total, int passCount, int failCount);
+
+    @Modifying
+    @Query("UPDATE TestRunShard s SET s.lastResultId = NULL, s.totalTests = 0, s.passCount = 0, s.failCount = 0 WHERE s.id = :id")
+    int resetIngestion(Long id);
+
+    @Modifying
+    @Query("UPDATE TestRunShard s SET s.status = :status, s.completedAt = :completedAt WHERE s.id = :id")
+    int updateStatus(Long id, TestRunStatus status, LocalDateTime completedAt);
+}
@@ -0,0 +1,49 @@
+package com.apex.testsuite.service;
+
+/**
+ * Detects Apex test classes by scanning the class body for {@code @isTest} or {@code testMethod},
+ * case-insensitively, without copying or lowercasing the body. The scan stops at the first hit,
+ * which for most test classes is the annotation on the first line.
+ */
+final class ApexTestClassScanner {
+
+    private static final String IS_TEST = "@istest";
+    private static final String TEST_METHOD = "testmethod";
+
+    private ApexTestClassScanner() {
+    }
+
+    static boolean isTestClass(CharSequence body) {
+        if (body == null) {
+            return false;
+        }
+        int length = body.length();
+        for (int i = 0; i < length; i++) {
+            char c = body.charAt(i);
+            if (c == '@' && matchesAt(body, i, IS_TEST)) {
+                return true;
+            }
+            if ((c == 't' || c == 'T') && matchesAt(body, i, TEST_METHOD)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // pattern is lowercase ASCII, so folding the body char is enough
+    private static boolean matchesAt(CharSequence body, int offset, String pattern) {
+        if (offset + pattern.length() > body.length()) {
+            return false;
+        }
+        for (int j = 1; j < pattern.length(); j++) {
+            char c = body.charAt(offset + j);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != pattern.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package com.apex.testsuite.service;
+
+import java.util.BitSet;
+
+/**
+ * Coverage of one class or trigger merged from any number of coverage records, e.g. one per
+ * test class or one per run. A line covered by any record is covered; a line is uncovered only
+ * if no record covered it. Records without line detail cannot be merged that way, so of those
+ * only the one covering the most lines is kept, and only while no record with lines exists.
+ */
+final class ClassLineCoverage {
+
+    private final String classId;
+    private final String className;
+    private final BitSet covered = new BitSet();
+    private final BitSet uncovered = new BitSet();
+    private boolean hasLines;
+    private int countedCovered;
+    private int countedUncovered;
+
+    ClassLineCoverage(String classId, String className) {
+        this.classId = classId;
+        this.className = className;
+    }
+
+    void add(BitSet coveredLines, BitSet uncoveredLines, int linesCovered, int linesUncovered) {
+        boolean withLines = (coveredLines != null && !coveredLines.isEmpty())
+                || (uncoveredLines != null && !uncoveredLines.isEmpty());
+        if (withLines) {
+            hasLines = true;
+            if (coveredLines != null) {
+                covered.or(coveredLines);
+            }
+            if (uncoveredLines != null) {
+                uncovered.or(uncoveredLines);
+            }
+        } else if (linesCovered > countedCovered || (countedCovered == 0 && countedUncovered == 0)) {
+            countedCovered = linesCovered;
+            countedUncovered = linesUncovered;
+        }
+    }
+
+    String classId() {
+        return classId;
+    }
+
+    String className() {
+        return className;
+    }
+
+    boolean hasLines() {
+        return hasLines;
+    }
+
+    /** The merged covered lines, or null if no record had line detail. */
+    BitSet coveredLines() {
+        return hasLines ? (BitSet) covered.clone() : null;
+    }
+
+    /** The lines no record covered, or null if no record had line detail. */
+    BitSet uncoveredLines() {
+        if (!hasLines) {
+            return null;
+        }
+        BitSet lines = (BitSet) uncovered.clone();
+        lines.andNot(covered);
+        return lines;
+    }
+
+    int linesCovered() {
+        return hasLines ? covered.cardinality() : countedCovered;
+    }
+
+    int linesUncovered() {
+        return hasLines ? uncoveredLines().cardinality() : countedUncovered;
+    }
+
+    double coveragePercent() {
+        int total = linesCovered() + linesUncovered();
+        return total > 0 ? Math.round(linesCovered() * 10000.0 / total) / 100.0 : 0;
+    }
+}
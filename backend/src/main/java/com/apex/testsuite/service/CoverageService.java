@@ -0,0 +1,207 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ClassCoverageDTO;
+import com.apex.testsuite.dto.ClassCoverageDiffDTO;
+import com.apex.testsuite.dto.CoverageDiffDTO;
+import com.apex.testsuite.dto.CoverageReportDTO;
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * True line coverage, per class and overall, from the per-line bitmaps of stored snapshots.
+ * A run's figure counts each line of a class once however many test classes covered it; the
+ * org-wide figure is the union of the org's recent runs, the way Salesforce's aggregate
+ * coverage combines every test run.
+ */
+@Service
+public class CoverageService {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final CoverageSnapshotRepository coverageSnapshotRepository;
+    private final ApexClassCatalogRepository catalogRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CoverageService(CoverageSnapshotRepository coverageSnapshotRepository,
+                           ApexClassCatalogRepository catalogRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.coverageSnapshotRepository = coverageSnapshotRepository;
+        this.catalogRepository = catalogRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public CoverageReportDTO getRunCoverage(Long runId) {
+        return report(loadRun(runId).values(), 1);
+    }
+
+    /**
+     * Compares the line coverage of two runs class by class: lines covered in head but not in
+     * base, lines covered in base but no longer in head, and lines covered in both. Classes whose
+     * coverage did not change are left out unless {@code includeUnchanged}; {@code summary} drops
+     * the line lists and keeps the counts.
+     */
+    public CoverageDiffDTO diff(Long baseRunId, Long headRunId, boolean summary, boolean includeUnchanged) {
+        Map<String, ClassLineCoverage> base = loadRun(baseRunId);
+        Map<String, ClassLineCoverage> head = loadRun(headRunId);
+        Set<String> keys = new HashSet<>(base.keySet());
+        keys.addAll(head.keySet());
+
+        long gained = 0;
+        long lost = 0;
+        List<ClassCoverageDiffDTO> classes = new ArrayList<>();
+        for (String key : keys) {
+            ClassLineCoverage before = base.get(key);
+            ClassLineCoverage after = head.get(key);
+            ClassLineCoverage either = after != null ? after : before;
+            BitSet beforeLines = before != null ? before.coveredLines() : new BitSet();
+            BitSet afterLines = after != null ? after.coveredLines() : new BitSet();
+
+            ClassCoverageDiffDTO diff;
+            if (beforeLines != null && afterLines != null) {
+                BitSet newlyCovered = (BitSet) afterLines.clone();
+                newlyCovered.andNot(beforeLines);
+                BitSet newlyUncovered = (BitSet) beforeLines.clone();
+                newlyUncovered.andNot(afterLines);
+                BitSet unchanged = (BitSet) afterLines.clone();
+                unchanged.and(beforeLines);
+                diff = new ClassCoverageDiffDTO(either.classId(), either.className(), percent(before), percent(after),
+                        newlyCovered.cardinality(), newlyUncovered.cardinality(), unchanged.cardinality(),
+                        summary ? null : newlyCovered.stream().boxed().toList(),
+                        summary ? null : newlyUncovered.stream().boxed().toList());
+            } else {
+                // A run without line detail only allows comparing counts
+                int beforeCount = before != null ? before.linesCovered() : 0;
+                int afterCount = after != null ? after.linesCovered() : 0;
+                diff = new ClassCoverageDiffDTO(either.classId(), either.className(), percent(before), percent(after),
+                        Math.max(0, afterCount - beforeCount), Math.max(0, beforeCount - afterCount),
+                        Math.min(beforeCount, afterCount), null, null);
+            }
+            gained += diff.newlyCoveredCount();
+            lost += diff.newlyUncoveredCount();
+            if (includeUnchanged || diff.newlyCoveredCount() > 0 || diff.newlyUncoveredCount() > 0
+                    || !Objects.equals(diff.baseCoveragePercent(), diff.headCoveragePercent())) {
+                classes.add(diff);
+            }
+        }
+        // Lost coverage first, the question a diff is usually asked for
+        classes.sort(Comparator.comparingInt(ClassCoverageDiffDTO::newlyUncoveredCount).reversed()
+                .thenComparing(ClassCoverageDiffDTO::className, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return new CoverageDiffDTO(baseRunId, headRunId, report(base.values(), 1).coveragePercent(),
+                report(head.values(), 1).coveragePercent(), gained, lost, classes);
+    }
+
+    private Map<String, ClassLineCoverage> loadRun(Long runId) {
+        Map<String, ClassLineCoverage> byClass = new HashMap<>();
+        for (Object[] row : coverageSnapshotRepository.findLineCoverageByTestRunId(runId)) {
+            // Older runs have one row per test class and covered class; they merge into one here
+            add(byClass, row);
+        }
+        return byClass;
+    }
+
+    private static Double percent(ClassLineCoverage coverage) {
+        return coverage != null ? coverage.coveragePercent() : null;
+    }
+
+    /**
+     * Unions the coverage of the org's completed runs of the last {@code days} days. Line numbers
+     * only line up between runs of the same version of a class, so for a class edited since,
+     * only runs after the edit count, or the latest run alone if none came after it.
+     */
+    public CoverageReportDTO getOrgCoverage(String orgId, int days) {
+        Map<String, Instant> modifiedAt = new HashMap<>();
+        for (ApexClassCatalogEntry entry : catalogRepository.findByOrgId(orgId)) {
+            if (entry.getSystemModstamp() != null) {
+                modifiedAt.put(entry.getClassId(), entry.getSystemModstamp());
+            }
+        }
+
+        Map<String, ClassLineCoverage> current = new HashMap<>();
+        // Latest run per class among those that predate the class's last edit
+        Map<String, ClassLineCoverage> stale = new HashMap<>();
+        Map<String, Long> staleRunIds = new HashMap<>();
+        Set<Long> runIds = new HashSet<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = entityManager.createQuery(
+                            "SELECT c.classId, c.className, c.linesCovered, c.linesUncovered, c.coveredLines, c.uncoveredLines, "
+                                    + "t.id, t.startedAt FROM CoverageSnapshot c JOIN c.testRun t "
+                                    + "WHERE t.orgId = :orgId AND t.status = 'COMPLETED' AND t.startedAt >= :since", Object[].class)
+                    .setParameter("orgId", orgId)
+                    .setParameter("since", LocalDateTime.now().minusDays(days))
+                    .setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE)
+                    .setHint("org.hibernate.readOnly", true)
+                    .getResultStream()) {
+                for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                    Long runId = (Long) row[6];
+                    Instant edited = row[0] != null ? modifiedAt.get((String) row[0]) : null;
+                    LocalDateTime startedAt = (LocalDateTime) row[7];
+                    if (edited == null || startedAt == null || !startedAt.atZone(ZoneId.systemDefault()).toInstant().isBefore(edited)) {
+                        add(current, row);
+                        runIds.add(runId);
+                        continue;
+                    }
+                    String key = key(row);
+                    Long latest = staleRunIds.get(key);
+                    if (latest == null || runId > latest) {
+                        staleRunIds.put(key, runId);
+                        stale.remove(key);
+                    } else if (runId < latest) {
+                        continue;
+                    }
+                    add(stale, row);
+                }
+            }
+        });
+
+        stale.forEach((key, coverage) -> {
+            if (!current.containsKey(key)) {
+                current.put(key, coverage);
+                runIds.add(staleRunIds.get(key));
+            }
+        });
+        return report(current.values(), runIds.size());
+    }
+
+    private static void add(Map<String, ClassLineCoverage> byClass, Object[] row) {
+        byClass.computeIfAbsent(key(row), k -> new ClassLineCoverage((String) row[0], (String) row[1]))
+                .add((BitSet) row[4], (BitSet) row[5], (Integer) row[2], (Integer) row[3]);
+    }
+
+    // Snapshots recorded before class ids were stored only have the name
+    private static String key(Object[] row) {
+        return row[1] != null ? ((String) row[1]).toLowerCase(Locale.ROOT) : String.valueOf(row[0]);
+    }
+
+    private static CoverageReportDTO report(Collection<ClassLineCoverage> coverage, int runCount) {
+        long covered = 0;
+        long uncovered = 0;
+        List<ClassCoverageDTO> classes = new ArrayList<>(coverage.size());
+        for (ClassLineCoverage c : coverage) {
+            int classCovered = c.linesCovered();
+            int classUncovered = c.linesUncovered();
+            covered += classCovered;
+            uncovered += classUncovered;
+            classes.add(new ClassCoverageDTO(c.classId(), c.className(), classCovered, classUncovered, c.coveragePercent()));
+        }
+        classes.sort(Comparator.comparing(ClassCoverageDTO::className, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        long total = covered + uncovered;
+        double percent = total > 0 ? Math.round(covered * 10000.0 / total) / 100.0 : 0;
+        return new CoverageReportDTO(coverage.isEmpty() ? 0 : runCount, classes.size(), covered, uncovered, percent, classes);
+    }
+}
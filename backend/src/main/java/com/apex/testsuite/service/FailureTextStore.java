@@ -0,0 +1,122 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.entity.FailureText;
+import com.apex.testsuite.repository.FailureTextRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Content-addressed store for failure messages and stack traces. Texts are normalized, hashed
+ * and written once; results keep only the hash. Recently used texts are cached by hash, which
+ * suits failures that repeat run after run.
+ */
+@Service
+public class FailureTextStore {
+
+    private final FailureTextRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, String> textsByHash = Caffeine.newBuilder()
+            .maximumWeight(32L * 1024 * 1024)
+            .<String, String>weigher((hash, text) -> text.length())
+            .build();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public FailureTextStore(FailureTextRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Makes sure every text is stored, committing new ones in their own transaction, and returns
+     * the hash of each non-blank text keyed by the text as given.
+     */
+    public Map<String, String> internAll(Collection<String> texts) {
+        Map<String, String> hashesByText = new HashMap<>();
+        Map<String, String> normalizedByHash = new HashMap<>();
+        for (String text : texts) {
+            String normalized = normalize(text);
+            if (normalized == null || hashesByText.containsKey(text)) {
+                continue;
+            }
+            String hash = hash(normalized);
+            hashesByText.put(text, hash);
+            if (textsByHash.getIfPresent(hash) == null) {
+                normalizedByHash.put(hash, normalized);
+            }
+        }
+        if (normalizedByHash.isEmpty()) {
+            return hashesByText;
+        }
+
+        // One writer at a time, so two runs hitting the same new failure cannot insert it twice
+        synchronized (this) {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> missing = new HashSet<>(normalizedByHash.keySet());
+                repository.findExistingHashes(normalizedByHash.keySet()).forEach(missing::remove);
+                for (String hash : missing) {
+                    entityManager.persist(new FailureText(hash, normalizedByHash.get(hash)));
+                }
+            });
+        }
+        normalizedByHash.forEach(textsByHash::put);
+        return hashesByText;
+    }
+
+    /** Returns the texts for the given hashes; unknown hashes are left out. */
+    public Map<String, String> resolveAll(Collection<String> hashes) {
+        Map<String, String> texts = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String hash : hashes) {
+            if (hash == null || texts.containsKey(hash)) {
+                continue;
+            }
+            String cached = textsByHash.getIfPresent(hash);
+            if (cached != null) {
+                texts.put(hash, cached);
+            } else {
+                toLoad.add(hash);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            for (FailureText loaded : repository.findAllById(toLoad)) {
+                texts.put(loaded.getHash(), loaded.getText());
+                textsByHash.put(loaded.getHash(), loaded.getText());
+            }
+        }
+        return texts;
+    }
+
+    public FailureText reference(String hash) {
+        return hash != null ? entityManager.getReference(FailureText.class, hash) : null;
+    }
+
+    // Line endings and surrounding whitespace vary between API responses for the same failure
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = text.replace("\r\n", "\n").strip();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    static String hash(String normalized) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.FlakyTestDTO;
+import com.apex.testsuite.entity.TestMethodStats;
+import com.apex.testsuite.entity.TestOutcome;
+import com.apex.testsuite.entity.TestRun;
+import com.apex.testsuite.repository.TestMethodStatsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks each test method's recent outcomes to tell flaky tests from consistently failing ones.
+ * Every method keeps its last {@code window} pass/fail outcomes as bits of a long, so applying a
+ * run's outcome is a shift plus two bit counts, and neither flip rate nor failure rate ever needs
+ * older results. A flip is a pass followed by a fail or the reverse: a test that always fails has
+ * a high failure rate but no flips, a flaky one flips often.
+ * <p>
+ * Runs of one org are applied one at a time under an in-process lock. That only holds within a
+ * single backend instance: with several instances on one database, two runs of an org finishing
+ * together can lose an update to a shared row or fail on the unique (org, class, method) key.
+ */
+@Service
+public class FlakyTestService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_WINDOW = Long.SIZE;
+
+    private final TestMethodStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Object> orgLocks = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.flaky.window:30}")
+    private int window;
+
+    @Value("${app.flaky.min-runs:5}")
+    private int defaultMinRuns;
+
+    public FlakyTestService(TestMethodStatsRepository statsRepository, PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Applies a finalized run's pass/fail outcomes; recording the same run again has no effect. */
+    public void recordRun(TestRun run) {
+        if (run.getOrgId() == null) {
+            return;
+        }
+        LocalDateTime seenAt = run.getStartedAt() != null ? run.getStartedAt() : LocalDateTime.now();
+        // Runs of one org finishing together would otherwise race on the same stats rows
+        synchronized (orgLocks.computeIfAbsent(run.getOrgId(), k -> new Object())) {
+            long afterId = 0;
+            Long next;
+            do {
+                long from = afterId;
+                next = transactionTemplate.execute(status -> applyChunk(run, from, seenAt));
+                if (next != null) {
+                    afterId = next;
+                }
+            } while (next != null);
+        }
+    }
+
+    public List<FlakyTestDTO> getFlakyTests(String orgId, Integer minRuns, int limit) {
+        int runs = minRuns != null ? minRuns : defaultMinRuns;
+        return statsRepository.findFlaky(orgId, Math.max(2, runs), Pageable.ofSize(limit)).stream()
+                .map(s -> new FlakyTestDTO(s.getClassName(), s.getMethodName(), s.getWindowSize(),
+                        s.getFailCount(), s.getFlipCount(), round(s.getFlipRate()), round(s.getFailureRate()),
+                        s.getLastOutcome() != null ? s.getLastOutcome().name() : null, s.getLastSeenAt()))
+                .toList();
+    }
+
+    // Returns the last result id of the chunk, or null once the run has been fully applied
+    private Long applyChunk(TestRun run, long afterId, LocalDateTime seenAt) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT r.id, r.className, r.methodName, r.outcome FROM TestResult r "
+                                + "WHERE r.testRun.id = :runId AND r.id > :afterId ORDER BY r.id", Object[].class)
+                .setParameter("runId", run.getId())
+                .setParameter("afterId", afterId)
+                .setMaxResults(CHUNK_SIZE)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        Set<String> classNames = new HashSet<>();
+        rows.forEach(row -> classNames.add((String) row[1]));
+        Map<String, TestMethodStats> statsByMethod = new HashMap<>();
+        for (TestMethodStats stats : statsRepository.findByOrgIdAndClassNameIn(run.getOrgId(), classNames)) {
+            statsByMethod.put(stats.getClassName() + "." + stats.getMethodName(), stats);
+        }
+
+        List<TestMethodStats> changed = new ArrayList<>();
+        for (Object[] row : rows) {
+            TestOutcome outcome = (TestOutcome) row[3];
+            // Skipped tests and compile failures say nothing about flakiness
+            if (outcome != TestOutcome.PASS && outcome != TestOutcome.FAIL) {
+                continue;
+            }
+            String className = (String) row[1];
+            String methodName = (String) row[2];
+            TestMethodStats stats = statsByMethod.computeIfAbsent(className + "." + methodName, key -> {
+                TestMethodStats created = new TestMethodStats();
+                created.setOrgId(run.getOrgId());
+                created.setClassName(className);
+                created.setMethodName(methodName);
+                return created;
+            });
+            if (run.getId().equals(stats.getLastRunId())) {
+                continue;
+            }
+            apply(stats, outcome, window);
+            stats.setLastRunId(run.getId());
+            stats.setLastSeenAt(seenAt);
+            changed.add(stats);
+        }
+        statsRepository.saveAll(changed);
+        entityManager.flush();
+        entityManager.clear();
+        return (Long) rows.get(rows.size() - 1)[0];
+    }
+
+    static void apply(TestMethodStats stats, TestOutcome outcome, int window) {
+        int size = Math.min(window, MAX_WINDOW);
+        boolean failed = outcome == TestOutcome.FAIL;
+        long bits = (stats.getOutcomeWindow() << 1) | (failed ? 1 : 0);
+        int windowSize = Math.min(stats.getWindowSize() + 1, size);
+        bits &= mask(windowSize);
+
+        int fails = Long.bitCount(bits);
+        // Adjacent outcomes that differ, among the windowSize - 1 neighbouring pairs
+        int flips = windowSize > 1 ? Long.bitCount((bits ^ (bits >>> 1)) & mask(windowSize - 1)) : 0;
+
+        stats.setOutcomeWindow(bits);
+        stats.setWindowSize(windowSize);
+        stats.setFailCount(fails);
+        stats.setFlipCount(flips);
+        stats.setFailureRate((double) fails / windowSize);
+        stats.setFlipRate(windowSize > 1 ? (double) flips / (windowSize - 1) : 0);
+        stats.setTotalRuns(stats.getTotalRuns() + 1);
+        stats.setTotalFailures(stats.getTotalFailures() + (failed ? 1 : 0));
+        stats.setLastOutcome(outcome);
+    }
+
+    private static long mask(int bits) {
+        return bits >= Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000.0) / 10000.0;
+    }
+}
@@ -9,8 +9,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -18,13 +18,21 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
-
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OAuth login and token handling for any number of concurrent logins, each its own session in
+ * the {@link SalesforceSessionRegistry}. Every method acts on the session of the current request
+ * or binding, as resolved by {@link SalesforceSessionResolver}.
+ */
 @Service
 public class SalesforceAuthService {
 
     private static final Logger log = LoggerFactory.getLogger(SalesforceAuthService.class);
+    // Activity is persisted at most this often per session; the in-memory timestamp is always exact
+    private static final long ACTIVITY_PERSIST_INTERVAL_MS = 60_000;
 
     @Value("${salesforce.client-id}")
     private String clientId;
@@ -43,49 +51,46 @@ public class SalesforceAuthService {
 
     private final AuthSessionRepository sessionRepository;
     private final TokenEncryptionService encryptionService;
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    // In-memory cache of current session
-    private String accessToken;
-    private String refreshToken;
-    private String instanceUrl;
-    private Instant lastActivityTime;
+    private final RestTemplate restTemplate;
+    private final SalesforceSessionRegistry registry;
+    private final SalesforceSessionResolver sessionResolver;
+    private final Map<String, Long> lastPersistedActivity = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<SalesforceSession>> refreshes = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<UserInfoResponse>> identityLoads = new ConcurrentHashMap<>();
 
     public SalesforceAuthService(AuthSessionRepository sessionRepository,
-                                 TokenEncryptionService encryptionService) {
+                                 TokenEncryptionService encryptionService,
+                                 RestTemplate salesforceRestTemplate,
+                                 SalesforceSessionRegistry registry,
+                                 SalesforceSessionResolver sessionResolver) {
         this.sessionRepository = sessionRepository;
         this.encryptionService = encryptionService;
+        this.restTemplate = salesforceRestTemplate;
+        this.registry = registry;
+        this.sessionResolver = sessionResolver;
     }
 
     @PostConstruct
-    public void loadSessionFromDb() {
+    public void loadSessionsFromDb() {
         try {
-        sessionRepository.findTopByOrderByLastActivityAtDesc().ifPresent(session -> {
-            Instant lastActivity = session.getLastActivityAt();
-            long minutesSinceActivity = Duration.between(lastActivity, Instant.now()).toMinutes();
-
-            if (minutesSinceActivity >= inactivityTimeoutMinutes) {
-                log.info("Stored session expired ({} min inactive, limit {}). Clearing.",
-                        minutesSinceActivity, inactivityTimeoutMinutes);
-                clearSession();
-                return;
+            int dropped = sessionRepository.deleteStale(Instant.now().minus(inactivityTimeout()));
+            if (dropped > 0) {
+                log.info("Cleared {} expired or pre-upgrade stored sessions", dropped);
             }
-
-            // Restore tokens from DB
-            this.accessToken = encryptionService.decrypt(session.getEncryptedAccessToken());
-            this.refreshToken = encryptionService.decrypt(session.getEncryptedRefreshToken());
-            this.instanceUrl = session.getInstanceUrl();
-            this.lastActivityTime = lastActivity;
-
-            if (this.accessToken != null) {
-                log.info("Restored session from DB for org {} (last active {} min ago)",
-                        session.getOrgId(), minutesSinceActivity);
-                // Proactively refresh access token since it may have expired
-                tryRefreshToken();
+            for (AuthSession stored : sessionRepository.findBySessionKeyNotNull()) {
+                String accessToken = encryptionService.decrypt(stored.getEncryptedAccessToken());
+                if (accessToken == null) {
+                    continue;
+                }
+                SalesforceSession session = new SalesforceSession(stored.getSessionKey(), accessToken,
+                        encryptionService.decrypt(stored.getEncryptedRefreshToken()), stored.getInstanceUrl(),
+                        storedIdentity(stored));
+                // An access token that expired meanwhile is refreshed on its first rejected call
+                registry.register(session, stored.getLastActivityAt().toEpochMilli());
             }
-        });
+            log.info("Restored {} sessions from DB", registry.all().size());
         } catch (Exception e) {
-            log.warn("Could not load session from DB on startup (first run?): {}", e.getMessage());
+            log.warn("Could not load sessions from DB on startup (first run?): {}", e.getMessage());
         }
     }
 
@@ -96,9 +101,12 @@ public class SalesforceAuthService {
                 + "&redirect_uri=" + URLEncoder.encode(redirectUri, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Completes a login as a new session and returns the value of the session cookie that
+     * identifies it. The cookie value is not stored; the session id is its hash.
+     */
     @SuppressWarnings("unchecked")
-    @Transactional
-    public void exchangeCodeForToken(String authorizationCode) {
+    public String exchangeCodeForToken(String authorizationCode) {
         String tokenUrl = loginUrl + "/services/oauth2/token";
 
         String body = "grant_type=authorization_code"
@@ -112,27 +120,70 @@ public class SalesforceAuthService {
 
         HttpEntity<String> request = new HttpEntity<>(body, headers);
         Map<String, Object> response = restTemplate.postForObject(tokenUrl, request, Map.class);
+        if (response == null || response.get("access_token") == null) {
+            throw new AuthenticationRequiredException("Salesforce did not return an access token.");
+        }
 
-        if (response != null) {
-            this.accessToken = (String) response.get("access_token");
-            this.refreshToken = (String) response.get("refresh_token");
-            this.instanceUrl = (String) response.get("instance_url");
-            this.lastActivityTime = Instant.now();
-            log.info("Successfully authenticated with Salesforce at {}", instanceUrl);
-            persistSession();
+        String cookieValue = SalesforceSessionResolver.newCookieValue();
+        SalesforceSession session = new SalesforceSession(SalesforceSessionResolver.sessionIdOf(cookieValue),
+                (String) response.get("access_token"), (String) response.get("refresh_token"),
+                (String) response.get("instance_url"), null);
+        // Which org and user the session belongs to, read once here instead of on every request
+        try {
+            session = session.withIdentity(toIdentity(fetchUserInfo(session)));
+        } catch (RestClientException e) {
+            log.debug("Could not fetch user info for new session: {}", e.getMessage());
         }
+        registry.register(session, System.currentTimeMillis());
+        persistSession(session, true);
+        log.info("Successfully authenticated with Salesforce at {} (org {})", session.instanceUrl(), session.orgId());
+        return cookieValue;
     }
 
+    /**
+     * Gets a new access token for the current session after Salesforce rejected
+     * {@code rejectedAccessToken}, and returns the session to retry with. One refresh per
+     * session is in flight at a time: callers arriving during it wait for its result, and
+     * callers whose token was already replaced get the new one without another refresh.
+     * Empty if there is no session or it cannot be refreshed.
+     */
+    public Optional<SalesforceSession> refreshRejected(String rejectedAccessToken) {
+        String sessionId = sessionResolver.currentSessionId();
+        Optional<SalesforceSession> current = registry.get(sessionId);
+        if (current.isEmpty() || !current.get().accessToken().equals(rejectedAccessToken)) {
+            return current;
+        }
+
+        CompletableFuture<SalesforceSession> refresh = new CompletableFuture<>();
+        CompletableFuture<SalesforceSession> inFlight = refreshes.putIfAbsent(sessionId, refresh);
+        if (inFlight != null) {
+            return Optional.ofNullable(inFlight.join());
+        }
+        SalesforceSession result = null;
+        try {
+            // Another refresh may have finished between the check above and claiming this one
+            SalesforceSession latest = registry.get(sessionId).orElse(null);
+            if (latest != null) {
+                result = latest.accessToken().equals(rejectedAccessToken) ? refresh(latest) : latest;
+            }
+            return Optional.ofNullable(result);
+        } finally {
+            refreshes.remove(sessionId, refresh);
+            refresh.complete(result);
+        }
+    }
+
+    // Returns the refreshed session, or null if it could not be refreshed
     @SuppressWarnings("unchecked")
-    public boolean tryRefreshToken() {
-        if (refreshToken == null || refreshToken.isEmpty()) {
-            return false;
+    private SalesforceSession refresh(SalesforceSession session) {
+        if (session.refreshToken() == null || session.refreshToken().isEmpty()) {
+            return null;
         }
 
         try {
             String tokenUrl = loginUrl + "/services/oauth2/token";
             String body = "grant_type=refresh_token"
-                    + "&refresh_token=" + URLEncoder.encode(refreshToken, StandardCharsets.UTF_8)
+                    + "&refresh_token=" + URLEncoder.encode(session.refreshToken(), StandardCharsets.UTF_8)
                     + "&client_id=" + URLEncoder.encode(clientId, StandardCharsets.UTF_8)
                     + "&client_secret=" + URLEncoder.encode(clientSecret, StandardCharsets.UTF_8);
 
@@ -143,169 +194,236 @@ public class SalesforceAuthService {
             Map<String, Object> response = restTemplate.postForObject(tokenUrl, request, Map.class);
 
             if (response != null && response.containsKey("access_token")) {
-                this.accessToken = (String) response.get("access_token");
-                if (response.containsKey("instance_url")) {
-                    this.instanceUrl = (String) response.get("instance_url");
+                SalesforceSession refreshed = session.withAccessToken(
+                        (String) response.get("access_token"), (String) response.get("instance_url"));
+                if (!registry.replace(session, refreshed)) {
+                    // Logged out in the meantime
+                    return registry.get(session.id()).orElse(null);
                 }
-                this.lastActivityTime = Instant.now();
-                persistSession();
-                log.info("Successfully refreshed Salesforce access token");
-                return true;
+                persistSession(refreshed, false);
+                log.info("Successfully refreshed Salesforce access token for org {}", session.orgId());
+                return refreshed;
             }
         } catch (RestClientException e) {
             log.warn("Failed to refresh token: {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 
     public void touchActivity() {
-        if (isTokenPresent()) {
-            this.lastActivityTime = Instant.now();
-            updateLastActivity();
+        String sessionId = sessionResolver.currentSessionId();
+        if (sessionId == null || registry.get(sessionId).isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        registry.touch(sessionId, now);
+        Long persisted = lastPersistedActivity.get(sessionId);
+        if (persisted == null || now - persisted >= ACTIVITY_PERSIST_INTERVAL_MS) {
+            lastPersistedActivity.put(sessionId, now);
+            sessionRepository.updateLastActivity(sessionId, Instant.ofEpochMilli(now));
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> getUserInfo() {
-        requireConnected();
-
-        String url = instanceUrl + "/services/oauth2/userinfo";
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(accessToken);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+    /**
+     * The user and org of the current session. Read from Salesforce at login and then served
+     * from the session; a token refresh keeps it, since a refresh token stays with its user and
+     * org. {@link #invalidateIdentity} makes the next call read it again.
+     */
+    public UserInfoResponse getIdentity() {
+        SalesforceSession session = requireConnected();
+        touchActivity();
+        return session.identity() != null ? session.identity() : loadIdentity(session);
+    }
 
-        try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
-            touchActivity();
-            return response.getBody();
-        } catch (RestClientException e) {
-            // Access token may have expired — try refresh
-            if (tryRefreshToken()) {
-                headers.setBearerAuth(accessToken);
-                ResponseEntity<Map> response = restTemplate.exchange(
-                        url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
-                touchActivity();
-                return response.getBody();
-            }
-            throw new AuthenticationRequiredException("Session expired. Please log in again.");
+    /** Forgets the current session's identity, e.g. after the org or user was renamed. */
+    public void invalidateIdentity() {
+        String sessionId = sessionResolver.currentSessionId();
+        Optional<SalesforceSession> session = registry.get(sessionId);
+        while (session.isPresent() && session.get().identity() != null
+                && !registry.replace(session.get(), session.get().withIdentity(null))) {
+            session = registry.get(sessionId);
         }
     }
 
-    public UserInfoResponse getUserInfoResponse() {
-        Map<String, Object> info = getUserInfo();
-        return new UserInfoResponse(
-                (String) info.getOrDefault("name", ""),
-                (String) info.getOrDefault("email", ""),
-                (String) info.getOrDefault("preferred_username", ""),
-                (String) info.getOrDefault("organization_id", ""),
-                (String) info.getOrDefault("organization_name", "")
-        );
+    /** The org of the current session, or "unknown" if there is none or it cannot be read. */
+    public String getCurrentOrgId() {
+        try {
+            // Not user activity: background work asks for the org too
+            SalesforceSession session = requireConnected();
+            String orgId = (session.identity() != null ? session.identity() : loadIdentity(session)).orgId();
+            return orgId != null && !orgId.isEmpty() ? orgId : "unknown";
+        } catch (Exception e) {
+            return "unknown";
+        }
     }
 
-    @Transactional
+    /** Ends the current session only; other logins are unaffected. */
     public void logout() {
-        if (accessToken != null && instanceUrl != null) {
+        Optional<SalesforceSession> current = sessionResolver.current();
+        if (current.isEmpty()) {
+            return;
+        }
+        SalesforceSession session = current.get();
+        if (session.accessToken() != null && session.instanceUrl() != null) {
             try {
                 String revokeUrl = loginUrl + "/services/oauth2/revoke?token="
-                        + URLEncoder.encode(accessToken, StandardCharsets.UTF_8);
+                        + URLEncoder.encode(session.accessToken(), StandardCharsets.UTF_8);
                 restTemplate.getForObject(revokeUrl, String.class);
             } catch (Exception e) {
                 log.warn("Error revoking token: {}", e.getMessage());
             }
         }
-        clearSession();
-        log.info("Logged out from Salesforce");
+        clearSession(session.id());
+        log.info("Logged out from Salesforce (org {})", session.orgId());
     }
 
     public boolean isConnected() {
-        if (!isTokenPresent()) {
+        String sessionId = sessionResolver.currentSessionId();
+        if (registry.get(sessionId).isEmpty()) {
             return false;
         }
-        // Check inactivity timeout
-        if (lastActivityTime != null) {
-            long minutesSinceActivity = Duration.between(lastActivityTime, Instant.now()).toMinutes();
-            if (minutesSinceActivity >= inactivityTimeoutMinutes) {
-                log.info("Session expired: {} min inactive (limit {} min)",
-                        minutesSinceActivity, inactivityTimeoutMinutes);
-                clearSession();
-                return false;
-            }
+        if (isExpired(sessionId, System.currentTimeMillis())) {
+            log.info("Session expired: inactive for over {} min", inactivityTimeoutMinutes);
+            clearSession(sessionId);
+            return false;
         }
         return true;
     }
 
-    public String getAccessToken() {
-        return accessToken;
-    }
-
-    public String getInstanceUrl() {
-        return instanceUrl;
+    /** Sessions that have not timed out, e.g. for background work done on behalf of each org. */
+    public List<SalesforceSession> getActiveSessions() {
+        long now = System.currentTimeMillis();
+        return registry.all().stream().filter(s -> !isExpired(s.id(), now)).toList();
     }
 
     public String getApiVersion() {
         return "v59.0";
     }
 
-    // --- Private helpers ---
-
-    private boolean isTokenPresent() {
-        return accessToken != null && !accessToken.isEmpty();
+    @Scheduled(fixedDelayString = "${app.session.sweep-interval:PT10M}")
+    public void evictExpiredSessions() {
+        long now = System.currentTimeMillis();
+        for (SalesforceSession session : registry.all()) {
+            if (isExpired(session.id(), now)) {
+                clearSession(session.id());
+            }
+        }
     }
 
-    private void requireConnected() {
+    // --- Private helpers ---
+
+    private SalesforceSession requireConnected() {
         if (!isConnected()) {
             throw new AuthenticationRequiredException("Not connected to Salesforce. Please log in.");
         }
+        return sessionResolver.require();
     }
 
-    @Transactional
-    void persistSession() {
-        // Clear old sessions and store new one
-        sessionRepository.deleteAll();
+    private boolean isExpired(String sessionId, long nowMs) {
+        long lastActivity = registry.lastActivity(sessionId);
+        return lastActivity >= 0 && nowMs - lastActivity >= inactivityTimeout().toMillis();
+    }
 
-        AuthSession session = new AuthSession();
-        session.setEncryptedAccessToken(encryptionService.encrypt(accessToken));
-        session.setEncryptedRefreshToken(encryptionService.encrypt(refreshToken));
-        session.setInstanceUrl(instanceUrl);
-        session.setCreatedAt(Instant.now());
-        session.setLastActivityAt(Instant.now());
+    private Duration inactivityTimeout() {
+        return Duration.ofMinutes(inactivityTimeoutMinutes);
+    }
 
-        // Try to get org info for the record
+    // Concurrent first reads of one session share a single userinfo call
+    private UserInfoResponse loadIdentity(SalesforceSession session) {
+        CompletableFuture<UserInfoResponse> load = new CompletableFuture<>();
+        CompletableFuture<UserInfoResponse> inFlight = identityLoads.putIfAbsent(session.id(), load);
+        if (inFlight != null) {
+            UserInfoResponse identity = inFlight.join();
+            if (identity == null) {
+                throw new AuthenticationRequiredException("Session expired. Please log in again.");
+            }
+            return identity;
+        }
+        UserInfoResponse identity = null;
         try {
-            String url = instanceUrl + "/services/oauth2/userinfo";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
-            @SuppressWarnings("unchecked")
-            Map<String, Object> info = restTemplate.exchange(
-                    url, HttpMethod.GET, new HttpEntity<>(headers), Map.class).getBody();
-            if (info != null) {
-                session.setOrgId((String) info.get("organization_id"));
-                session.setUsername((String) info.get("preferred_username"));
+            // An expired access token has already been refreshed and retried by SessionRefreshInterceptor
+            identity = toIdentity(fetchUserInfo(session));
+            SalesforceSession current = registry.get(session.id()).orElse(null);
+            while (current != null && current.identity() == null
+                    && !registry.replace(current, current.withIdentity(identity))) {
+                current = registry.get(session.id()).orElse(null);
             }
-        } catch (Exception e) {
-            log.debug("Could not fetch user info for session record: {}", e.getMessage());
+            persistIdentity(session.id(), identity);
+            return identity;
+        } catch (RestClientException e) {
+            throw new AuthenticationRequiredException("Session expired. Please log in again.");
+        } finally {
+            identityLoads.remove(session.id(), load);
+            load.complete(identity);
         }
+    }
+
+    private static UserInfoResponse toIdentity(Map<String, Object> info) {
+        Map<String, Object> values = info != null ? info : Map.of();
+        return new UserInfoResponse(
+                (String) values.getOrDefault("name", ""),
+                (String) values.getOrDefault("email", ""),
+                (String) values.getOrDefault("preferred_username", ""),
+                (String) values.getOrDefault("organization_id", ""),
+                (String) values.getOrDefault("organization_name", "")
+        );
+    }
 
-        sessionRepository.save(session);
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fetchUserInfo(SalesforceSession session) {
+        String url = session.instanceUrl() + "/services/oauth2/userinfo";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(session.accessToken());
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Map.class).getBody();
+    }
+
+    private void persistSession(SalesforceSession session, boolean created) {
+        AuthSession stored = sessionRepository.findBySessionKey(session.id()).orElseGet(AuthSession::new);
+        stored.setSessionKey(session.id());
+        stored.setEncryptedAccessToken(encryptionService.encrypt(session.accessToken()));
+        stored.setEncryptedRefreshToken(encryptionService.encrypt(session.refreshToken()));
+        stored.setInstanceUrl(session.instanceUrl());
+        if (session.identity() != null) {
+            storeIdentity(stored, session.identity());
+        }
+        if (created || stored.getCreatedAt() == null) {
+            stored.setCreatedAt(Instant.now());
+        }
+        stored.setLastActivityAt(Instant.now());
+        sessionRepository.save(stored);
         log.debug("Session persisted to DB");
     }
 
-    private void updateLastActivity() {
-        sessionRepository.findTopByOrderByLastActivityAtDesc().ifPresent(session -> {
-            session.setLastActivityAt(Instant.now());
-            sessionRepository.save(session);
+    private void persistIdentity(String sessionId, UserInfoResponse identity) {
+        sessionRepository.findBySessionKey(sessionId).ifPresent(stored -> {
+            storeIdentity(stored, identity);
+            sessionRepository.save(stored);
         });
     }
 
-    @Transactional
-    void clearSession() {
-        this.accessToken = null;
-        this.refreshToken = null;
-        this.instanceUrl = null;
-        this.lastActivityTime = null;
-        sessionRepository.deleteAll();
+    private static void storeIdentity(AuthSession stored, UserInfoResponse identity) {
+        stored.setOrgId(identity.orgId());
+        stored.setOrgName(identity.orgName());
+        stored.setUsername(identity.username());
+        stored.setDisplayName(identity.displayName());
+        stored.setEmail(identity.email());
+    }
+
+    // Null if the row never had its identity stored, or was stored before org_name existed;
+    // the identity is then read again on first use
+    private static UserInfoResponse storedIdentity(AuthSession stored) {
+        if (stored.getOrgId() == null || stored.getOrgName() == null) {
+            return null;
+        }
+        return new UserInfoResponse(stored.getDisplayName(), stored.getEmail(), stored.getUsername(),
+                stored.getOrgId(), stored.getOrgName());
+    }
+
+    private void clearSession(String sessionId) {
+        registry.remove(sessionId);
+        lastPersistedActivity.remove(sessionId);
+        sessionRepository.deleteBySessionKey(sessionId);
     }
 }
@@ -0,0 +1,32 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.UserInfoResponse;
+
+/**
+ * The tokens of one login, never modified in place: a refresh registers a new snapshot. A
+ * caller that took a snapshot therefore always pairs an access token with the instance URL it
+ * was issued for, even while another thread refreshes the session. {@code identity} is the
+ * user and org the login belongs to, captured once; null until it has been read.
+ */
+public record SalesforceSession(
+        String id,
+        String accessToken,
+        String refreshToken,
+        String instanceUrl,
+        UserInfoResponse identity
+) {
+
+    /** The org id, or null while the identity is unknown. */
+    public String orgId() {
+        return identity != null ? identity.orgId() : null;
+    }
+
+    SalesforceSession withAccessToken(String accessToken, String instanceUrl) {
+        return new SalesforceSession(id, accessToken, refreshToken,
+                instanceUrl != null ? instanceUrl : this.instanceUrl, identity);
+    }
+
+    SalesforceSession withIdentity(UserInfoResponse identity) {
+        return new SalesforceSession(id, accessToken, refreshToken, instanceUrl, identity);
+    }
+}
@@ -0,0 +1,69 @@
+package com.apex.testsuite.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Every live login of this instance, keyed by session id. Reads are a map lookup and a volatile
+ * read, so the request path never takes a lock; token changes swap in a new immutable
+ * {@link SalesforceSession}, and activity is a timestamp kept next to it.
+ */
+@Component
+public class SalesforceSessionRegistry {
+
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+    public Optional<SalesforceSession> get(String sessionId) {
+        Entry entry = sessionId != null ? sessions.get(sessionId) : null;
+        return entry != null ? Optional.of(entry.session.get()) : Optional.empty();
+    }
+
+    public void register(SalesforceSession session, long lastActivityMs) {
+        sessions.put(session.id(), new Entry(session, lastActivityMs));
+    }
+
+    /**
+     * Replaces {@code expected} with {@code updated}; false if the session was removed or
+     * changed since {@code expected} was read.
+     */
+    public boolean replace(SalesforceSession expected, SalesforceSession updated) {
+        Entry entry = sessions.get(expected.id());
+        return entry != null && entry.session.compareAndSet(expected, updated);
+    }
+
+    public void touch(String sessionId, long nowMs) {
+        Entry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.lastActivityMs = nowMs;
+        }
+    }
+
+    /** Last activity in epoch milliseconds, or -1 for an unknown session. */
+    public long lastActivity(String sessionId) {
+        Entry entry = sessionId != null ? sessions.get(sessionId) : null;
+        return entry != null ? entry.lastActivityMs : -1;
+    }
+
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public Collection<SalesforceSession> all() {
+        return sessions.values().stream().map(e -> e.session.get()).toList();
+    }
+
+    private static final class Entry {
+        final AtomicReference<SalesforceSession> session;
+        volatile long lastActivityMs;
+
+        Entry(SalesforceSession session, long lastActivityMs) {
+            this.session = new AtomicReference<>(session);
+            this.lastActivityMs = lastActivityMs;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.exception.AuthenticationRequiredException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Finds the Salesforce session the current work acts for. Inside an HTTP request that is the
+ * session named by the request's session cookie, resolved once per request. Work outside a
+ * request, such as polling and ingesting a run, binds the session that started it with
+ * {@link #runAs} or {@link #callAs}; a binding takes precedence over the request.
+ */
+@Component
+public class SalesforceSessionResolver {
+
+    public static final String COOKIE_NAME = "APEX_SESSION";
+    private static final String REQUEST_ATTRIBUTE = SalesforceSessionResolver.class.getName() + ".sessionId";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SalesforceSessionRegistry registry;
+    private final ThreadLocal<String> boundSessionId = new ThreadLocal<>();
+
+    public SalesforceSessionResolver(SalesforceSessionRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** The id of the session the current thread or request acts for, or null if there is none. */
+    public String currentSessionId() {
+        String bound = boundSessionId.get();
+        if (bound != null) {
+            return bound;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached == null) {
+            Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+            // "" marks a request without a session so the cookie is not looked up again
+            cached = cookie != null && !cookie.getValue().isEmpty() ? sessionIdOf(cookie.getValue()) : "";
+            request.setAttribute(REQUEST_ATTRIBUTE, cached);
+        }
+        return ((String) cached).isEmpty() ? null : (String) cached;
+    }
+
+    public Optional<SalesforceSession> current() {
+        return registry.get(currentSessionId());
+    }
+
+    public SalesforceSession require() {
+        return current().orElseThrow(() ->
+                new AuthenticationRequiredException("Not connected to Salesforce. Please authenticate first."));
+    }
+
+    public void runAs(String sessionId, Runnable task) {
+        callAs(sessionId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public <T> T callAs(String sessionId, Supplier<T> task) {
+        String previous = boundSessionId.get();
+        boundSessionId.set(sessionId);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                boundSessionId.set(previous);
+            } else {
+                boundSessionId.remove();
+            }
+        }
+    }
+
+    /** Wraps {@code task} to run bound to the session current where it was wrapped, if any. */
+    public Runnable propagate(Runnable task) {
+        String sessionId = currentSessionId();
+        return sessionId != null ? () -> runAs(sessionId, task) : task;
+    }
+
+    /** A new random cookie value; only its hash is kept on the server. */
+    static String newCookieValue() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** The session id for a cookie value: its SHA-256, so a leaked database row cannot be replayed as a cookie. */
+    public static String sessionIdOf(String cookieValue) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(cookieValue.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -5,36 +5,79 @@ import com.apex.testsuite.exception.AuthenticationRequiredException;
 import com.apex.testsuite.exception.SalesforceApiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class SalesforceToolingService {
 
     private static final Logger log = LoggerFactory.getLogger(SalesforceToolingService.class);
     private static final String API_VERSION = "v59.0";
+    // Keeps each batched ParentJobId IN (...) query well inside SOQL and URL length limits
+    private static final int QUEUE_BATCH_SIZE = 200;
+    private static final Set<String> ABORTABLE_QUEUE_STATUSES = Set.of("Holding", "Queued", "Preparing");
+    private static final DateTimeFormatter SOQL_DATETIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
 
     private final SalesforceAuthService authService;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final SalesforceSessionResolver sessionResolver;
+    private final RestTemplate restTemplate;
+    private final Executor prefetchExecutor;
 
-    public SalesforceToolingService(SalesforceAuthService authService) {
+    public SalesforceToolingService(SalesforceAuthService authService,
+                                    SalesforceSessionResolver sessionResolver,
+                                    RestTemplate salesforceRestTemplate,
+                                    @Qualifier("toolingPrefetchExecutor") Executor prefetchExecutor) {
         this.authService = authService;
+        this.sessionResolver = sessionResolver;
+        this.restTemplate = salesforceRestTemplate;
+        this.prefetchExecutor = prefetchExecutor;
     }
 
-    @SuppressWarnings("unchecked")
+    // Returns only the first batch of records; use streamToolingQuery for results that may span pages
     public Map<String, Object> queryToolingApi(String soql) {
-        requireAuth();
-        String url = authService.getInstanceUrl()
+        return queryToolingApi(requireSession(), soql);
+    }
+
+    private Map<String, Object> queryToolingApi(SalesforceSession session, String soql) {
+        String url = session.instanceUrl()
                 + "/services/data/" + API_VERSION + "/tooling/query?q="
                 + soql.replace(" ", "+");
+        return getToolingResource(session, url);
+    }
 
+    /**
+     * Streams every record of a query, following {@code nextRecordsUrl} and prefetching the next
+     * page while the current one is consumed. Close the stream if it is not fully consumed.
+     */
+    public Stream<Map<String, Object>> streamToolingQuery(String soql) {
+        SalesforceSession session = requireSession();
+        Map<String, Object> firstPage = queryToolingApi(session, soql);
+        // Later pages use the session's latest token, in case it was refreshed meanwhile
+        ToolingQueryCursor cursor = new ToolingQueryCursor(firstPage, nextRecordsUrl -> {
+            SalesforceSession latest = sessionResolver.current().orElse(session);
+            return getToolingResource(latest, latest.instanceUrl() + nextRecordsUrl);
+        }, prefetchExecutor);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getToolingResource(SalesforceSession session, String url) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(authService.getAccessToken());
+        headers.setBearerAuth(session.accessToken());
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
 
         try {
@@ -46,64 +89,31 @@ public class SalesforceToolingService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    @Cacheable(value = "testClasses", key = "'all'")
-    public List<ApexTestClassDTO> getTestClasses() {
-        // Body can't be filtered in WHERE — select it and filter in Java
-        String soql = "SELECT Id, Name, NamespacePrefix, Body FROM ApexClass "
-                + "WHERE Status = 'Active' ORDER BY Name";
-        Map<String, Object> result = queryToolingApi(soql);
-        List<Map<String, Object>> records = (List<Map<String, Object>>) result.get("records");
-        if (records == null) return List.of();
-
-        return records.stream()
-                .filter(r -> {
-                    String body = (String) r.get("Body");
-                    if (body == null) return false;
-                    String lower = body.toLowerCase();
-                    return lower.contains("@istest") || lower.contains("testmethod");
-                })
-                .map(r -> new ApexTestClassDTO(
-                        (String) r.get("Id"),
-                        (String) r.get("Name"),
-                        (String) r.get("NamespacePrefix")
-                ))
-                .toList();
-    }
-
-    @SuppressWarnings("unchecked")
-    @Cacheable(value = "orgStats", key = "'stats'")
-    public OrgStatsDTO getOrgStats() {
-        String totalSoql = "SELECT COUNT() FROM ApexClass WHERE Status = 'Active'";
-        Map<String, Object> totalResult = queryToolingApi(totalSoql);
-        int totalClasses = totalResult.get("size") != null ? ((Number) totalResult.get("size")).intValue() : 0;
-
-        List<ApexTestClassDTO> testClasses = getTestClasses();
-        String orgName = "";
-        try {
-            Map<String, Object> userInfo = authService.getUserInfo();
-            if (userInfo != null) {
-                orgName = (String) userInfo.getOrDefault("organization_name", "");
-            }
-        } catch (Exception e) {
-            log.warn("Could not fetch org name: {}", e.getMessage());
-        }
-
-        return new OrgStatsDTO(totalClasses, testClasses.size(), orgName);
+    public String runTestsAsync(List<String> classIds) {
+        return runTestsAsync(classIds, false, null);
     }
 
-    @SuppressWarnings("unchecked")
-    public String runTestsAsync(List<String> classIds) {
-        requireAuth();
-        String url = authService.getInstanceUrl()
+    /**
+     * Starts an async run. {@code skipCodeCoverage} saves Salesforce the coverage bookkeeping;
+     * {@code maxFailedTests}, when set, makes Salesforce stop the run once more tests than that fail.
+     */
+    public String runTestsAsync(List<String> classIds, boolean skipCodeCoverage, Integer maxFailedTests) {
+        SalesforceSession session = requireSession();
+        String url = session.instanceUrl()
                 + "/services/data/" + API_VERSION + "/tooling/runTestsAsynchronous";
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(authService.getAccessToken());
+        headers.setBearerAuth(session.accessToken());
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         Map<String, Object> body = new HashMap<>();
         body.put("classids", String.join(",", classIds));
+        if (skipCodeCoverage) {
+            body.put("skipCodeCoverage", true);
+        }
+        if (maxFailedTests != null) {
+            body.put("maxFailedTests", maxFailedTests);
+        }
 
         try {
             ResponseEntity<String> response = restTemplate.exchange(
@@ -118,66 +128,201 @@ public class SalesforceToolingService {
         }
     }
 
+    /**
+     * Aborts the queue items of a run that have not started yet; items already running finish.
+     * Returns the number of items aborted.
+     */
     @SuppressWarnings("unchecked")
+    public int abortTestRun(String testRunId) {
+        List<Map<String, Object>> items = (List<Map<String, Object>>) getTestQueueStatus(testRunId).get("records");
+        SalesforceSession session = requireSession();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(session.accessToken());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> abort = new HttpEntity<>(Map.of("Status", "Aborted"), headers);
+
+        int aborted = 0;
+        for (Map<String, Object> item : items) {
+            if (!ABORTABLE_QUEUE_STATUSES.contains((String) item.get("Status"))) {
+                continue;
+            }
+            String url = session.instanceUrl() + "/services/data/" + API_VERSION
+                    + "/tooling/sobjects/ApexTestQueueItem/" + item.get("Id");
+            try {
+                restTemplate.exchange(url, HttpMethod.PATCH, abort, Void.class);
+                aborted++;
+            } catch (RestClientException e) {
+                // The item most likely started in the meantime
+                log.debug("Could not abort queue item {}: {}", item.get("Id"), e.getMessage());
+            }
+        }
+        return aborted;
+    }
+
     public Map<String, Object> getTestQueueStatus(String testRunId) {
         String soql = "SELECT Id, Status, ApexClassId, TestRunResultId "
                 + "FROM ApexTestQueueItem WHERE ParentJobId = '" + testRunId + "'";
-        return queryToolingApi(soql);
+        List<Map<String, Object>> records;
+        try (Stream<Map<String, Object>> stream = streamToolingQuery(soql)) {
+            records = stream.toList();
+        }
+        return Map.of("records", records, "totalSize", records.size(), "done", true);
+    }
+
+    /**
+     * Fetches the queue items of many runs with one {@code ParentJobId IN (...)} query per chunk and
+     * returns them keyed by the given run id. Ids are matched on their 15-character prefix because
+     * {@code runTestsAsynchronous} and {@code ParentJobId} do not always use the same id form.
+     */
+    public Map<String, List<Map<String, Object>>> getTestQueueStatuses(Collection<String> testRunIds) {
+        Map<String, String> runIdsByKey = new HashMap<>();
+        Map<String, List<Map<String, Object>>> recordsByRunId = new HashMap<>();
+        for (String testRunId : testRunIds) {
+            runIdsByKey.put(jobKey(testRunId), testRunId);
+            recordsByRunId.put(testRunId, new ArrayList<>());
+        }
+
+        List<String> ids = new ArrayList<>(testRunIds);
+        for (int from = 0; from < ids.size(); from += QUEUE_BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + QUEUE_BATCH_SIZE));
+            String soql = "SELECT Id, Status, ApexClassId, ParentJobId, TestRunResultId "
+                    + "FROM ApexTestQueueItem WHERE ParentJobId IN ("
+                    + String.join(",", chunk.stream().map(id -> "'" + id + "'").toList()) + ")";
+            try (Stream<Map<String, Object>> stream = streamToolingQuery(soql)) {
+                stream.forEach(r -> {
+                    String runId = runIdsByKey.get(jobKey((String) r.get("ParentJobId")));
+                    if (runId != null) {
+                        recordsByRunId.get(runId).add(r);
+                    }
+                });
+            }
+        }
+        return recordsByRunId;
+    }
+
+    private static String jobKey(String id) {
+        return id != null && id.length() > 15 ? id.substring(0, 15) : id;
     }
 
-    @SuppressWarnings("unchecked")
     public List<TestResultDTO> getTestResults(String testRunId) {
+        try (Stream<TestResultDTO> results = streamTestResults(testRunId)) {
+            return results.toList();
+        }
+    }
+
+    // Lazily pages through ApexTestResult; the caller must close the stream
+    public Stream<TestResultDTO> streamTestResults(String testRunId) {
         String soql = "SELECT ApexClass.Name, MethodName, Outcome, Message, StackTrace, RunTime "
                 + "FROM ApexTestResult WHERE AsyncApexJobId = '" + testRunId + "' "
                 + "ORDER BY ApexClass.Name, MethodName";
-        Map<String, Object> result = queryToolingApi(soql);
-        List<Map<String, Object>> records = (List<Map<String, Object>>) result.get("records");
-        if (records == null) return List.of();
-
-        return records.stream().map(r -> {
-            Map<String, Object> apexClass = (Map<String, Object>) r.get("ApexClass");
-            String className = apexClass != null ? (String) apexClass.get("Name") : "Unknown";
-            Number runTime = (Number) r.get("RunTime");
-            return new TestResultDTO(
-                    className,
-                    (String) r.get("MethodName"),
-                    (String) r.get("Outcome"),
-                    (String) r.get("Message"),
-                    (String) r.get("StackTrace"),
-                    runTime != null ? runTime.longValue() : 0
-            );
-        }).toList();
+        return streamToolingQuery(soql).map(this::toTestResultDTO);
+    }
+
+    public record TestResultRow(String id, TestResultDTO result) {
+    }
+
+    /**
+     * Streams the results of a run whose Id is greater than {@code afterId} (all results when null),
+     * ordered by Id so the last row seen can be kept as the watermark for the next call.
+     * The caller must close the stream.
+     */
+    public Stream<TestResultRow> streamTestResultsAfter(String testRunId, String afterId) {
+        String soql = "SELECT Id, ApexClass.Name, MethodName, Outcome, Message, StackTrace, RunTime "
+                + "FROM ApexTestResult WHERE AsyncApexJobId = '" + testRunId + "'"
+                + (afterId != null ? " AND Id > '" + afterId + "'" : "")
+                + " ORDER BY Id";
+        return streamToolingQuery(soql).map(r -> new TestResultRow((String) r.get("Id"), toTestResultDTO(r)));
+    }
+
+    public int countTestResults(String testRunId) {
+        Map<String, Object> result = queryToolingApi(
+                "SELECT COUNT() FROM ApexTestResult WHERE AsyncApexJobId = '" + testRunId + "'");
+        Number totalSize = (Number) result.get("totalSize");
+        return totalSize != null ? totalSize.intValue() : 0;
     }
 
     @SuppressWarnings("unchecked")
+    private TestResultDTO toTestResultDTO(Map<String, Object> r) {
+        Map<String, Object> apexClass = (Map<String, Object>) r.get("ApexClass");
+        String className = apexClass != null ? (String) apexClass.get("Name") : "Unknown";
+        Number runTime = (Number) r.get("RunTime");
+        return new TestResultDTO(
+                className,
+                (String) r.get("MethodName"),
+                (String) r.get("Outcome"),
+                (String) r.get("Message"),
+                (String) r.get("StackTrace"),
+                runTime != null ? runTime.longValue() : 0
+        );
+    }
+
     public List<CodeCoverageDTO> getCodeCoverage(String testRunId) {
-        String soql = "SELECT ApexClassOrTrigger.Name, NumLinesCovered, NumLinesUncovered "
-                + "FROM ApexCodeCoverage WHERE ApexTestClassId IN "
-                + "(SELECT ApexClassId FROM ApexTestQueueItem WHERE ParentJobId = '" + testRunId + "') "
-                + "ORDER BY ApexClassOrTrigger.Name";
-        try {
-            Map<String, Object> result = queryToolingApi(soql);
-            List<Map<String, Object>> records = (List<Map<String, Object>>) result.get("records");
-            if (records == null) return List.of();
-
-            return records.stream().map(r -> {
-                Map<String, Object> apexClassOrTrigger = (Map<String, Object>) r.get("ApexClassOrTrigger");
-                String name = apexClassOrTrigger != null ? (String) apexClassOrTrigger.get("Name") : "Unknown";
-                int covered = ((Number) r.getOrDefault("NumLinesCovered", 0)).intValue();
-                int uncovered = ((Number) r.getOrDefault("NumLinesUncovered", 0)).intValue();
-                int total = covered + uncovered;
-                double pct = total > 0 ? (covered * 100.0 / total) : 0;
-                return new CodeCoverageDTO(name, covered, uncovered, Math.round(pct * 100.0) / 100.0);
-            }).toList();
+        try (Stream<CodeCoverageDTO> coverage = streamCodeCoverage(testRunId)) {
+            return coverage.toList();
         } catch (Exception e) {
             log.warn("Could not fetch code coverage: {}", e.getMessage());
             return List.of();
         }
     }
 
-    private void requireAuth() {
+    // Lazily pages through ApexCodeCoverage; the caller must close the stream
+    public Stream<CodeCoverageDTO> streamCodeCoverage(String testRunId) {
+        return streamCoverageRows(List.of(testRunId)).map(CoverageRow::coverage);
+    }
+
+    /**
+     * A coverage record together with the test class that produced it and the class it covers.
+     * The line arrays are empty when the record carries no per-line detail.
+     */
+    public record CoverageRow(String testClassId, String coveredClassId, CodeCoverageDTO coverage,
+                              int[] coveredLines, int[] uncoveredLines) {
+    }
+
+    /** Coverage records of one or more async jobs, ordered by covered class name. */
+    @SuppressWarnings("unchecked")
+    public Stream<CoverageRow> streamCoverageRows(Collection<String> testRunIds) {
+        String soql = "SELECT ApexTestClassId, ApexClassOrTriggerId, ApexClassOrTrigger.Name, NumLinesCovered, NumLinesUncovered, Coverage "
+                + "FROM ApexCodeCoverage WHERE ApexTestClassId IN "
+                + "(SELECT ApexClassId FROM ApexTestQueueItem WHERE ParentJobId IN ("
+                + String.join(",", testRunIds.stream().map(id -> "'" + id + "'").toList()) + ")) "
+                + "ORDER BY ApexClassOrTrigger.Name";
+        return streamToolingQuery(soql).map(r -> {
+            Map<String, Object> apexClassOrTrigger = (Map<String, Object>) r.get("ApexClassOrTrigger");
+            String name = apexClassOrTrigger != null ? (String) apexClassOrTrigger.get("Name") : "Unknown";
+            int covered = ((Number) r.getOrDefault("NumLinesCovered", 0)).intValue();
+            int uncovered = ((Number) r.getOrDefault("NumLinesUncovered", 0)).intValue();
+            int total = covered + uncovered;
+            double pct = total > 0 ? (covered * 100.0 / total) : 0;
+            Map<String, Object> lines = (Map<String, Object>) r.get("Coverage");
+            return new CoverageRow((String) r.get("ApexTestClassId"), (String) r.get("ApexClassOrTriggerId"),
+                    new CodeCoverageDTO(name, covered, uncovered, Math.round(pct * 100.0) / 100.0),
+                    lineNumbers(lines, "coveredLines"), lineNumbers(lines, "uncoveredLines"));
+        });
+    }
+
+    private static int[] lineNumbers(Map<String, Object> coverage, String key) {
+        Object lines = coverage != null ? coverage.get(key) : null;
+        if (!(lines instanceof List<?> list)) {
+            return new int[0];
+        }
+        return list.stream().mapToInt(line -> ((Number) line).intValue()).toArray();
+    }
+
+    /** Ids and names of the Apex classes edited after {@code since}, keyed by id. */
+    public Map<String, String> getClassesModifiedSince(Instant since) {
+        String soql = "SELECT Id, Name FROM ApexClass WHERE LastModifiedDate > " + SOQL_DATETIME.format(since);
+        Map<String, String> classes = new LinkedHashMap<>();
+        try (Stream<Map<String, Object>> records = streamToolingQuery(soql)) {
+            records.forEach(r -> classes.put((String) r.get("Id"), (String) r.get("Name")));
+        }
+        return classes;
+    }
+
+    // One snapshot per call, so a concurrent refresh never mixes tokens within a request
+    private SalesforceSession requireSession() {
         if (!authService.isConnected()) {
             throw new AuthenticationRequiredException("Not connected to Salesforce. Please authenticate first.");
         }
+        return sessionResolver.require();
     }
 }
@@ -0,0 +1,309 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ApexTestClassDTO;
+import com.apex.testsuite.dto.OrgStatsDTO;
+import com.apex.testsuite.dto.UserInfoResponse;
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import com.apex.testsuite.entity.CatalogSyncState;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.CatalogSyncStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains a persisted catalog of Apex classes and which of them are tests, served to the
+ * API straight from the database. The first sync for an org lists lightweight metadata for
+ * every class; later syncs only query classes whose SystemModstamp moved past the stored
+ * watermark, and a periodic reconcile of class ids removes deleted classes. Class bodies are
+ * downloaded only for new or modified classes. A sync that changes the catalog evicts the
+ * org's cached stats.
+ */
+@Service
+public class TestClassDiscoveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TestClassDiscoveryService.class);
+    private static final DateTimeFormatter SF_DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final DateTimeFormatter SOQL_DATETIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
+    private static final int BODY_BATCH_SIZE = 100;
+    private static final int DELETE_BATCH_SIZE = 500;
+    // Re-reads a short window below the watermark so late-committed changes are not skipped
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(2);
+
+    private final SalesforceToolingService toolingService;
+    private final SalesforceAuthService authService;
+    private final SalesforceSessionResolver sessionResolver;
+    private final ApexClassCatalogRepository catalogRepository;
+    private final CatalogSyncStateRepository syncStateRepository;
+    private final CacheManager cacheManager;
+    private final Map<String, Object> syncLocks = new ConcurrentHashMap<>();
+
+    @Value("${app.catalog.reconcile-interval:PT6H}")
+    private Duration reconcileInterval;
+
+    public TestClassDiscoveryService(SalesforceToolingService toolingService,
+                                     SalesforceAuthService authService,
+                                     SalesforceSessionResolver sessionResolver,
+                                     ApexClassCatalogRepository catalogRepository,
+                                     CatalogSyncStateRepository syncStateRepository,
+                                     CacheManager cacheManager) {
+        this.toolingService = toolingService;
+        this.authService = authService;
+        this.sessionResolver = sessionResolver;
+        this.catalogRepository = catalogRepository;
+        this.syncStateRepository = syncStateRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    public List<ApexTestClassDTO> getTestClasses() {
+        String orgId = getOrgId();
+        ensureSynced(orgId);
+        return catalogRepository.findByOrgIdAndTestClassTrueOrderByNameAsc(orgId).stream()
+                .map(e -> new ApexTestClassDTO(e.getClassId(), e.getName(), e.getNamespacePrefix()))
+                .toList();
+    }
+
+    @Cacheable(value = "orgStats", key = "@salesforceAuthService.currentOrgId")
+    public OrgStatsDTO getOrgStats() {
+        UserInfoResponse identity = null;
+        try {
+            identity = authService.getIdentity();
+        } catch (Exception e) {
+            log.warn("Could not fetch org name: {}", e.getMessage());
+        }
+        String orgId = identity != null && !identity.orgId().isEmpty() ? identity.orgId() : "unknown";
+        String orgName = identity != null ? identity.orgName() : "";
+
+        ensureSynced(orgId);
+        return new OrgStatsDTO(
+                (int) catalogRepository.countByOrgId(orgId),
+                (int) catalogRepository.countByOrgIdAndTestClassTrue(orgId),
+                orgName);
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.sync-interval:PT5M}",
+            initialDelayString = "${app.catalog.sync-initial-delay:PT1M}")
+    public void scheduledSync() {
+        // One sync per org, using any of the sessions logged into it
+        Set<String> synced = new HashSet<>();
+        for (SalesforceSession session : authService.getActiveSessions()) {
+            if (session.orgId() != null && !synced.add(session.orgId())) {
+                continue;
+            }
+            try {
+                sessionResolver.runAs(session.id(), () -> syncCatalog(session.orgId() != null ? session.orgId() : getOrgId()));
+            } catch (Exception e) {
+                log.warn("Background catalog sync failed for org {}: {}", session.orgId(), e.getMessage());
+            }
+        }
+    }
+
+    public void syncCatalog(String orgId) {
+        synchronized (syncLocks.computeIfAbsent(orgId, k -> new Object())) {
+            CatalogSyncState state = syncStateRepository.findByOrgId(orgId).orElseGet(() -> {
+                CatalogSyncState created = new CatalogSyncState();
+                created.setOrgId(orgId);
+                return created;
+            });
+            Instant now = Instant.now();
+            if (state.getLastSyncAt() == null) {
+                fullSync(orgId, state);
+                state.setLastReconcileAt(now);
+            } else {
+                deltaSync(orgId, state);
+                if (state.getLastReconcileAt() == null
+                        || Duration.between(state.getLastReconcileAt(), now).compareTo(reconcileInterval) >= 0) {
+                    reconcileDeletions(orgId);
+                    state.setLastReconcileAt(now);
+                }
+            }
+            state.setLastSyncAt(now);
+            syncStateRepository.save(state);
+        }
+    }
+
+    // Only the very first request for an org waits for a sync; afterwards the catalog is served as-is
+    private void ensureSynced(String orgId) {
+        boolean synced = syncStateRepository.findByOrgId(orgId)
+                .map(s -> s.getLastSyncAt() != null)
+                .orElse(false);
+        if (!synced) {
+            syncCatalog(orgId);
+        }
+    }
+
+    private void fullSync(String orgId, CatalogSyncState state) {
+        long start = System.currentTimeMillis();
+        Map<String, ApexClassCatalogEntry> known = catalogRepository.findByOrgId(orgId).stream()
+                .collect(Collectors.toMap(ApexClassCatalogEntry::getClassId, e -> e));
+        Map<String, ApexClassCatalogEntry> changed = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+
+        String soql = "SELECT Id, Name, NamespacePrefix, SystemModstamp FROM ApexClass WHERE Status = 'Active'";
+        try (Stream<Map<String, Object>> rows = toolingService.streamToolingQuery(soql)) {
+            rows.forEach(r -> {
+                seen.add((String) r.get("Id"));
+                advanceWatermark(state, applyMetadata(orgId, r, known, changed));
+            });
+        }
+        saveClassified(orgId, changed);
+
+        List<String> removed = known.keySet().stream().filter(id -> !seen.contains(id)).toList();
+        deleteClasses(orgId, removed);
+
+        log.info("Full catalog sync for org {}: {} classes, {} reclassified, {} removed in {} ms",
+                orgId, seen.size(), changed.size(), removed.size(), System.currentTimeMillis() - start);
+    }
+
+    private void deltaSync(String orgId, CatalogSyncState state) {
+        long start = System.currentTimeMillis();
+        Instant since = state.getWatermark() != null
+                ? state.getWatermark().minus(WATERMARK_OVERLAP) : Instant.EPOCH;
+        String soql = "SELECT Id, Name, NamespacePrefix, Status, SystemModstamp FROM ApexClass "
+                + "WHERE SystemModstamp > " + SOQL_DATETIME.format(since);
+        List<Map<String, Object>> rows;
+        try (Stream<Map<String, Object>> stream = toolingService.streamToolingQuery(soql)) {
+            rows = stream.toList();
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = rows.stream().map(r -> (String) r.get("Id")).toList();
+        Map<String, ApexClassCatalogEntry> known = catalogRepository.findByOrgIdAndClassIdIn(orgId, ids).stream()
+                .collect(Collectors.toMap(ApexClassCatalogEntry::getClassId, e -> e));
+        Map<String, ApexClassCatalogEntry> changed = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+
+        for (Map<String, Object> r : rows) {
+            if (!"Active".equals(r.get("Status"))) {
+                removed.add((String) r.get("Id"));
+                advanceWatermark(state, parseDateTime((String) r.get("SystemModstamp")));
+                continue;
+            }
+            advanceWatermark(state, applyMetadata(orgId, r, known, changed));
+        }
+        saveClassified(orgId, changed);
+        deleteClasses(orgId, removed);
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            log.info("Delta catalog sync for org {}: {} reclassified, {} removed in {} ms",
+                    orgId, changed.size(), removed.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    // Removes catalog entries for classes that were deleted outright and so never show up in a delta
+    private void reconcileDeletions(String orgId) {
+        Set<String> active;
+        try (Stream<Map<String, Object>> rows = toolingService.streamToolingQuery(
+                "SELECT Id FROM ApexClass WHERE Status = 'Active'")) {
+            active = rows.map(r -> (String) r.get("Id")).collect(Collectors.toSet());
+        }
+        List<String> removed = catalogRepository.findClassIdsByOrgId(orgId).stream()
+                .filter(id -> !active.contains(id))
+                .toList();
+        deleteClasses(orgId, removed);
+        log.info("Catalog reconcile for org {}: {} active classes, {} removed", orgId, active.size(), removed.size());
+    }
+
+    // Returns the row's SystemModstamp; records the entry in changed if it is new or modified
+    private Instant applyMetadata(String orgId, Map<String, Object> row,
+                                  Map<String, ApexClassCatalogEntry> known,
+                                  Map<String, ApexClassCatalogEntry> changed) {
+        String classId = (String) row.get("Id");
+        Instant modstamp = parseDateTime((String) row.get("SystemModstamp"));
+        ApexClassCatalogEntry entry = known.get(classId);
+        if (entry != null && modstamp != null && modstamp.equals(entry.getSystemModstamp())) {
+            return modstamp;
+        }
+        if (entry == null) {
+            entry = new ApexClassCatalogEntry();
+            entry.setOrgId(orgId);
+            entry.setClassId(classId);
+        }
+        entry.setName((String) row.get("Name"));
+        entry.setNamespacePrefix((String) row.get("NamespacePrefix"));
+        entry.setSystemModstamp(modstamp);
+        changed.put(classId, entry);
+        return modstamp;
+    }
+
+    private void saveClassified(String orgId, Map<String, ApexClassCatalogEntry> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        classify(changed);
+        Instant now = Instant.now();
+        changed.values().forEach(e -> e.setLastSyncedAt(now));
+        catalogRepository.saveAll(changed.values());
+        evictOrgStats(orgId);
+    }
+
+    private void deleteClasses(String orgId, List<String> classIds) {
+        if (classIds.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < classIds.size(); from += DELETE_BATCH_SIZE) {
+            catalogRepository.deleteByOrgIdAndClassIdIn(orgId,
+                    classIds.subList(from, Math.min(classIds.size(), from + DELETE_BATCH_SIZE)));
+        }
+        evictOrgStats(orgId);
+    }
+
+    // Called from within this class, where @CacheEvict would not apply
+    private void evictOrgStats(String orgId) {
+        Cache cache = cacheManager.getCache("orgStats");
+        if (cache != null) {
+            cache.evict(orgId);
+        }
+    }
+
+    private static void advanceWatermark(CatalogSyncState state, Instant modstamp) {
+        if (modstamp != null && (state.getWatermark() == null || modstamp.isAfter(state.getWatermark()))) {
+            state.setWatermark(modstamp);
+        }
+    }
+
+    // Downloads bodies of the given classes in batches and scans each for test markers
+    private void classify(Map<String, ApexClassCatalogEntry> entries) {
+        List<String> ids = new ArrayList<>(entries.keySet());
+        for (int from = 0; from < ids.size(); from += BODY_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + BODY_BATCH_SIZE));
+            String soql = "SELECT Id, Body FROM ApexClass WHERE Id IN ("
+                    + batch.stream().map(id -> "'" + id + "'").collect(Collectors.joining(",")) + ")";
+            try (Stream<Map<String, Object>> rows = toolingService.streamToolingQuery(soql)) {
+                rows.forEach(r -> {
+                    ApexClassCatalogEntry entry = entries.get((String) r.get("Id"));
+                    if (entry != null) {
+                        entry.setTestClass(ApexTestClassScanner.isTestClass((String) r.get("Body")));
+                    }
+                });
+            }
+        }
+    }
+
+    static Instant parseDateTime(String value) {
+        if (value == null) return null;
+        return OffsetDateTime.parse(value, SF_DATETIME).toInstant();
+    }
+
+    private String getOrgId() {
+        return authService.getCurrentOrgId();
+    }
+}
@@ -3,161 +3,392 @@ package com.apex.testsuite.service;
 import com.apex.testsuite.dto.*;
 import com.apex.testsuite.entity.*;
 import com.apex.testsuite.repository.TestRunRepository;
+import com.apex.testsuite.repository.TestRunShardRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class TestExecutionService {
 
     private static final Logger log = LoggerFactory.getLogger(TestExecutionService.class);
+    // Subscribed to as /user/queue/test-progress
+    private static final String PROGRESS_DESTINATION = "/queue/test-progress";
 
     private final SalesforceToolingService toolingService;
     private final SalesforceAuthService authService;
+    private final SalesforceSessionResolver sessionResolver;
     private final SimpMessagingTemplate messagingTemplate;
     private final TestRunRepository testRunRepository;
+    private final TestRunShardRepository shardRepository;
+    private final TestResultIngestionService ingestionService;
+    private final TestShardPlanner shardPlanner;
+    private final TestRunPollScheduler pollScheduler;
+    private final TrendRollupService trendRollupService;
+    private final FlakyTestService flakyTestService;
+    private final Executor testExecutor;
+    private final Map<Long, RunIngestion> ingestions = new ConcurrentHashMap<>();
+
+    @Value("${app.runs.fail-fast-max-failures:0}")
+    private int defaultMaxFailedTests;
+
+    /** How a run executes; {@code maxFailedTests} only applies to {@link RunProfile#FAIL_FAST}. */
+    public record RunOptions(RunProfile profile, Integer maxFailedTests) {
+        public static final RunOptions FULL = new RunOptions(RunProfile.FULL, null);
+    }
 
     public TestExecutionService(SalesforceToolingService toolingService,
                                 SalesforceAuthService authService,
+                                SalesforceSessionResolver sessionResolver,
                                 SimpMessagingTemplate messagingTemplate,
-                                TestRunRepository testRunRepository) {
+                                TestRunRepository testRunRepository,
+                                TestRunShardRepository shardRepository,
+                                TestResultIngestionService ingestionService,
+                                TestShardPlanner shardPlanner,
+                                TestRunPollScheduler pollScheduler,
+                                TrendRollupService trendRollupService,
+                                FlakyTestService flakyTestService,
+                                @Qualifier("testExecutor") Executor testExecutor) {
         this.toolingService = toolingService;
         this.authService = authService;
+        this.sessionResolver = sessionResolver;
         this.messagingTemplate = messagingTemplate;
         this.testRunRepository = testRunRepository;
+        this.shardRepository = shardRepository;
+        this.ingestionService = ingestionService;
+        this.shardPlanner = shardPlanner;
+        this.pollScheduler = pollScheduler;
+        this.trendRollupService = trendRollupService;
+        this.flakyTestService = flakyTestService;
+        this.testExecutor = testExecutor;
     }
 
-    public Map<String, Object> startTestRun(List<String> classIds) {
-        String testRunId = toolingService.runTestsAsync(classIds);
-        log.info("Started async test run: {}", testRunId);
+    public Map<String, Object> startTestRun(List<String> classIds, RunOptions options) {
+        Integer maxFailedTests = maxFailedTests(options);
+        String testRunId = toolingService.runTestsAsync(classIds, options.profile() == RunProfile.FAST, maxFailedTests);
+        log.info("Started async test run: {} ({})", testRunId, options.profile());
 
         TestRun run = new TestRun();
         run.setAsyncApexJobId(testRunId);
         run.setOrgId(getOrgId());
         run.setStatus(TestRunStatus.QUEUED);
+        run.setProfile(options.profile());
+        run.setMaxFailedTests(maxFailedTests);
         run.setStartedAt(LocalDateTime.now());
         testRunRepository.save(run);
 
-        pollTestProgress(testRunId, run.getId());
+        trackProgress(testRunId, run.getId());
         return Map.of("testRunId", testRunId, "dbRunId", run.getId());
     }
 
-    @Async("testExecutor")
-    @SuppressWarnings("unchecked")
-    public void pollTestProgress(String testRunId, Long dbRunId) {
-        int maxPolls = 120;
-        int pollCount = 0;
+    /**
+     * Runs the classes as up to {@code shards} parallel async jobs balanced by historical runtime,
+     * tracked as one logical run. Falls back to a single job when there is nothing to split.
+     */
+    public Map<String, Object> startShardedTestRun(List<String> classIds, int shards, RunOptions options) {
+        String orgId = getOrgId();
+        List<TestShardPlanner.Shard> plan = shardPlanner.plan(orgId, classIds, shards);
+        if (plan.size() <= 1) {
+            return startTestRun(classIds, options);
+        }
 
+        Integer maxFailedTests = maxFailedTests(options);
+        List<String> jobIds = new ArrayList<>(plan.size());
         try {
-            while (pollCount < maxPolls) {
-                Thread.sleep(3000);
-                pollCount++;
+            for (TestShardPlanner.Shard shard : plan) {
+                jobIds.add(toolingService.runTestsAsync(shard.classIds(), options.profile() == RunProfile.FAST, maxFailedTests));
+            }
+        } catch (RuntimeException e) {
+            // No run records the shards already submitted, so they must not keep running
+            for (String jobId : jobIds) {
+                try {
+                    toolingService.abortTestRun(jobId);
+                } catch (Exception abortError) {
+                    log.warn("Could not abort shard {} of a sharded run that failed to start: {}",
+                            jobId, abortError.getMessage());
+                }
+            }
+            if (!jobIds.isEmpty()) {
+                log.warn("Sharded run failed to start; aborted already submitted jobs {}", jobIds);
+            }
+            throw e;
+        }
+        log.info("Started sharded test run: {} jobs {}", jobIds.size(), jobIds);
 
-                Map<String, Object> queueStatus = toolingService.getTestQueueStatus(testRunId);
-                List<Map<String, Object>> records = (List<Map<String, Object>>) queueStatus.get("records");
+        TestRun run = new TestRun();
+        run.setAsyncApexJobId(jobIds.get(0));
+        run.setOrgId(orgId);
+        run.setStatus(TestRunStatus.QUEUED);
+        run.setShardCount(jobIds.size());
+        run.setProfile(options.profile());
+        run.setMaxFailedTests(maxFailedTests);
+        run.setStartedAt(LocalDateTime.now());
+        testRunRepository.save(run);
+
+        List<TestRunShard> shardRows = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            TestRunShard shard = new TestRunShard();
+            shard.setTestRunId(run.getId());
+            shard.setShardIndex(i);
+            shard.setAsyncApexJobId(jobIds.get(i));
+            shard.setClassCount(plan.get(i).classIds().size());
+            shard.setEstimatedMs(plan.get(i).estimatedMs());
+            shard.setStatus(TestRunStatus.QUEUED);
+            shardRows.add(shard);
+        }
+        shardRepository.saveAll(shardRows);
 
-                if (records == null || records.isEmpty()) {
-                    continue;
+        trackShards(run.getId(), shardRows);
+        List<Map<String, Object>> shardInfo = shardRows.stream()
+                .map(s -> Map.<String, Object>of("testRunId", s.getAsyncApexJobId(),
+                        "classCount", s.getClassCount(), "estimatedMs", s.getEstimatedMs()))
+                .toList();
+        return Map.of("testRunId", run.getAsyncApexJobId(), "dbRunId", run.getId(), "shards", shardInfo);
+    }
+
+    private void trackProgress(String testRunId, Long dbRunId) {
+        RunIngestion ingestion = new RunIngestion();
+        ingestions.put(dbRunId, ingestion);
+        // Polling, ingestion and progress messages keep using the session that started the run
+        String sessionId = sessionResolver.currentSessionId();
+
+        pollScheduler.track(testRunId, sessionId, new TestRunPollScheduler.RunListener() {
+            @Override
+            public void onProgress(TestRunPollScheduler.QueueProgress progress) {
+                // Skip this tick if the previous ingestion for the run is still going
+                if (!ingestion.busy.compareAndSet(false, true)) {
+                    return;
                 }
+                testExecutor.execute(() -> {
+                    try {
+                        TestRun run;
+                        synchronized (ingestion) {
+                            run = ingestionService.ingestNewResults(testRunId, dbRunId);
+                        }
+                        if (run != null) {
+                            enforceFailFast(run, ingestion, List.of(testRunId));
+                            publishProgress(sessionId, testRunId, run, progress.total(), progress.completed());
+                        }
+                    } catch (Exception e) {
+                        log.warn("Could not ingest results for test run {}: {}", testRunId, e.getMessage());
+                    } finally {
+                        ingestion.busy.set(false);
+                    }
+                });
+            }
 
-                int total = records.size();
-                int completed = 0;
-                int passed = 0;
-                int failed = 0;
-                boolean allDone = true;
-
-                for (Map<String, Object> item : records) {
-                    String status = (String) item.get("Status");
-                    if ("Completed".equals(status)) {
-                        completed++;
-                    } else if ("Failed".equals(status)) {
-                        completed++;
-                        failed++;
-                    } else {
-                        allDone = false;
+            @Override
+            public void onComplete(TestRunPollScheduler.QueueProgress progress) {
+                testExecutor.execute(() -> {
+                    try {
+                        TestRun run;
+                        synchronized (ingestion) {
+                            if (progress.aborted() > 0) {
+                                testRunRepository.markAborted(dbRunId);
+                            }
+                            run = ingestionService.finalizeRun(testRunId, dbRunId);
+                        }
+                        if (run != null) {
+                            publishProgress(sessionId, testRunId, run);
+                            log.info("Test run {} {}: {} passed, {} failed",
+                                    testRunId, finalStatus(run).toLowerCase(), run.getPassCount(), run.getFailCount());
+                            recordAnalytics(run);
+                        }
+                    } catch (Exception e) {
+                        log.error("Error finalizing test run {}: {}", testRunId, e.getMessage());
+                        updateRunStatus(dbRunId, TestRunStatus.FAILED);
+                    } finally {
+                        ingestions.remove(dbRunId);
                     }
-                }
+                });
+            }
+
+            @Override
+            public void onTimeout() {
+                ingestions.remove(dbRunId);
+                updateRunStatus(dbRunId, TestRunStatus.FAILED);
+            }
 
-                double pct = total > 0 ? (completed * 100.0 / total) : 0;
-                String status = allDone ? "Completed" : "Processing";
+            @Override
+            public void onError(Exception e) {
+                ingestions.remove(dbRunId);
+                updateRunStatus(dbRunId, TestRunStatus.FAILED);
+            }
+        });
+    }
 
-                TestProgressDTO progress = new TestProgressDTO(
-                        testRunId, dbRunId, status, total, completed, passed, failed,
-                        Math.round(pct * 100.0) / 100.0
-                );
-                messagingTemplate.convertAndSend("/topic/test-progress", progress);
+    // Each job is polled on its own; progress is merged and the run completes with its last shard
+    private void trackShards(Long dbRunId, List<TestRunShard> shards) {
+        RunIngestion ingestion = new RunIngestion();
+        ingestions.put(dbRunId, ingestion);
+        String testRunId = shards.get(0).getAsyncApexJobId();
+        List<String> jobIds = shards.stream().map(TestRunShard::getAsyncApexJobId).toList();
+        ShardProgress merged = new ShardProgress(shards);
+        String sessionId = sessionResolver.currentSessionId();
 
-                if (allDone) {
-                    finalizeRun(testRunId, dbRunId);
-                    return;
+        for (TestRunShard shard : shards) {
+            String jobId = shard.getAsyncApexJobId();
+            AtomicBoolean busy = new AtomicBoolean();
+            pollScheduler.track(jobId, sessionId, new TestRunPollScheduler.RunListener() {
+                @Override
+                public void onProgress(TestRunPollScheduler.QueueProgress progress) {
+                    merged.update(jobId, progress);
+                    if (merged.failed || !busy.compareAndSet(false, true)) {
+                        return;
+                    }
+                    testExecutor.execute(() -> {
+                        try {
+                            TestRun run;
+                            synchronized (ingestion) {
+                                run = ingestionService.ingestNewResults(jobId, dbRunId);
+                            }
+                            if (run != null) {
+                                enforceFailFast(run, ingestion, jobIds);
+                                publishProgress(sessionId, testRunId, run, merged.total(), merged.completed());
+                            }
+                        } catch (Exception e) {
+                            log.warn("Could not ingest results for shard {} of run {}: {}", jobId, dbRunId, e.getMessage());
+                        } finally {
+                            busy.set(false);
+                        }
+                    });
                 }
-            }
 
-            log.warn("Test run {} timed out after {} polls", testRunId, maxPolls);
-            updateRunStatus(dbRunId, TestRunStatus.FAILED);
+                @Override
+                public void onComplete(TestRunPollScheduler.QueueProgress progress) {
+                    merged.update(jobId, progress);
+                    testExecutor.execute(() -> {
+                        try {
+                            TestRun run;
+                            boolean last;
+                            synchronized (ingestion) {
+                                if (merged.failed) {
+                                    return;
+                                }
+                                if (progress.aborted() > 0) {
+                                    testRunRepository.markAborted(dbRunId);
+                                }
+                                run = ingestionService.finalizeShard(jobId, dbRunId);
+                                last = merged.complete(jobId);
+                                if (last && run != null) {
+                                    run = ingestionService.completeShardedRun(dbRunId);
+                                }
+                            }
+                            if (run == null) {
+                                return;
+                            }
+                            if (!last) {
+                                publishProgress(sessionId, testRunId, run, merged.total(), merged.completed());
+                                return;
+                            }
+                            ingestions.remove(dbRunId);
+                            publishProgress(sessionId, testRunId, run);
+                            log.info("Sharded test run {} {}: {} passed, {} failed",
+                                    dbRunId, finalStatus(run).toLowerCase(), run.getPassCount(), run.getFailCount());
+                            recordAnalytics(run);
+                        } catch (Exception e) {
+                            log.error("Error finalizing shard {} of run {}: {}", jobId, dbRunId, e.getMessage());
+                            failShardedRun(dbRunId, merged);
+                        }
+                    });
+                }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Polling interrupted for test run {}", testRunId);
-            updateRunStatus(dbRunId, TestRunStatus.ABORTED);
-        } catch (Exception e) {
-            log.error("Error polling test run {}: {}", testRunId, e.getMessage());
-            updateRunStatus(dbRunId, TestRunStatus.FAILED);
+                @Override
+                public void onTimeout() {
+                    failShardedRun(dbRunId, merged);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    failShardedRun(dbRunId, merged);
+                }
+            });
         }
     }
 
-    private void finalizeRun(String testRunId, Long dbRunId) {
-        List<TestResultDTO> results = toolingService.getTestResults(testRunId);
-        List<CodeCoverageDTO> coverage = toolingService.getCodeCoverage(testRunId);
+    // The remaining shards keep being polled until they finish, but are no longer ingested
+    private void failShardedRun(Long dbRunId, ShardProgress merged) {
+        merged.failed = true;
+        ingestions.remove(dbRunId);
+        updateRunStatus(dbRunId, TestRunStatus.FAILED);
+    }
 
-        int passCount = (int) results.stream().filter(r -> "Pass".equals(r.outcome())).count();
-        int failCount = (int) results.stream().filter(r -> "Fail".equals(r.outcome())).count();
+    /**
+     * Aborts a fail-fast run once it has more failures than it allows. Salesforce enforces
+     * maxFailedTests itself, but only per job; this covers the combined failures of a sharded
+     * run as well.
+     */
+    private void enforceFailFast(TestRun run, RunIngestion ingestion, List<String> jobIds) {
+        if (run.getProfile() != RunProfile.FAIL_FAST || run.getMaxFailedTests() == null
+                || run.getFailCount() <= run.getMaxFailedTests() || !ingestion.abortRequested.compareAndSet(false, true)) {
+            return;
+        }
+        testRunRepository.markAborted(run.getId());
+        int aborted = 0;
+        for (String jobId : jobIds) {
+            try {
+                aborted += toolingService.abortTestRun(jobId);
+            } catch (Exception e) {
+                log.warn("Could not abort queue items of test run {}: {}", jobId, e.getMessage());
+            }
+        }
+        log.info("Fail-fast run {} reached {} failures, aborted {} queued classes", run.getId(), run.getFailCount(), aborted);
+    }
 
-        TestRun run = testRunRepository.findById(dbRunId).orElse(null);
-        if (run != null) {
-            run.setStatus(TestRunStatus.COMPLETED);
-            run.setTotalTests(results.size());
-            run.setPassCount(passCount);
-            run.setFailCount(failCount);
-            run.setCompletedAt(LocalDateTime.now());
+    private Integer maxFailedTests(RunOptions options) {
+        if (options.profile() != RunProfile.FAIL_FAST) {
+            return null;
+        }
+        int max = options.maxFailedTests() != null ? options.maxFailedTests() : defaultMaxFailedTests;
+        if (max < 0) {
+            throw new IllegalArgumentException("maxFailedTests must not be negative");
+        }
+        return max;
+    }
 
-            for (TestResultDTO dto : results) {
-                TestResult result = new TestResult();
-                result.setClassName(dto.className());
-                result.setMethodName(dto.methodName());
-                result.setOutcome(mapOutcome(dto.outcome()));
-                result.setMessage(dto.message());
-                result.setStackTrace(dto.stackTrace());
-                result.setRunTimeMs(dto.runTimeMs());
-                result.setTestRun(run);
-                run.getResults().add(result);
-            }
+    private static String finalStatus(TestRun run) {
+        return run.getStatus() == TestRunStatus.ABORTED ? "Aborted" : "Completed";
+    }
 
-            for (CodeCoverageDTO dto : coverage) {
-                CoverageSnapshot snapshot = new CoverageSnapshot();
-                snapshot.setClassName(dto.classOrTriggerName());
-                snapshot.setLinesCovered(dto.linesCovered());
-                snapshot.setLinesUncovered(dto.linesUncovered());
-                snapshot.setCoveragePercent(dto.coveragePercent());
-                snapshot.setTestRun(run);
-                run.getCoverageSnapshots().add(snapshot);
-            }
+    // Only the browsers of the session that started the run receive its progress
+    private void publishProgress(String sessionId, String testRunId, TestRun run, int total, int completed) {
+        double pct = total > 0 ? (completed * 100.0 / total) : 0;
+        publishProgress(sessionId, new TestProgressDTO(testRunId, run.getId(), "Processing", total, completed,
+                run.getPassCount(), run.getFailCount(), Math.round(pct * 100.0) / 100.0));
+    }
 
-            testRunRepository.save(run);
+    private void publishProgress(String sessionId, String testRunId, TestRun run) {
+        publishProgress(sessionId, new TestProgressDTO(testRunId, run.getId(), finalStatus(run),
+                run.getTotalTests(), run.getTotalTests(), run.getPassCount(), run.getFailCount(), 100.0));
+    }
+
+    private void publishProgress(String sessionId, TestProgressDTO progress) {
+        if (sessionId != null) {
+            messagingTemplate.convertAndSendToUser(sessionId, PROGRESS_DESTINATION, progress);
         }
+    }
 
-        TestProgressDTO finalProgress = new TestProgressDTO(
-                testRunId, dbRunId, "Completed", results.size(), results.size(),
-                passCount, failCount, 100.0
-        );
-        messagingTemplate.convertAndSend("/topic/test-progress", finalProgress);
-        log.info("Test run {} completed: {} passed, {} failed", testRunId, passCount, failCount);
+    private void recordAnalytics(TestRun run) {
+        // The run is already stored; a missing rollup is picked up by the next startup backfill
+        try {
+            trendRollupService.recordRun(run);
+        } catch (Exception e) {
+            log.warn("Could not update trend rollups for run {}: {}", run.getId(), e.getMessage());
+        }
+        try {
+            flakyTestService.recordRun(run);
+        } catch (Exception e) {
+            log.warn("Could not update flaky test stats for run {}: {}", run.getId(), e.getMessage());
+        }
     }
 
     private void updateRunStatus(Long dbRunId, TestRunStatus status) {
@@ -168,22 +399,45 @@ public class TestExecutionService {
         });
     }
 
-    private TestOutcome mapOutcome(String sfOutcome) {
-        if (sfOutcome == null) return TestOutcome.SKIP;
-        return switch (sfOutcome) {
-            case "Pass" -> TestOutcome.PASS;
-            case "Fail" -> TestOutcome.FAIL;
-            case "CompileFail" -> TestOutcome.COMPILE_FAIL;
-            default -> TestOutcome.SKIP;
-        };
+    private String getOrgId() {
+        return authService.getCurrentOrgId();
     }
 
-    private String getOrgId() {
-        try {
-            Map<String, Object> userInfo = authService.getUserInfo();
-            return userInfo != null ? (String) userInfo.get("organization_id") : "unknown";
-        } catch (Exception e) {
-            return "unknown";
+    // Also serves as the lock that keeps ingestion and finalization of one run from overlapping
+    private static final class RunIngestion {
+        final AtomicBoolean busy = new AtomicBoolean();
+        final AtomicBoolean abortRequested = new AtomicBoolean();
+    }
+
+    // Latest queue progress of every shard; a shard not polled yet counts its classes as queued
+    private static final class ShardProgress {
+        final Map<String, TestRunPollScheduler.QueueProgress> byJob = new ConcurrentHashMap<>();
+        final Set<String> pending = ConcurrentHashMap.newKeySet();
+        volatile boolean failed;
+
+        ShardProgress(List<TestRunShard> shards) {
+            for (TestRunShard shard : shards) {
+                byJob.put(shard.getAsyncApexJobId(),
+                        new TestRunPollScheduler.QueueProgress(shard.getClassCount(), 0, 0, 0, false));
+                pending.add(shard.getAsyncApexJobId());
+            }
+        }
+
+        void update(String jobId, TestRunPollScheduler.QueueProgress progress) {
+            byJob.put(jobId, progress);
+        }
+
+        // True for the shard that completes the run
+        boolean complete(String jobId) {
+            return pending.remove(jobId) && pending.isEmpty();
+        }
+
+        int total() {
+            return byJob.values().stream().mapToInt(TestRunPollScheduler.QueueProgress::total).sum();
+        }
+
+        int completed() {
+            return byJob.values().stream().mapToInt(TestRunPollScheduler.QueueProgress::completed).sum();
         }
     }
 }
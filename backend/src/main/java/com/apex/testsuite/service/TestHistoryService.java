@@ -1,13 +1,15 @@
 package com.apex.testsuite.service;
 
+import com.apex.testsuite.dto.RunHistoryPageDTO;
+import com.apex.testsuite.dto.RunSummaryDTO;
 import com.apex.testsuite.entity.TestRun;
-import com.apex.testsuite.repository.CoverageSnapshotRepository;
 import com.apex.testsuite.repository.TestRunRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -15,48 +17,91 @@ import java.util.*;
 public class TestHistoryService {
 
     private final TestRunRepository testRunRepository;
-    private final CoverageSnapshotRepository coverageSnapshotRepository;
+    private final TrendRollupService trendRollupService;
 
     public TestHistoryService(TestRunRepository testRunRepository,
-                              CoverageSnapshotRepository coverageSnapshotRepository) {
+                              TrendRollupService trendRollupService) {
         this.testRunRepository = testRunRepository;
-        this.coverageSnapshotRepository = coverageSnapshotRepository;
+        this.trendRollupService = trendRollupService;
     }
 
-    public Page<TestRun> getRunHistory(int page, int size) {
-        return testRunRepository.findAllByOrderByStartedAtDesc(PageRequest.of(page, size));
+    public Page<RunSummaryDTO> getRunHistory(String orgId, int page, int size) {
+        return testRunRepository.findRunSummaries(orgId, PageRequest.of(page, size));
     }
 
-    public Optional<TestRun> getRunById(Long id) {
-        return testRunRepository.findById(id);
+    /** Keyset page of an org's runs, newest first, starting after {@code cursor} (null for the first page). */
+    public RunHistoryPageDTO getRunHistoryPage(String orgId, String cursor, int size, boolean includeTotal) {
+        // One extra row tells whether another page follows without a count query
+        Pageable limit = Pageable.ofSize(size + 1);
+        List<RunSummaryDTO> runs;
+        if (cursor == null || cursor.isBlank()) {
+            runs = testRunRepository.findFirstRunSummaries(orgId, limit);
+        } else {
+            RunHistoryCursor after = RunHistoryCursor.decode(cursor);
+            runs = testRunRepository.findRunSummariesBefore(orgId, after.startedAt(), after.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (runs.size() > size) {
+            runs = runs.subList(0, size);
+            RunSummaryDTO last = runs.get(size - 1);
+            nextCursor = new RunHistoryCursor(last.startedAt(), last.id()).encode();
+        }
+        Long total = includeTotal ? testRunRepository.countByOrgId(orgId) : null;
+        return new RunHistoryPageDTO(runs, nextCursor, total);
     }
 
-    public List<Map<String, Object>> getPassRateTrend(String orgId, int days) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<TestRun> runs = testRunRepository.findCompletedRunsSince(orgId, since);
+    // Runs of other orgs look the same as missing ones
+    public Optional<TestRun> getRunById(String orgId, Long id) {
+        return testRunRepository.findByIdAndOrgId(id, orgId);
+    }
 
-        return runs.stream().map(run -> {
-            double passRate = run.getTotalTests() > 0
-                    ? (run.getPassCount() * 100.0 / run.getTotalTests()) : 0;
+    // Trends read one pre-aggregated row per day, so their cost depends on the window, not on run or coverage volume
+    public List<Map<String, Object>> getPassRateTrend(String orgId, int days) {
+        return trendRollupService.getDailyRollups(orgId, LocalDate.now().minusDays(days)).stream().map(day -> {
+            double passRate = day.getTotalTests() > 0
+                    ? (day.getPassCount() * 100.0 / day.getTotalTests()) : 0;
             Map<String, Object> point = new HashMap<>();
-            point.put("date", run.getStartedAt().toString());
+            point.put("date", day.getRollupDate().toString());
             point.put("passRate", Math.round(passRate * 100.0) / 100.0);
-            point.put("totalTests", run.getTotalTests());
-            point.put("runId", run.getId());
+            point.put("totalTests", day.getTotalTests());
+            point.put("runCount", day.getRunCount());
             return point;
         }).toList();
     }
 
     public List<Map<String, Object>> getCoverageTrend(String orgId, int days) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<TestRun> runs = testRunRepository.findCompletedRunsSince(orgId, since);
+        return trendRollupService.getDailyRollups(orgId, LocalDate.now().minusDays(days)).stream().map(day -> {
+            double coverage = day.getCoverageRunCount() > 0
+                    ? day.getCoverageSum() / day.getCoverageRunCount() : 0;
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", day.getRollupDate().toString());
+            point.put("coverage", Math.round(coverage * 100.0) / 100.0);
+            point.put("runCount", day.getRunCount());
+            return point;
+        }).toList();
+    }
+
+    // Per-run points come from projection queries: no TestRun entities are loaded and coverage is one grouped query
+    public List<Map<String, Object>> getPassRateTrendByRun(String orgId, int days) {
+        return testRunRepository.findPassRatePointsSince(orgId, LocalDateTime.now().minusDays(days)).stream().map(run -> {
+            double passRate = run.totalTests() > 0
+                    ? (run.passCount() * 100.0 / run.totalTests()) : 0;
+            Map<String, Object> point = new HashMap<>();
+            point.put("date", run.startedAt().toString());
+            point.put("passRate", Math.round(passRate * 100.0) / 100.0);
+            point.put("totalTests", run.totalTests());
+            point.put("runId", run.runId());
+            return point;
+        }).toList();
+    }
 
-        return runs.stream().map(run -> {
-            Double avgCoverage = coverageSnapshotRepository.findAverageCoverageByTestRunId(run.getId());
+    public List<Map<String, Object>> getCoverageTrendByRun(String orgId, int days) {
+        return testRunRepository.findCoveragePointsSince(orgId, LocalDateTime.now().minusDays(days)).stream().map(run -> {
             Map<String, Object> point = new HashMap<>();
-            point.put("date", run.getStartedAt().toString());
-            point.put("coverage", avgCoverage != null ? Math.round(avgCoverage * 100.0) / 100.0 : 0);
-            point.put("runId", run.getId());
+            point.put("date", run.startedAt().toString());
+            point.put("coverage", run.avgCoverage() != null ? Math.round(run.avgCoverage() * 100.0) / 100.0 : 0);
+            point.put("runId", run.runId());
             return point;
         }).toList();
     }
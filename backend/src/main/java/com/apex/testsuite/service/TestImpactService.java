@@ -0,0 +1,155 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ImpactSelectionDTO;
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import com.apex.testsuite.entity.TestImpactEdge;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.TestImpactEdgeRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Test impact index: for every test class, the classes and triggers its last run covered.
+ * Finalized runs refresh the edges of the test classes they ran, and a set of changed classes
+ * maps back to the test classes that exercise them, plus any changed test classes themselves.
+ */
+@Service
+public class TestImpactService {
+
+    // ApexClass (01p) and ApexTrigger (01q) ids, 15 or 18 characters
+    private static final Pattern CLASS_ID = Pattern.compile("^01[pq][a-zA-Z0-9]{12}([a-zA-Z0-9]{3})?$");
+    private static final String CASE_SAFE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ012345";
+
+    private final TestImpactEdgeRepository edgeRepository;
+    private final ApexClassCatalogRepository catalogRepository;
+    private final SalesforceToolingService toolingService;
+    private final SalesforceAuthService authService;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Object> orgLocks = new ConcurrentHashMap<>();
+
+    public TestImpactService(TestImpactEdgeRepository edgeRepository,
+                             ApexClassCatalogRepository catalogRepository,
+                             SalesforceToolingService toolingService,
+                             SalesforceAuthService authService,
+                             PlatformTransactionManager transactionManager) {
+        this.edgeRepository = edgeRepository;
+        this.catalogRepository = catalogRepository;
+        this.toolingService = toolingService;
+        this.authService = authService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Replaces the edges of every test class in {@code coveredByTestClass} with the classes it
+     * covered in this run. Test classes absent from the map keep their previous edges.
+     */
+    public void recordCoverage(String orgId, Long runId, Map<String, Map<String, String>> coveredByTestClass) {
+        if (orgId == null || coveredByTestClass.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Runs of one org finishing together would otherwise both re-insert the same edges. The lock
+        // only spans this instance; several instances on one database can still collide on the unique key
+        synchronized (orgLocks.computeIfAbsent(orgId, k -> new Object())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                edgeRepository.deleteByOrgIdAndTestClassIdIn(orgId, coveredByTestClass.keySet());
+                List<TestImpactEdge> edges = new ArrayList<>();
+                coveredByTestClass.forEach((testClassId, covered) -> covered.forEach((coveredId, coveredName) -> {
+                    TestImpactEdge edge = new TestImpactEdge();
+                    edge.setOrgId(orgId);
+                    edge.setTestClassId(testClassId);
+                    edge.setCoveredClassId(coveredId);
+                    edge.setCoveredClassName(coveredName);
+                    edge.setLastRunId(runId);
+                    edge.setUpdatedAt(now);
+                    edges.add(edge);
+                }));
+                edgeRepository.saveAll(edges);
+            });
+        }
+    }
+
+    /**
+     * Picks the test classes affected by {@code changedClasses} (class names or ids) and by the
+     * classes modified in Salesforce after {@code since}; either may be null, not both.
+     */
+    public ImpactSelectionDTO selectImpactedTests(Collection<String> changedClasses, Instant since) {
+        if ((changedClasses == null || changedClasses.isEmpty()) && since == null) {
+            throw new IllegalArgumentException("Impacted mode needs changedClasses or since");
+        }
+        String orgId = getOrgId();
+
+        Set<String> ids = new LinkedHashSet<>();
+        Set<String> lowerCaseNames = new LinkedHashSet<>();
+        List<String> changed = new ArrayList<>();
+        if (changedClasses != null) {
+            for (String value : changedClasses) {
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                String trimmed = value.trim();
+                changed.add(trimmed);
+                if (CLASS_ID.matcher(trimmed).matches()) {
+                    ids.add(toCaseSafeId(trimmed));
+                } else {
+                    lowerCaseNames.add(trimmed.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        if (since != null) {
+            toolingService.getClassesModifiedSince(since).forEach((id, name) -> {
+                ids.add(id);
+                changed.add(name);
+            });
+        }
+
+        // An empty IN list is not valid SQL; "" never matches an id or a name
+        Collection<String> idParam = ids.isEmpty() ? List.of("") : ids;
+        Collection<String> nameParam = lowerCaseNames.isEmpty() ? List.of("") : lowerCaseNames;
+
+        Set<String> testClassIds = new LinkedHashSet<>(edgeRepository.findTestClassIdsCovering(orgId, idParam, nameParam));
+        // A changed test class is affected by definition, even before the index has edges for it
+        for (ApexClassCatalogEntry entry : catalogRepository.findByOrgIdAndIdsOrNames(orgId, idParam, nameParam)) {
+            if (entry.isTestClass()) {
+                testClassIds.add(entry.getClassId());
+            }
+        }
+
+        List<String> names = testClassIds.isEmpty() ? List.of()
+                : catalogRepository.findByOrgIdAndClassIdIn(orgId, testClassIds).stream()
+                        .map(ApexClassCatalogEntry::getName)
+                        .sorted()
+                        .toList();
+        return new ImpactSelectionDTO(changed, new ArrayList<>(testClassIds), names, edgeRepository.countByOrgId(orgId));
+    }
+
+    // The index stores 18-character ids as returned by the API; users often paste the 15-character form
+    static String toCaseSafeId(String id) {
+        if (id.length() != 15) {
+            return id;
+        }
+        StringBuilder suffix = new StringBuilder(3);
+        for (int chunk = 0; chunk < 3; chunk++) {
+            int bits = 0;
+            for (int i = 0; i < 5; i++) {
+                char c = id.charAt(chunk * 5 + i);
+                if (c >= 'A' && c <= 'Z') {
+                    bits |= 1 << i;
+                }
+            }
+            suffix.append(CASE_SAFE_CHARS.charAt(bits));
+        }
+        return id + suffix;
+    }
+
+    private String getOrgId() {
+        return authService.getCurrentOrgId();
+    }
+}
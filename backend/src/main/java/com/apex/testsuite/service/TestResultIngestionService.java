@@ -0,0 +1,331 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.TestResultDTO;
+import com.apex.testsuite.entity.*;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import com.apex.testsuite.repository.TestResultRepository;
+import com.apex.testsuite.repository.TestRunRepository;
+import com.apex.testsuite.repository.TestRunShardRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Moves a run's results and coverage from the Tooling API into the database in fixed-size chunks.
+ * Rows are streamed page by page, and each chunk is committed in its own transaction together
+ * with the run's watermark and counters, after which the persistence context is cleared. Heap use
+ * stays bounded by the chunk size however many test methods or covered classes a run has, and no
+ * transaction is held open while waiting on Salesforce. For a sharded run the watermark and counters are kept
+ * per shard, and the run's counters are their sum.
+ */
+@Service
+public class TestResultIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TestResultIngestionService.class);
+    private static final int CHUNK_SIZE = 1000;
+
+    private final SalesforceToolingService toolingService;
+    private final TestRunRepository testRunRepository;
+    private final TestResultRepository testResultRepository;
+    private final TestRunShardRepository shardRepository;
+    private final CoverageSnapshotRepository coverageSnapshotRepository;
+    private final TestRunBulkWriter bulkWriter;
+    private final FailureTextStore failureTextStore;
+    private final TestImpactService testImpactService;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TestResultIngestionService(SalesforceToolingService toolingService,
+                                      TestRunRepository testRunRepository,
+                                      TestResultRepository testResultRepository,
+                                      TestRunShardRepository shardRepository,
+                                      CoverageSnapshotRepository coverageSnapshotRepository,
+                                      TestRunBulkWriter bulkWriter,
+                                      FailureTextStore failureTextStore,
+                                      TestImpactService testImpactService,
+                                      PlatformTransactionManager transactionManager) {
+        this.toolingService = toolingService;
+        this.testRunRepository = testRunRepository;
+        this.testResultRepository = testResultRepository;
+        this.shardRepository = shardRepository;
+        this.coverageSnapshotRepository = coverageSnapshotRepository;
+        this.bulkWriter = bulkWriter;
+        this.failureTextStore = failureTextStore;
+        this.testImpactService = testImpactService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stores results of job {@code testRunId} that landed since its watermark and advances the
+     * run's live counters. Returns the run as it stands afterwards, or null if it no longer exists.
+     */
+    public TestRun ingestNewResults(String testRunId, Long dbRunId) {
+        TestRun run = testRunRepository.findById(dbRunId).orElse(null);
+        if (run == null) {
+            return null;
+        }
+        TestRunShard shard = run.getShardCount() > 1
+                ? shardRepository.findByAsyncApexJobId(testRunId).orElse(null) : null;
+        Long shardId = shard != null ? shard.getId() : null;
+        String watermark = shard != null ? shard.getLastResultId() : run.getLastResultId();
+
+        List<SalesforceToolingService.TestResultRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (Stream<SalesforceToolingService.TestResultRow> rows =
+                     toolingService.streamTestResultsAfter(testRunId, watermark)) {
+            for (SalesforceToolingService.TestResultRow row : (Iterable<SalesforceToolingService.TestResultRow>) rows::iterator) {
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    commitResultChunk(dbRunId, shardId, chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+        commitResultChunk(dbRunId, shardId, chunk);
+        return testRunRepository.findById(dbRunId).orElse(null);
+    }
+
+    /**
+     * Picks up the results not yet ingested, checks the stored count against Salesforce, stores
+     * coverage and marks the run completed (an aborted run stays aborted). Returns the run, or null
+     * if it no longer exists.
+     */
+    public TestRun finalizeRun(String testRunId, Long dbRunId) {
+        TestRun run = ingestNewResults(testRunId, dbRunId);
+        if (run == null) {
+            return null;
+        }
+
+        // Result ids only roughly follow completion order; if the watermark skipped a late row, start over
+        int expected = toolingService.countTestResults(testRunId);
+        if (expected != run.getTotalTests()) {
+            log.warn("Test run {} ingested {} of {} results, re-reading all", testRunId, run.getTotalTests(), expected);
+            transactionTemplate.executeWithoutResult(status -> {
+                testResultRepository.deleteByTestRunId(dbRunId);
+                testRunRepository.resetIngestion(dbRunId);
+            });
+            ingestNewResults(testRunId, dbRunId);
+        }
+
+        try {
+            ingestCoverage(List.of(testRunId), run);
+        } catch (Exception e) {
+            log.warn("Could not fetch code coverage for {}: {}", testRunId, e.getMessage());
+        }
+        return markCompleted(dbRunId);
+    }
+
+    /**
+     * The per-shard part of {@link #finalizeRun}: picks up the shard's remaining results and
+     * checks its count against Salesforce. Returns the run, or null if it no longer exists.
+     */
+    public TestRun finalizeShard(String testRunId, Long dbRunId) {
+        TestRun run = ingestNewResults(testRunId, dbRunId);
+        TestRunShard shard = shardRepository.findByAsyncApexJobId(testRunId).orElse(null);
+        if (run == null || shard == null) {
+            return run;
+        }
+
+        int expected = toolingService.countTestResults(testRunId);
+        if (expected != shard.getTotalTests()) {
+            log.warn("Shard {} of run {} ingested {} of {} results, re-reading the shard",
+                    testRunId, dbRunId, shard.getTotalTests(), expected);
+            transactionTemplate.executeWithoutResult(status -> {
+                testResultRepository.deleteByTestRunIdAndShardId(dbRunId, shard.getId());
+                testRunRepository.addIngestedCounts(dbRunId, -shard.getTotalTests(), -shard.getPassCount(), -shard.getFailCount());
+                shardRepository.resetIngestion(shard.getId());
+            });
+            run = ingestNewResults(testRunId, dbRunId);
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                shardRepository.updateStatus(shard.getId(), TestRunStatus.COMPLETED, LocalDateTime.now()));
+        return run;
+    }
+
+    /**
+     * Once every shard is finalized: stores the coverage of all shards and marks the run completed.
+     * Returns the completed run, or null if it no longer exists.
+     */
+    public TestRun completeShardedRun(Long dbRunId) {
+        TestRun run = testRunRepository.findById(dbRunId).orElse(null);
+        if (run == null) {
+            return null;
+        }
+        List<String> jobIds = shardRepository.findByTestRunIdOrderByShardIndexAsc(dbRunId).stream()
+                .map(TestRunShard::getAsyncApexJobId)
+                .toList();
+        try {
+            ingestCoverage(jobIds, run);
+        } catch (Exception e) {
+            log.warn("Could not fetch code coverage for run {}: {}", dbRunId, e.getMessage());
+        }
+        return markCompleted(dbRunId);
+    }
+
+    private TestRun markCompleted(Long dbRunId) {
+        return transactionTemplate.execute(status -> {
+            TestRun completed = testRunRepository.findById(dbRunId).orElse(null);
+            if (completed != null) {
+                if (completed.getStatus() != TestRunStatus.ABORTED) {
+                    completed.setStatus(TestRunStatus.COMPLETED);
+                }
+                completed.setCompletedAt(LocalDateTime.now());
+            }
+            return completed;
+        });
+    }
+
+    private void ingestCoverage(List<String> testRunIds, TestRun run) {
+        // Fast runs are started with skipCodeCoverage, so Salesforce has nothing to return
+        if (run.getProfile() == RunProfile.FAST) {
+            return;
+        }
+        Long dbRunId = run.getId();
+        // Start from a clean slate so a retried finalization does not duplicate snapshots
+        transactionTemplate.executeWithoutResult(status -> coverageSnapshotRepository.deleteByTestRunId(dbRunId));
+
+        // Test class id -> covered class id -> covered class name, for the impact index. A test
+        // class's edges are only complete at the end of the stream, so this holds one pair of ids
+        // per edge: as many entries as the run writes to test_impact_edges
+        Map<String, Map<String, String>> coveredByTestClass = new HashMap<>();
+        // Salesforce reports each class once per test class that touched it; the run keeps one
+        // snapshot per class with the union of their lines. Rows arrive ordered by class name, so
+        // a class is complete once the name changes, and at most a chunk of merged classes is held
+        Map<String, ClassLineCoverage> current = new HashMap<>();
+        List<ClassLineCoverage> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (Stream<SalesforceToolingService.CoverageRow> coverage = toolingService.streamCoverageRows(testRunIds)) {
+            String lastName = null;
+            for (SalesforceToolingService.CoverageRow row : (Iterable<SalesforceToolingService.CoverageRow>) coverage::iterator) {
+                String name = row.coverage().classOrTriggerName();
+                if (!name.equals(lastName)) {
+                    chunk.addAll(current.values());
+                    current.clear();
+                    lastName = name;
+                    if (chunk.size() >= CHUNK_SIZE) {
+                        commitCoverageChunk(dbRunId, chunk);
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+                if (row.testClassId() != null && row.coveredClassId() != null) {
+                    coveredByTestClass.computeIfAbsent(row.testClassId(), k -> new HashMap<>())
+                            .put(row.coveredClassId(), name);
+                }
+                // A class and a trigger may share a name
+                current.computeIfAbsent(row.coveredClassId() != null ? row.coveredClassId() : name,
+                                k -> new ClassLineCoverage(row.coveredClassId(), name))
+                        .add(toBitSet(row.coveredLines()), toBitSet(row.uncoveredLines()),
+                                row.coverage().linesCovered(), row.coverage().linesUncovered());
+            }
+            chunk.addAll(current.values());
+            commitCoverageChunk(dbRunId, chunk);
+        } catch (RuntimeException e) {
+            // No partial coverage: the run is reported without any, as when the first page fails
+            transactionTemplate.executeWithoutResult(status -> coverageSnapshotRepository.deleteByTestRunId(dbRunId));
+            throw e;
+        }
+        testImpactService.recordCoverage(run.getOrgId(), dbRunId, coveredByTestClass);
+    }
+
+    private void commitResultChunk(Long dbRunId, Long shardId, List<SalesforceToolingService.TestResultRow> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Texts are committed first, so the chunk only has to reference them by hash
+        List<String> texts = new ArrayList<>(chunk.size() * 2);
+        for (SalesforceToolingService.TestResultRow row : chunk) {
+            texts.add(row.result().message());
+            texts.add(row.result().stackTrace());
+        }
+        Map<String, String> hashes = failureTextStore.internAll(texts);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            TestRun runRef = testRunRepository.getReferenceById(dbRunId);
+            List<TestResult> results = new ArrayList<>(chunk.size());
+            int passCount = 0;
+            int failCount = 0;
+            for (SalesforceToolingService.TestResultRow row : chunk) {
+                TestResultDTO dto = row.result();
+                if ("Pass".equals(dto.outcome())) passCount++;
+                else if ("Fail".equals(dto.outcome())) failCount++;
+
+                TestResult result = new TestResult();
+                result.setClassName(dto.className());
+                result.setMethodName(dto.methodName());
+                result.setOutcome(mapOutcome(dto.outcome()));
+                result.setMessageText(failureTextStore.reference(hashes.get(dto.message())));
+                result.setStackTraceText(failureTextStore.reference(hashes.get(dto.stackTrace())));
+                result.setRunTimeMs(dto.runTimeMs());
+                result.setShardId(shardId);
+                result.setTestRun(runRef);
+                results.add(result);
+            }
+            bulkWriter.writeResults(results);
+            entityManager.flush();
+            entityManager.clear();
+
+            // Rows and watermark commit together, so a failed chunk is simply fetched again next time
+            String lastResultId = chunk.get(chunk.size() - 1).id();
+            if (shardId != null) {
+                shardRepository.advanceIngestion(shardId, lastResultId, chunk.size(), passCount, failCount);
+                testRunRepository.addIngestedCounts(dbRunId, chunk.size(), passCount, failCount);
+            } else {
+                testRunRepository.advanceIngestion(dbRunId, lastResultId, chunk.size(), passCount, failCount);
+            }
+            testRunRepository.updateStatusIfCurrent(dbRunId, TestRunStatus.QUEUED, TestRunStatus.PROCESSING);
+        });
+    }
+
+    private void commitCoverageChunk(Long dbRunId, List<ClassLineCoverage> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            TestRun runRef = testRunRepository.getReferenceById(dbRunId);
+            List<CoverageSnapshot> snapshots = new ArrayList<>(chunk.size());
+            for (ClassLineCoverage coverage : chunk) {
+                CoverageSnapshot snapshot = new CoverageSnapshot();
+                snapshot.setClassName(coverage.className());
+                snapshot.setClassId(coverage.classId());
+                snapshot.setLinesCovered(coverage.linesCovered());
+                snapshot.setLinesUncovered(coverage.linesUncovered());
+                snapshot.setCoveragePercent(coverage.coveragePercent());
+                snapshot.setCoveredLines(coverage.coveredLines());
+                snapshot.setUncoveredLines(coverage.uncoveredLines());
+                snapshot.setTestRun(runRef);
+                snapshots.add(snapshot);
+            }
+            bulkWriter.writeCoverage(snapshots);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private static BitSet toBitSet(int[] lines) {
+        BitSet bits = new BitSet();
+        for (int line : lines) {
+            if (line >= 0) {
+                bits.set(line);
+            }
+        }
+        return bits;
+    }
+
+    private TestOutcome mapOutcome(String sfOutcome) {
+        if (sfOutcome == null) return TestOutcome.SKIP;
+        return switch (sfOutcome) {
+            case "Pass" -> TestOutcome.PASS;
+            case "Fail" -> TestOutcome.FAIL;
+            case "CompileFail" -> TestOutcome.COMPILE_FAIL;
+            default -> TestOutcome.SKIP;
+        };
+    }
+}
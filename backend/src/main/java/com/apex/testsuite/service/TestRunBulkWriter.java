@@ -0,0 +1,176 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.config.IdSequenceInitializer;
+import com.apex.testsuite.entity.CoverageSnapshot;
+import com.apex.testsuite.entity.LineBitmapConverter;
+import com.apex.testsuite.entity.TestResult;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import com.apex.testsuite.repository.TestResultRepository;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Writes test result and coverage rows for a run in bulk. Small batches go through JPA, which
+ * Hibernate turns into JDBC insert batches thanks to the pooled sequence ids. Large batches on
+ * PostgreSQL are streamed with {@code COPY ... FROM STDIN} on the transaction's connection, with
+ * ids drawn from the same sequences.
+ */
+@Component
+public class TestRunBulkWriter {
+
+    private interface CsvRow<T> {
+        void append(T row, long id, StringBuilder csv);
+    }
+
+    private final DataSource dataSource;
+    private final TestResultRepository testResultRepository;
+    private final CoverageSnapshotRepository coverageSnapshotRepository;
+    private volatile Boolean postgres;
+
+    @Value("${app.persistence.copy-threshold:500}")
+    private int copyThreshold;
+
+    public TestRunBulkWriter(DataSource dataSource,
+                             TestResultRepository testResultRepository,
+                             CoverageSnapshotRepository coverageSnapshotRepository) {
+        this.dataSource = dataSource;
+        this.testResultRepository = testResultRepository;
+        this.coverageSnapshotRepository = coverageSnapshotRepository;
+    }
+
+    public void writeResults(List<TestResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        if (results.size() < copyThreshold || !isPostgres()) {
+            testResultRepository.saveAll(results);
+            return;
+        }
+        copy("test_results",
+                "id, class_name, method_name, outcome, message_hash, stack_trace_hash, run_time_ms, shard_id, test_run_id",
+                "test_results_seq", results, (r, id, csv) -> {
+                    csv.append(id).append(',');
+                    appendText(csv, r.getClassName()).append(',');
+                    appendText(csv, r.getMethodName()).append(',');
+                    appendText(csv, r.getOutcome() != null ? r.getOutcome().name() : null).append(',');
+                    // Reading the id of a reference does not load the text
+                    appendText(csv, r.getMessageText() != null ? r.getMessageText().getHash() : null).append(',');
+                    appendText(csv, r.getStackTraceText() != null ? r.getStackTraceText().getHash() : null).append(',');
+                    csv.append(r.getRunTimeMs()).append(',');
+                    if (r.getShardId() != null) {
+                        csv.append(r.getShardId());
+                    }
+                    csv.append(',');
+                    csv.append(r.getTestRun().getId()).append('\n');
+                });
+    }
+
+    public void writeCoverage(List<CoverageSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        if (snapshots.size() < copyThreshold || !isPostgres()) {
+            coverageSnapshotRepository.saveAll(snapshots);
+            return;
+        }
+        copy("coverage_snapshots",
+                "id, class_name, class_id, lines_covered, lines_uncovered, coverage_percent, covered_lines, uncovered_lines, test_run_id",
+                "coverage_snapshots_seq", snapshots, (c, id, csv) -> {
+                    csv.append(id).append(',');
+                    appendText(csv, c.getClassName()).append(',');
+                    appendText(csv, c.getClassId()).append(',');
+                    csv.append(c.getLinesCovered()).append(',');
+                    csv.append(c.getLinesUncovered()).append(',');
+                    csv.append(c.getCoveragePercent()).append(',');
+                    appendBytes(csv, LineBitmapConverter.encode(c.getCoveredLines())).append(',');
+                    appendBytes(csv, LineBitmapConverter.encode(c.getUncoveredLines())).append(',');
+                    csv.append(c.getTestRun().getId()).append('\n');
+                });
+    }
+
+    private <T> void copy(String table, String columns, String sequence, List<T> rows, CsvRow<T> writer) {
+        // Joins the surrounding transaction's connection so the copy commits or rolls back with it
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            List<Long> ids = allocateIds(connection, sequence, rows.size());
+            StringBuilder csv = new StringBuilder(rows.size() * 128);
+            for (int i = 0; i < rows.size(); i++) {
+                writer.append(rows.get(i), ids.get(i), csv);
+            }
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(csv.toString()));
+        } catch (SQLException | IOException e) {
+            throw new DataAccessResourceFailureException("Bulk copy into " + table + " failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // Each sequence value v reserves the block v-49..v, the same way Hibernate's pooled optimizer reads it
+    private List<Long> allocateIds(Connection connection, String sequence, int count) throws SQLException {
+        int blockSize = IdSequenceInitializer.ALLOCATION_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)")) {
+            ps.setInt(1, count / blockSize + 2);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && ids.size() < count) {
+                    long hi = rs.getLong(1);
+                    for (long id = Math.max(1, hi - blockSize + 1); id <= hi && ids.size() < count; id++) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static StringBuilder appendText(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+
+    // bytea in its hex input form
+    private static StringBuilder appendBytes(StringBuilder csv, byte[] value) {
+        if (value == null) {
+            return csv;
+        }
+        return csv.append("\\x").append(HexFormat.of().formatHex(value));
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            } catch (SQLException e) {
+                postgres = false;
+            }
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,190 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.TestResultPageDTO;
+import com.apex.testsuite.dto.TestResultRowDTO;
+import com.apex.testsuite.entity.TestOutcome;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads a run's test results a page or a stream at a time, optionally filtered by outcome and
+ * class. Pages are keyset pages over the chosen sort order, so a page deep into a large run
+ * costs the same as the first one.
+ */
+@Service
+public class TestRunDetailService {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String CURSOR_SEPARATOR = "\u001f";
+
+    public enum ResultSort {
+        // Class, then method: the order the run detail page lists results in
+        NAME,
+        // Slowest first
+        RUNTIME
+    }
+
+    public record ResultFilter(TestOutcome outcome, String className, ResultSort sort) {
+    }
+
+    private final FailureTextStore failureTextStore;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TestRunDetailService(FailureTextStore failureTextStore, PlatformTransactionManager transactionManager) {
+        this.failureTextStore = failureTextStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public TestResultPageDTO getResultPage(Long runId, ResultFilter filter, String cursor, int size,
+                                           boolean includeStackTrace) {
+        TypedQuery<Object[]> query = buildQuery(runId, filter, cursor, includeStackTrace);
+        // One extra row tells whether another page follows
+        query.setMaxResults(size + 1);
+        List<TestResultRowDTO> rows = toRows(query.getResultList(), includeStackTrace);
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = encodeCursor(filter.sort(), rows.get(size - 1));
+        }
+        return new TestResultPageDTO(rows, nextCursor);
+    }
+
+    /**
+     * Hands every matching result to {@code sink} in sort order, reading from a database cursor
+     * so that no more than one fetch's worth of rows is held in memory.
+     */
+    public void streamResults(Long runId, ResultFilter filter, boolean includeStackTrace,
+                              Consumer<TestResultRowDTO> sink) {
+        // The cursor needs an open transaction; PostgreSQL only fetches in batches with autocommit off
+        readOnlyTransaction.executeWithoutResult(status -> {
+            TypedQuery<Object[]> query = buildQuery(runId, filter, null, includeStackTrace);
+            query.setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE);
+            query.setHint("org.hibernate.readOnly", true);
+            List<Object[]> batch = new ArrayList<>(STREAM_FETCH_SIZE);
+            try (Stream<Object[]> rows = query.getResultStream()) {
+                for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                    batch.add(row);
+                    if (batch.size() == STREAM_FETCH_SIZE) {
+                        toRows(batch, includeStackTrace).forEach(sink);
+                        batch.clear();
+                    }
+                }
+            }
+            toRows(batch, includeStackTrace).forEach(sink);
+        });
+    }
+
+    // Texts are resolved per batch of rows, one lookup for all hashes not already cached
+    private List<TestResultRowDTO> toRows(List<Object[]> tuples, boolean includeStackTrace) {
+        Set<String> hashes = new HashSet<>();
+        for (Object[] tuple : tuples) {
+            hashes.add((String) tuple[5]);
+            if (includeStackTrace) {
+                hashes.add((String) tuple[7]);
+            }
+        }
+        hashes.remove(null);
+        Map<String, String> texts = hashes.isEmpty() ? Map.of() : failureTextStore.resolveAll(hashes);
+
+        List<TestResultRowDTO> rows = new ArrayList<>(tuples.size());
+        for (Object[] tuple : tuples) {
+            String message = tuple[5] != null ? texts.get(tuple[5]) : (String) tuple[6];
+            String stackTrace = null;
+            if (includeStackTrace) {
+                stackTrace = tuple[7] != null ? texts.get(tuple[7]) : (String) tuple[8];
+            }
+            rows.add(new TestResultRowDTO((Long) tuple[0], (String) tuple[1], (String) tuple[2],
+                    (TestOutcome) tuple[3], message, stackTrace, (Long) tuple[4]));
+        }
+        return rows;
+    }
+
+    private TypedQuery<Object[]> buildQuery(Long runId, ResultFilter filter, String cursor, boolean includeStackTrace) {
+        // Inline message/stackTrace are only set on rows that predate failure_texts
+        StringBuilder jpql = new StringBuilder(
+                "SELECT r.id, r.className, r.methodName, r.outcome, r.runTimeMs, r.messageText.hash, r.message");
+        if (includeStackTrace) {
+            jpql.append(", r.stackTraceText.hash, r.stackTrace");
+        }
+        jpql.append(" FROM TestResult r WHERE r.testRun.id = :runId");
+        Map<String, Object> params = new HashMap<>();
+        params.put("runId", runId);
+        if (filter.outcome() != null) {
+            jpql.append(" AND r.outcome = :outcome");
+            params.put("outcome", filter.outcome());
+        }
+        if (filter.className() != null && !filter.className().isBlank()) {
+            jpql.append(" AND r.className = :className");
+            params.put("className", filter.className());
+        }
+
+        List<String> after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor, filter.sort()) : null;
+        if (filter.sort() == ResultSort.RUNTIME) {
+            if (after != null) {
+                jpql.append(" AND (r.runTimeMs < :afterRunTime OR (r.runTimeMs = :afterRunTime AND r.id < :afterId))");
+                params.put("afterRunTime", parseLong(after.get(0)));
+                params.put("afterId", parseLong(after.get(1)));
+            }
+            jpql.append(" ORDER BY r.runTimeMs DESC, r.id DESC");
+        } else {
+            if (after != null) {
+                jpql.append(" AND (r.className > :afterClass OR (r.className = :afterClass AND (r.methodName > :afterMethod "
+                        + "OR (r.methodName = :afterMethod AND r.id > :afterId))))");
+                params.put("afterClass", after.get(0));
+                params.put("afterMethod", after.get(1));
+                params.put("afterId", parseLong(after.get(2)));
+            }
+            jpql.append(" ORDER BY r.className ASC, r.methodName ASC, r.id ASC");
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(query::setParameter);
+        return query;
+    }
+
+    private static String encodeCursor(ResultSort sort, TestResultRowDTO last) {
+        List<String> values = sort == ResultSort.RUNTIME
+                ? List.of(String.valueOf(last.runTimeMs()), String.valueOf(last.id()))
+                : List.of(Objects.toString(last.className(), ""), Objects.toString(last.methodName(), ""),
+                        String.valueOf(last.id()));
+        String raw = sort.name() + CURSOR_SEPARATOR + String.join(CURSOR_SEPARATOR, values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> decodeCursor(String cursor, ResultSort sort) {
+        List<String> parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = Arrays.asList(raw.split(CURSOR_SEPARATOR, -1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        int expected = sort == ResultSort.RUNTIME ? 3 : 4;
+        if (parts.size() != expected || !sort.name().equals(parts.get(0))) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort.name().toLowerCase(Locale.ROOT));
+        }
+        return parts.subList(1, parts.size());
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor value: " + value);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.apex.testsuite.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monitors every in-flight test run from a single registry. A dispatcher tick on a small
+ * scheduled pool picks the runs whose next poll is due and polls their queue status, so no
+ * thread sleeps between polls. In batched mode all runs that are due, or nearly due, share one
+ * {@code ParentJobId IN (...)} query per tick instead of one query each. Each run's interval
+ * adapts: it stays short while the run starts, whenever items complete and once the run is
+ * nearly done, and doubles up to a ceiling while the queue is static. Every run is polled with
+ * the Salesforce session that started it, so a batch only combines runs of the same session.
+ * A run times out only when no item has completed for {@code app.polling.timeout}, so a long
+ * run that keeps making progress is tracked until it finishes.
+ */
+@Component
+public class TestRunPollScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(TestRunPollScheduler.class);
+    private static final int WARMUP_POLLS = 3;
+    private static final int MAX_CONSECUTIVE_ERRORS = 3;
+    private static final double NEAR_DONE_RATIO = 0.9;
+
+    /** Callbacks for one tracked run; invoked on a poll thread, so they should return quickly. */
+    public interface RunListener {
+        void onProgress(QueueProgress progress);
+
+        void onComplete(QueueProgress progress);
+
+        void onTimeout();
+
+        void onError(Exception e);
+    }
+
+    // Aborted items count as completed: they will not run, so they no longer hold the run open
+    public record QueueProgress(int total, int completed, int failed, int aborted, boolean done) {
+    }
+
+    private final SalesforceToolingService toolingService;
+    private final SalesforceSessionResolver sessionResolver;
+    private final Map<String, ActiveRun> activeRuns = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @Value("${app.polling.threads:4}")
+    private int threads;
+
+    @Value("${app.polling.tick:250ms}")
+    private Duration tick;
+
+    @Value("${app.polling.min-interval:1s}")
+    private Duration minInterval;
+
+    @Value("${app.polling.max-interval:15s}")
+    private Duration maxInterval;
+
+    // Idle timeout: measured from the last time a queue item completed, not from the start
+    @Value("${app.polling.timeout:6m}")
+    private Duration timeout;
+
+    @Value("${app.polling.batched:true}")
+    private boolean batched;
+
+    public TestRunPollScheduler(SalesforceToolingService toolingService, SalesforceSessionResolver sessionResolver) {
+        this.toolingService = toolingService;
+        this.sessionResolver = sessionResolver;
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "test-poll-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        scheduler = Executors.newScheduledThreadPool(threads, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::dispatch, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Tracks one async job, polled as session {@code sessionId}; a sharded run tracks each of
+     * its jobs separately. Listener callbacks for a poll run bound to that session too.
+     */
+    public void track(String testRunId, String sessionId, RunListener listener) {
+        ActiveRun run = new ActiveRun(testRunId, sessionId, listener, System.currentTimeMillis());
+        run.reschedule(minInterval.toMillis());
+        activeRuns.put(testRunId, run);
+    }
+
+    public int getActiveRunCount() {
+        return activeRuns.size();
+    }
+
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        try {
+            boolean anyDue = false;
+            for (ActiveRun run : activeRuns.values()) {
+                if (now - run.lastProgressAtMs > timeout.toMillis()) {
+                    if (!activeRuns.remove(run.testRunId, run)) continue;
+                    log.warn("Test run {} timed out: no queue item completed for {}", run.testRunId, timeout);
+                    notify(run, () -> run.listener.onTimeout());
+                } else if (run.nextPollAtMs <= now) {
+                    anyDue = true;
+                }
+            }
+            if (!anyDue) {
+                return;
+            }
+
+            // A batch is paid for anyway, so runs due within half the minimum interval ride along
+            long horizon = batched ? now + minInterval.toMillis() / 2 : now;
+            Map<String, List<ActiveRun>> dueBySession = new HashMap<>();
+            for (ActiveRun run : activeRuns.values()) {
+                if (run.nextPollAtMs <= horizon && run.inFlight.compareAndSet(false, true)) {
+                    dueBySession.computeIfAbsent(run.sessionId, k -> new ArrayList<>()).add(run);
+                }
+            }
+            dueBySession.forEach((sessionId, due) -> {
+                if (batched) {
+                    scheduler.execute(() -> sessionResolver.runAs(sessionId, () -> pollBatch(due)));
+                } else {
+                    due.forEach(run -> scheduler.execute(() -> sessionResolver.runAs(sessionId, () -> poll(run))));
+                }
+            });
+        } catch (Exception e) {
+            // An exception escaping here would cancel the periodic dispatcher
+            log.error("Poll dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void poll(ActiveRun run) {
+        try {
+            Map<String, Object> queueStatus = toolingService.getTestQueueStatus(run.testRunId);
+            handleRecords(run, (List<Map<String, Object>>) queueStatus.get("records"));
+        } catch (Exception e) {
+            handleError(run, e);
+        } finally {
+            run.inFlight.set(false);
+        }
+    }
+
+    private void pollBatch(List<ActiveRun> runs) {
+        try {
+            Map<String, List<Map<String, Object>>> recordsByRunId =
+                    toolingService.getTestQueueStatuses(runs.stream().map(r -> r.testRunId).toList());
+            for (ActiveRun run : runs) {
+                handleRecords(run, recordsByRunId.get(run.testRunId));
+            }
+        } catch (Exception e) {
+            runs.forEach(run -> handleError(run, e));
+        } finally {
+            runs.forEach(run -> run.inFlight.set(false));
+        }
+    }
+
+    private void handleRecords(ActiveRun run, List<Map<String, Object>> records) {
+        run.consecutiveErrors = 0;
+        run.polls++;
+
+        if (records == null || records.isEmpty()) {
+            run.reschedule(minInterval.toMillis());
+            return;
+        }
+
+        QueueProgress progress = summarize(records);
+        if (progress.done()) {
+            if (activeRuns.remove(run.testRunId, run)) {
+                notify(run, () -> run.listener.onComplete(progress));
+            }
+            return;
+        }
+        notify(run, () -> run.listener.onProgress(progress));
+        run.reschedule(nextInterval(run, progress));
+        if (progress.completed() > run.lastCompleted) {
+            run.lastProgressAtMs = System.currentTimeMillis();
+        }
+        run.lastCompleted = progress.completed();
+    }
+
+    private void handleError(ActiveRun run, Exception e) {
+        if (++run.consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+            if (activeRuns.remove(run.testRunId, run)) {
+                log.error("Error polling test run {}: {}", run.testRunId, e.getMessage());
+                notify(run, () -> run.listener.onError(e));
+            }
+            return;
+        }
+        log.warn("Poll of test run {} failed ({} in a row): {}", run.testRunId, run.consecutiveErrors, e.getMessage());
+        run.reschedule(Math.min(run.intervalMs * 2, maxInterval.toMillis()));
+    }
+
+    private long nextInterval(ActiveRun run, QueueProgress progress) {
+        boolean nearlyDone = progress.completed() >= progress.total() * NEAR_DONE_RATIO;
+        if (run.polls <= WARMUP_POLLS || nearlyDone || progress.completed() > run.lastCompleted) {
+            return minInterval.toMillis();
+        }
+        return Math.min(Math.max(run.intervalMs, minInterval.toMillis()) * 2, maxInterval.toMillis());
+    }
+
+    private static QueueProgress summarize(List<Map<String, Object>> records) {
+        int completed = 0;
+        int failed = 0;
+        int aborted = 0;
+        boolean allDone = true;
+        for (Map<String, Object> item : records) {
+            String status = (String) item.get("Status");
+            if ("Completed".equals(status)) {
+                completed++;
+            } else if ("Failed".equals(status)) {
+                completed++;
+                failed++;
+            } else if ("Aborted".equals(status)) {
+                completed++;
+                aborted++;
+            } else {
+                allDone = false;
+            }
+        }
+        return new QueueProgress(records.size(), completed, failed, aborted, allDone);
+    }
+
+    private static void notify(ActiveRun run, Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.error("Listener for test run {} failed: {}", run.testRunId, e.getMessage());
+        }
+    }
+
+    // Mutable fields are only touched by the poll that holds inFlight
+    private static final class ActiveRun {
+        final String testRunId;
+        final String sessionId;
+        final RunListener listener;
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        volatile long nextPollAtMs;
+        // Read by the dispatcher for the idle timeout
+        volatile long lastProgressAtMs;
+        long intervalMs;
+        int polls;
+        int lastCompleted;
+        int consecutiveErrors;
+
+        ActiveRun(String testRunId, String sessionId, RunListener listener, long trackedAtMs) {
+            this.testRunId = testRunId;
+            this.sessionId = sessionId;
+            this.listener = listener;
+            this.lastProgressAtMs = trackedAtMs;
+        }
+
+        void reschedule(long intervalMs) {
+            this.intervalMs = intervalMs;
+            this.nextPollAtMs = System.currentTimeMillis() + intervalMs;
+        }
+    }
+}
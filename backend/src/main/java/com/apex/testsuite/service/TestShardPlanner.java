@@ -0,0 +1,116 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ClassRuntimePoint;
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.TestResultRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Splits a selection of test classes into shards of about equal expected runtime. A class is
+ * expected to take what it took on average in the org's recent runs; classes without history
+ * are assumed to take the median of those with history. Classes are then assigned longest
+ * first, each to the shard with the least work so far (LPT), which keeps the slowest shard
+ * within a third of the optimum and in practice much closer.
+ */
+@Service
+public class TestShardPlanner {
+
+    public record Shard(List<String> classIds, long estimatedMs) {
+    }
+
+    private final ApexClassCatalogRepository catalogRepository;
+    private final TestResultRepository testResultRepository;
+
+    @Value("${app.sharding.max-shards:5}")
+    private int maxShards;
+
+    @Value("${app.sharding.history-days:30}")
+    private int historyDays;
+
+    @Value("${app.sharding.default-class-ms:1000}")
+    private long defaultClassMs;
+
+    public TestShardPlanner(ApexClassCatalogRepository catalogRepository, TestResultRepository testResultRepository) {
+        this.catalogRepository = catalogRepository;
+        this.testResultRepository = testResultRepository;
+    }
+
+    /** Plans at most {@code shards} shards (capped by configuration and by the number of classes). */
+    public List<Shard> plan(String orgId, List<String> classIds, int shards) {
+        List<String> ids = classIds.stream().distinct().toList();
+        int count = Math.min(Math.min(shards, maxShards), ids.size());
+        if (count <= 1) {
+            return List.of(new Shard(ids, 0));
+        }
+        return assign(estimate(orgId, ids), count);
+    }
+
+    private Map<String, Long> estimate(String orgId, List<String> classIds) {
+        Map<String, String> namesById = new HashMap<>();
+        for (ApexClassCatalogEntry entry : catalogRepository.findByOrgIdAndClassIdIn(orgId,
+                classIds.stream().map(TestImpactService::toCaseSafeId).toList())) {
+            namesById.put(entry.getClassId(), entry.getName());
+        }
+
+        Map<String, Long> msByName = new HashMap<>();
+        if (!namesById.isEmpty()) {
+            LocalDateTime since = LocalDateTime.now().minusDays(historyDays);
+            for (ClassRuntimePoint point : testResultRepository.findClassRuntimes(orgId, since, namesById.values())) {
+                if (point.runCount() != null && point.runCount() > 0 && point.totalRunTimeMs() != null) {
+                    msByName.put(point.className(), point.totalRunTimeMs() / point.runCount());
+                }
+            }
+        }
+        long fallback = median(msByName.values());
+
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        for (String id : classIds) {
+            Long ms = msByName.get(namesById.get(TestImpactService.toCaseSafeId(id)));
+            estimates.put(id, ms != null ? ms : fallback);
+        }
+        return estimates;
+    }
+
+    private long median(Collection<Long> values) {
+        if (values.isEmpty()) {
+            return defaultClassMs;
+        }
+        List<Long> sorted = values.stream().sorted().toList();
+        return Math.max(1, sorted.get(sorted.size() / 2));
+    }
+
+    /** Longest-processing-time-first assignment of classes, by estimated runtime, to {@code count} shards. */
+    static List<Shard> assign(Map<String, Long> estimates, int count) {
+        List<Map.Entry<String, Long>> longestFirst = new ArrayList<>(estimates.entrySet());
+        longestFirst.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        List<List<String>> classIds = new ArrayList<>(count);
+        long[] loads = new long[count];
+        // Least loaded shard first; ties go to the lower index so the plan is deterministic
+        PriorityQueue<Integer> byLoad = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(i -> loads[i]).thenComparing(i -> i));
+        for (int i = 0; i < count; i++) {
+            classIds.add(new ArrayList<>());
+            byLoad.add(i);
+        }
+        for (Map.Entry<String, Long> entry : longestFirst) {
+            int shard = byLoad.poll();
+            classIds.get(shard).add(entry.getKey());
+            loads[shard] += entry.getValue();
+            byLoad.add(shard);
+        }
+
+        List<Shard> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (!classIds.get(i).isEmpty()) {
+                shards.add(new Shard(classIds.get(i), loads[i]));
+            }
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,94 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.exception.SalesforceApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Lazily walks a Tooling API query result by following {@code nextRecordsUrl}.
+ * While the caller consumes one page the next one is already being fetched, so at most
+ * two pages are held in memory at any time.
+ */
+class ToolingQueryCursor implements Iterator<Map<String, Object>>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolingQueryCursor.class);
+
+    private final Function<String, Map<String, Object>> pageFetcher;
+    private final Executor prefetchExecutor;
+
+    private Iterator<Map<String, Object>> currentPage;
+    private CompletableFuture<Map<String, Object>> nextPage;
+
+    ToolingQueryCursor(Map<String, Object> firstPage,
+                       Function<String, Map<String, Object>> pageFetcher,
+                       Executor prefetchExecutor) {
+        this.pageFetcher = pageFetcher;
+        this.prefetchExecutor = prefetchExecutor;
+        accept(firstPage);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            accept(awaitNextPage());
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void accept(Map<String, Object> page) {
+        List<Map<String, Object>> records = page != null
+                ? (List<Map<String, Object>>) page.get("records") : null;
+        currentPage = records != null ? records.iterator() : Collections.emptyIterator();
+
+        String nextUrl = page != null && !Boolean.TRUE.equals(page.get("done"))
+                ? (String) page.get("nextRecordsUrl") : null;
+        nextPage = nextUrl != null ? prefetch(nextUrl) : null;
+    }
+
+    private CompletableFuture<Map<String, Object>> prefetch(String nextUrl) {
+        try {
+            return CompletableFuture.supplyAsync(() -> pageFetcher.apply(nextUrl), prefetchExecutor);
+        } catch (RejectedExecutionException e) {
+            log.debug("Prefetch pool saturated, fetching {} inline", nextUrl);
+            return CompletableFuture.completedFuture(pageFetcher.apply(nextUrl));
+        }
+    }
+
+    private Map<String, Object> awaitNextPage() {
+        try {
+            return nextPage.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new SalesforceApiException("Failed to fetch next Tooling API page", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.entity.DailyRollup;
+import com.apex.testsuite.entity.RunRollup;
+import com.apex.testsuite.entity.TestRun;
+import com.apex.testsuite.entity.TestRunStatus;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import com.apex.testsuite.repository.DailyRollupRepository;
+import com.apex.testsuite.repository.RunRollupRepository;
+import com.apex.testsuite.repository.TestRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Maintains the trend rollups: one {@link RunRollup} per completed run and one {@link DailyRollup}
+ * per org and day. A day's row is always rebuilt from that day's run rollups rather than
+ * incremented, so recording the same run twice or re-running the backfill is harmless.
+ */
+@Service
+public class TrendRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendRollupService.class);
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private record OrgDay(String orgId, LocalDate date) {
+    }
+
+    private final TestRunRepository testRunRepository;
+    private final CoverageSnapshotRepository coverageSnapshotRepository;
+    private final RunRollupRepository runRollupRepository;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor testExecutor;
+    private final Map<String, Object> orgLocks = new ConcurrentHashMap<>();
+
+    @Value("${app.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public TrendRollupService(TestRunRepository testRunRepository,
+                              CoverageSnapshotRepository coverageSnapshotRepository,
+                              RunRollupRepository runRollupRepository,
+                              DailyRollupRepository dailyRollupRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("testExecutor") Executor testExecutor) {
+        this.testRunRepository = testRunRepository;
+        this.coverageSnapshotRepository = coverageSnapshotRepository;
+        this.runRollupRepository = runRollupRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.testExecutor = testExecutor;
+    }
+
+    /** Records a completed run and refreshes its org's row for that day. */
+    public void recordRun(TestRun run) {
+        if (run.getStatus() != TestRunStatus.COMPLETED) {
+            return;
+        }
+        RunRollup rollup = toRollup(run, coverageSnapshotRepository.findAverageCoverageByTestRunId(run.getId()));
+        // Serializes day rebuilds per org, so two runs finishing together cannot both insert the day
+        synchronized (orgLocks.computeIfAbsent(String.valueOf(rollup.getOrgId()), k -> new Object())) {
+            transactionTemplate.executeWithoutResult(status -> {
+                runRollupRepository.save(rollup);
+                rebuildDay(rollup.getOrgId(), rollup.getRollupDate());
+            });
+        }
+    }
+
+    public List<DailyRollup> getDailyRollups(String orgId, LocalDate since) {
+        return dailyRollupRepository.findByOrgIdAndRollupDateGreaterThanEqualOrderByRollupDateAsc(orgId, since);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            testExecutor.execute(this::backfill);
+        }
+    }
+
+    /**
+     * Creates rollups for completed runs that have none, e.g. runs recorded before the rollup
+     * tables existed. Returns the number of runs rolled up.
+     */
+    public int backfill() {
+        int count = 0;
+        Long afterId = 0L;
+        Set<OrgDay> touched = new LinkedHashSet<>();
+        try {
+            List<TestRun> page;
+            do {
+                page = testRunRepository.findCompletedWithoutRollup(afterId, Pageable.ofSize(BACKFILL_PAGE_SIZE));
+                Map<Long, Double> coverageByRun = new HashMap<>();
+                if (!page.isEmpty()) {
+                    coverageSnapshotRepository.findAverageCoverageByTestRunIds(page.stream().map(TestRun::getId).toList())
+                            .forEach(point -> coverageByRun.put(point.runId(), point.avgCoverage()));
+                }
+                List<RunRollup> rollups = page.stream()
+                        .map(run -> toRollup(run, coverageByRun.get(run.getId())))
+                        .toList();
+                transactionTemplate.executeWithoutResult(status -> runRollupRepository.saveAll(rollups));
+                for (RunRollup rollup : rollups) {
+                    touched.add(new OrgDay(rollup.getOrgId(), rollup.getRollupDate()));
+                }
+                count += page.size();
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == BACKFILL_PAGE_SIZE);
+
+            // Each affected day is rebuilt once, however many of its runs were backfilled
+            for (OrgDay day : touched) {
+                synchronized (orgLocks.computeIfAbsent(String.valueOf(day.orgId()), k -> new Object())) {
+                    transactionTemplate.executeWithoutResult(status -> rebuildDay(day.orgId(), day.date()));
+                }
+            }
+            if (count > 0) {
+                log.info("Backfilled trend rollups for {} runs over {} org days", count, touched.size());
+            }
+        } catch (Exception e) {
+            log.warn("Trend rollup backfill stopped after {} runs: {}", count, e.getMessage());
+        }
+        return count;
+    }
+
+    private RunRollup toRollup(TestRun run, Double avgCoverage) {
+        RunRollup rollup = new RunRollup();
+        rollup.setRunId(run.getId());
+        rollup.setOrgId(run.getOrgId());
+        rollup.setStartedAt(run.getStartedAt());
+        rollup.setRollupDate(run.getStartedAt() != null ? run.getStartedAt().toLocalDate() : LocalDate.now());
+        rollup.setTotalTests(run.getTotalTests());
+        rollup.setPassCount(run.getPassCount());
+        rollup.setFailCount(run.getFailCount());
+        rollup.setAvgCoverage(avgCoverage);
+        return rollup;
+    }
+
+    private void rebuildDay(String orgId, LocalDate date) {
+        if (orgId == null) {
+            return;
+        }
+        DailyRollup day = dailyRollupRepository.findByOrgIdAndRollupDate(orgId, date).orElseGet(() -> {
+            DailyRollup created = new DailyRollup();
+            created.setOrgId(orgId);
+            created.setRollupDate(date);
+            return created;
+        });
+        int runCount = 0;
+        long totalTests = 0;
+        long passCount = 0;
+        long failCount = 0;
+        double coverageSum = 0;
+        int coverageRunCount = 0;
+        for (RunRollup run : runRollupRepository.findByOrgIdAndRollupDate(orgId, date)) {
+            runCount++;
+            totalTests += run.getTotalTests();
+            passCount += run.getPassCount();
+            failCount += run.getFailCount();
+            if (run.getAvgCoverage() != null) {
+                coverageSum += run.getAvgCoverage();
+                coverageRunCount++;
+            }
+        }
+        day.setRunCount(runCount);
+        day.setTotalTests(totalTests);
+        day.setPassCount(passCount);
+        day.setFailCount(failCount);
+        day.setCoverageSum(coverageSum);
+        day.setCoverageRunCount(coverageRunCount);
+        dailyRollupRepository.save(day);
+    }
+}
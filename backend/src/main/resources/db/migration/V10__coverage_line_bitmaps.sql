@@ -0,0 +1,7 @@
+-- Per-line coverage. Runs now store one snapshot per covered class, merged over every test
+-- that touched it, with the covered and uncovered line numbers as encoded bitmaps (see
+-- LineBitmapConverter). Older snapshots keep one row per test/class pair and no bitmaps.
+
+ALTER TABLE coverage_snapshots ADD COLUMN IF NOT EXISTS class_id VARCHAR(18);
+ALTER TABLE coverage_snapshots ADD COLUMN IF NOT EXISTS covered_lines BYTEA;
+ALTER TABLE coverage_snapshots ADD COLUMN IF NOT EXISTS uncovered_lines BYTEA;
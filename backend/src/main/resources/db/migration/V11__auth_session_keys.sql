@@ -0,0 +1,7 @@
+-- One auth_sessions row per browser login instead of one for the whole instance. session_key
+-- is the SHA-256 of the session cookie, so the cookie value itself is never stored. Rows from
+-- before this change have no key, cannot be matched to a browser and are dropped at startup.
+
+ALTER TABLE auth_sessions ADD COLUMN IF NOT EXISTS session_key VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_auth_sessions_session_key ON auth_sessions (session_key);
@@ -0,0 +1,3 @@
+-- Ids for test_method_stats, so new stats rows are batch-inserted.
+
+CREATE SEQUENCE IF NOT EXISTS test_method_stats_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,3 @@
+-- Ids for test_impact_edges, so a run's new edges are batch-inserted.
+
+CREATE SEQUENCE IF NOT EXISTS test_impact_edges_seq START WITH 1 INCREMENT BY 50;
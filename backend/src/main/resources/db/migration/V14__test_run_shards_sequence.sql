@@ -0,0 +1,3 @@
+-- Ids for test_run_shards, so the shards of a run are batch-inserted.
+
+CREATE SEQUENCE IF NOT EXISTS test_run_shards_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,6 @@
+-- The rest of a session's identity, so a restored session does not have to ask Salesforce
+-- who it belongs to. Rows written before this change leave these empty and read it again once.
+
+ALTER TABLE auth_sessions ADD COLUMN IF NOT EXISTS org_name VARCHAR(255);
+ALTER TABLE auth_sessions ADD COLUMN IF NOT EXISTS display_name VARCHAR(255);
+ALTER TABLE auth_sessions ADD COLUMN IF NOT EXISTS email VARCHAR(255);
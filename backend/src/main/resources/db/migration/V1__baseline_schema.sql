@@ -0,0 +1,75 @@
+-- Baseline schema. Everything is IF NOT EXISTS so the script also brings databases that were
+-- created by Hibernate's ddl-auto=update up to date without touching existing data.
+
+CREATE TABLE IF NOT EXISTS test_runs (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    async_apex_job_id VARCHAR(255),
+    org_id            VARCHAR(255),
+    status            VARCHAR(32),
+    total_tests       INTEGER DEFAULT 0 NOT NULL,
+    pass_count        INTEGER DEFAULT 0 NOT NULL,
+    fail_count        INTEGER DEFAULT 0 NOT NULL,
+    last_result_id    VARCHAR(18),
+    started_at        TIMESTAMP(6),
+    completed_at      TIMESTAMP(6)
+);
+ALTER TABLE test_runs ADD COLUMN IF NOT EXISTS last_result_id VARCHAR(18);
+
+CREATE TABLE IF NOT EXISTS test_results (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    class_name  VARCHAR(255),
+    method_name VARCHAR(255),
+    outcome     VARCHAR(32),
+    message     VARCHAR(4000),
+    stack_trace VARCHAR(8000),
+    run_time_ms BIGINT DEFAULT 0 NOT NULL,
+    test_run_id BIGINT,
+    CONSTRAINT fk_test_results_test_run FOREIGN KEY (test_run_id) REFERENCES test_runs (id)
+);
+
+CREATE TABLE IF NOT EXISTS coverage_snapshots (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    class_name       VARCHAR(255),
+    lines_covered    INTEGER DEFAULT 0 NOT NULL,
+    lines_uncovered  INTEGER DEFAULT 0 NOT NULL,
+    coverage_percent DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    test_run_id      BIGINT,
+    CONSTRAINT fk_coverage_snapshots_test_run FOREIGN KEY (test_run_id) REFERENCES test_runs (id)
+);
+
+CREATE TABLE IF NOT EXISTS auth_sessions (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    encrypted_access_token  VARCHAR(1000),
+    encrypted_refresh_token VARCHAR(1000),
+    instance_url            VARCHAR(255),
+    org_id                  VARCHAR(255),
+    username                VARCHAR(255),
+    created_at              TIMESTAMP(6) WITH TIME ZONE,
+    last_activity_at        TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE TABLE IF NOT EXISTS apex_class_catalog (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id           VARCHAR(18) NOT NULL,
+    class_id         VARCHAR(18) NOT NULL,
+    name             VARCHAR(255),
+    namespace_prefix VARCHAR(255),
+    test_class       BOOLEAN DEFAULT FALSE NOT NULL,
+    system_modstamp  TIMESTAMP(6) WITH TIME ZONE,
+    last_synced_at   TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_apex_class_catalog_org_class UNIQUE (org_id, class_id)
+);
+
+CREATE TABLE IF NOT EXISTS catalog_sync_state (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id            VARCHAR(18) NOT NULL UNIQUE,
+    watermark         TIMESTAMP(6) WITH TIME ZONE,
+    last_sync_at      TIMESTAMP(6) WITH TIME ZONE,
+    last_reconcile_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+-- Pooled id sequences; allocation size must match the entities' @SequenceGenerator
+CREATE SEQUENCE IF NOT EXISTS test_runs_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS test_results_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS coverage_snapshots_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS apex_class_catalog_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,16 @@
+-- Indexes for the history access paths. Keep SchemaIndexVerifier in sync when changing these.
+
+-- findCompletedRunsSince / findRecentCompleted / findByStatusAndOrgId
+CREATE INDEX IF NOT EXISTS idx_test_runs_org_status_started ON test_runs (org_id, status, started_at);
+
+-- findAllByOrderByStartedAtDesc (run history page)
+CREATE INDEX IF NOT EXISTS idx_test_runs_started_at ON test_runs (started_at);
+
+-- findByAsyncApexJobId
+CREATE UNIQUE INDEX IF NOT EXISTS ux_test_runs_async_apex_job_id ON test_runs (async_apex_job_id);
+
+-- findByTestRunIdOrderByClassNameAscMethodNameAsc
+CREATE INDEX IF NOT EXISTS idx_test_results_run_class_method ON test_results (test_run_id, class_name, method_name);
+
+-- findByTestRunIdOrderByClassNameAsc / findAverageCoverageByTestRunId
+CREATE INDEX IF NOT EXISTS idx_coverage_snapshots_run_class ON coverage_snapshots (test_run_id, class_name);
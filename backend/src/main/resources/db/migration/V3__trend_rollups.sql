@@ -0,0 +1,27 @@
+-- Pre-aggregated trend data, maintained by TrendRollupService when a run completes
+
+CREATE TABLE IF NOT EXISTS run_rollups (
+    run_id       BIGINT PRIMARY KEY,
+    org_id       VARCHAR(255),
+    rollup_date  DATE NOT NULL,
+    started_at   TIMESTAMP(6),
+    total_tests  INTEGER DEFAULT 0 NOT NULL,
+    pass_count   INTEGER DEFAULT 0 NOT NULL,
+    fail_count   INTEGER DEFAULT 0 NOT NULL,
+    avg_coverage DOUBLE PRECISION,
+    CONSTRAINT fk_run_rollups_test_run FOREIGN KEY (run_id) REFERENCES test_runs (id)
+);
+CREATE INDEX IF NOT EXISTS idx_run_rollups_org_date ON run_rollups (org_id, rollup_date);
+
+CREATE TABLE IF NOT EXISTS daily_rollups (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id             VARCHAR(255) NOT NULL,
+    rollup_date        DATE NOT NULL,
+    run_count          INTEGER DEFAULT 0 NOT NULL,
+    total_tests        BIGINT DEFAULT 0 NOT NULL,
+    pass_count         BIGINT DEFAULT 0 NOT NULL,
+    fail_count         BIGINT DEFAULT 0 NOT NULL,
+    coverage_sum       DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    coverage_run_count INTEGER DEFAULT 0 NOT NULL,
+    CONSTRAINT uk_daily_rollups_org_date UNIQUE (org_id, rollup_date)
+);
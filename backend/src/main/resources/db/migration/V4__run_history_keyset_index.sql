@@ -0,0 +1,3 @@
+-- Keyset pagination of an org's run history: WHERE org_id = ? AND (started_at, id) < (?, ?)
+-- ORDER BY started_at DESC, id DESC. Keep SchemaIndexVerifier in sync when changing this.
+CREATE INDEX IF NOT EXISTS idx_test_runs_org_started_id ON test_runs (org_id, started_at, id);
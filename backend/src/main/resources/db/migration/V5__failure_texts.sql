@@ -0,0 +1,20 @@
+-- Failure messages and stack traces, stored once per distinct (normalized) text and compressed.
+-- test_results rows reference them by hash; the inline message/stack_trace columns are only
+-- filled for rows written before this migration.
+
+CREATE TABLE IF NOT EXISTS failure_texts (
+    hash            VARCHAR(64) PRIMARY KEY,
+    text_length     INTEGER NOT NULL,
+    compressed_text BYTEA NOT NULL
+);
+
+ALTER TABLE test_results ADD COLUMN IF NOT EXISTS message_hash VARCHAR(64);
+ALTER TABLE test_results ADD COLUMN IF NOT EXISTS stack_trace_hash VARCHAR(64);
+
+-- Neither H2 nor PostgreSQL has ADD CONSTRAINT IF NOT EXISTS; dropping first keeps this re-runnable
+ALTER TABLE test_results DROP CONSTRAINT IF EXISTS fk_test_results_message_text;
+ALTER TABLE test_results ADD CONSTRAINT fk_test_results_message_text
+    FOREIGN KEY (message_hash) REFERENCES failure_texts (hash);
+ALTER TABLE test_results DROP CONSTRAINT IF EXISTS fk_test_results_stack_trace_text;
+ALTER TABLE test_results ADD CONSTRAINT fk_test_results_stack_trace_text
+    FOREIGN KEY (stack_trace_hash) REFERENCES failure_texts (hash);
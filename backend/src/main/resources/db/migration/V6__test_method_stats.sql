@@ -0,0 +1,23 @@
+-- Rolling outcome history per test method, maintained by FlakyTestService as runs finalize.
+-- outcome_window holds the last window_size pass/fail outcomes as bits, newest in bit 0 (1 = fail).
+
+CREATE TABLE IF NOT EXISTS test_method_stats (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id         VARCHAR(255) NOT NULL,
+    class_name     VARCHAR(255) NOT NULL,
+    method_name    VARCHAR(255) NOT NULL,
+    outcome_window BIGINT DEFAULT 0 NOT NULL,
+    window_size    INTEGER DEFAULT 0 NOT NULL,
+    fail_count     INTEGER DEFAULT 0 NOT NULL,
+    flip_count     INTEGER DEFAULT 0 NOT NULL,
+    failure_rate   DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    flip_rate      DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    total_runs     BIGINT DEFAULT 0 NOT NULL,
+    total_failures BIGINT DEFAULT 0 NOT NULL,
+    last_outcome   VARCHAR(32),
+    last_run_id    BIGINT,
+    last_seen_at   TIMESTAMP(6),
+    CONSTRAINT uk_test_method_stats_org_class_method UNIQUE (org_id, class_name, method_name)
+);
+
+CREATE INDEX IF NOT EXISTS idx_test_method_stats_org_flip_rate ON test_method_stats (org_id, flip_rate);
@@ -0,0 +1,16 @@
+-- Which test classes cover which classes/triggers, taken from each run's ApexCodeCoverage.
+-- A test class's edges are replaced whenever a run brings fresh coverage for it.
+
+CREATE TABLE IF NOT EXISTS test_impact_edges (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    org_id             VARCHAR(255) NOT NULL,
+    test_class_id      VARCHAR(18) NOT NULL,
+    covered_class_id   VARCHAR(18) NOT NULL,
+    covered_class_name VARCHAR(255),
+    last_run_id        BIGINT,
+    updated_at         TIMESTAMP(6),
+    CONSTRAINT uk_test_impact_edges_org_test_covered UNIQUE (org_id, test_class_id, covered_class_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_test_impact_edges_org_covered_id ON test_impact_edges (org_id, covered_class_id);
+CREATE INDEX IF NOT EXISTS idx_test_impact_edges_org_covered_name ON test_impact_edges (org_id, covered_class_name);
@@ -0,0 +1,26 @@
+-- Sharded runs: one logical test_runs row fanned out into several runTestsAsynchronous jobs.
+-- Each shard keeps its own ingestion watermark and counters; the run's counters are their sum.
+
+CREATE TABLE IF NOT EXISTS test_run_shards (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    test_run_id       BIGINT NOT NULL,
+    shard_index       INTEGER DEFAULT 0 NOT NULL,
+    async_apex_job_id VARCHAR(255) NOT NULL,
+    class_count       INTEGER DEFAULT 0 NOT NULL,
+    estimated_ms      BIGINT DEFAULT 0 NOT NULL,
+    status            VARCHAR(32),
+    last_result_id    VARCHAR(18),
+    total_tests       INTEGER DEFAULT 0 NOT NULL,
+    pass_count        INTEGER DEFAULT 0 NOT NULL,
+    fail_count        INTEGER DEFAULT 0 NOT NULL,
+    completed_at      TIMESTAMP(6),
+    CONSTRAINT fk_test_run_shards_test_run FOREIGN KEY (test_run_id) REFERENCES test_runs (id),
+    CONSTRAINT uk_test_run_shards_job UNIQUE (async_apex_job_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_test_run_shards_run ON test_run_shards (test_run_id, shard_index);
+
+ALTER TABLE test_runs ADD COLUMN IF NOT EXISTS shard_count INTEGER DEFAULT 1 NOT NULL;
+
+-- Lets a shard whose results have to be re-read delete only its own rows
+ALTER TABLE test_results ADD COLUMN IF NOT EXISTS shard_id BIGINT;
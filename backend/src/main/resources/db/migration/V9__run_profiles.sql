@@ -0,0 +1,5 @@
+-- Run profile (FULL, FAST, FAIL_FAST) and the failure budget of fail-fast runs.
+-- Runs recorded before profiles existed were full runs.
+
+ALTER TABLE test_runs ADD COLUMN IF NOT EXISTS profile VARCHAR(32) DEFAULT 'FULL' NOT NULL;
+ALTER TABLE test_runs ADD COLUMN IF NOT EXISTS max_failed_tests INTEGER;
@@ -0,0 +1,42 @@
+package com.apex.testsuite.config;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlywayMigrationTest {
+
+    /**
+     * A database that already has the schema but no migration history, like one shaped by
+     * ddl-auto=update, is baselined at version 0 and gets every migration applied over the
+     * existing tables. Each migration must therefore succeed on a schema that already has it.
+     */
+    @Test
+    void everyMigrationRunsAgainOverTheSchemaItProduced() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:flyway-rerun;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        int applied = flyway(dataSource).migrate().migrationsExecuted;
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE \"flyway_schema_history\"");
+        }
+
+        assertEquals(applied, flyway(dataSource).migrate().migrationsExecuted);
+    }
+
+    private static Flyway flyway(JdbcDataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+    }
+}
@@ -0,0 +1,172 @@
+package com.apex.testsuite.config;
+
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.service.SalesforceAuthService;
+import com.apex.testsuite.service.SalesforceSession;
+import com.apex.testsuite.service.SalesforceSessionResolver;
+import com.apex.testsuite.service.SalesforceToolingService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:session-refresh;DB_CLOSE_DELAY=-1",
+        "spring.h2.console.enabled=false",
+        "app.rollups.backfill-on-startup=false",
+        "salesforce.client-id=test-client",
+        "salesforce.client-secret=test-secret"
+})
+class SessionRefreshInterceptorTest {
+
+    private static final long TOKEN_TTL_MS = 1500;
+    private static final FakeToolingApiServer fakeServer = startFakeServer();
+
+    @Autowired
+    private SalesforceAuthService authService;
+    @Autowired
+    private SalesforceToolingService toolingService;
+    @Autowired
+    private SalesforceSessionResolver sessionResolver;
+
+    @DynamicPropertySource
+    static void salesforceProperties(DynamicPropertyRegistry registry) {
+        registry.add("salesforce.login-url", fakeServer::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopFakeServer() {
+        fakeServer.close();
+    }
+
+    @Test
+    void concurrentCallsWithAnExpiredTokenShareOneRefresh() throws Exception {
+        String sessionId = SalesforceSessionResolver.sessionIdOf(authService.exchangeCodeForToken("test-code"));
+        Thread.sleep(TOKEN_TTL_MS + 100);
+        fakeServer.resetRequestCounts();
+
+        int calls = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(calls);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < calls; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return sessionResolver.callAs(sessionId,
+                            () -> toolingService.queryToolingApi("SELECT COUNT() FROM ApexClass"));
+                }));
+            }
+            start.countDown();
+            for (Future<Map<String, Object>> result : results) {
+                assertEquals(fakeServer.getOrg().getClassCount(), result.get(30, TimeUnit.SECONDS).get("totalSize"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every call was rejected once and retried once, with a single token refresh between them
+        assertEquals(1, fakeServer.getRequestCount("oauth.token"));
+        assertEquals(calls, fakeServer.getRequestCount("unauthorized"));
+        assertEquals(calls, fakeServer.getRequestCount("tooling.query.ApexClass"));
+    }
+
+    @Test
+    void passesOtherUnauthorizedResponsesThrough() throws IOException {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<SalesforceAuthService> provider = mock(ObjectProvider.class);
+        byte[] error = "[{\"message\":\"Bad header\",\"errorCode\":\"INVALID_AUTH_HEADER\"}]".getBytes(StandardCharsets.UTF_8);
+        List<String> sent = new ArrayList<>();
+
+        ClientHttpResponse response = new SessionRefreshInterceptor(provider).intercept(request("old"), new byte[0],
+                (request, body) -> {
+                    sent.add(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+                    return new MockClientHttpResponse(error, HttpStatus.UNAUTHORIZED);
+                });
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertArrayEquals(error, response.getBody().readAllBytes());
+        assertEquals(List.of("Bearer old"), sent);
+        verifyNoInteractions(provider);
+    }
+
+    @Test
+    void retriesWithTheRefreshedTokenOnAGzippedInvalidSession() throws IOException {
+        SalesforceAuthService auth = mock(SalesforceAuthService.class);
+        when(auth.refreshRejected("old")).thenReturn(Optional.of(
+                new SalesforceSession("session", "new", "refresh", "https://example.my.salesforce.com", null)));
+        @SuppressWarnings("unchecked")
+        ObjectProvider<SalesforceAuthService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(auth);
+        List<String> sent = new ArrayList<>();
+
+        ClientHttpResponse response = new SessionRefreshInterceptor(provider).intercept(request("old"), new byte[0],
+                (request, body) -> {
+                    sent.add(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+                    if (sent.size() > 1) {
+                        return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+                    }
+                    MockClientHttpResponse rejected = new MockClientHttpResponse(
+                            gzip("[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]"),
+                            HttpStatus.UNAUTHORIZED);
+                    rejected.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    return rejected;
+                });
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("Bearer old", "Bearer new"), sent);
+        verify(auth).refreshRejected("old");
+    }
+
+    private static MockClientHttpRequest request(String accessToken) {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+                URI.create("https://example.my.salesforce.com/services/data/v59.0/tooling/query"));
+        request.getHeaders().setBearerAuth(accessToken);
+        return request;
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static FakeToolingApiServer startFakeServer() {
+        try {
+            // Latency keeps the calls in flight together, so they are all rejected before the refresh lands
+            return FakeToolingApiServer.builder()
+                    .tokenTtlMs(TOKEN_TTL_MS)
+                    .latencyMs(100)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.apex.testsuite.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineBitmapConverterTest {
+
+    @Test
+    void roundTripsEveryEncoding() {
+        BitSet sparse = lines(3, 90, 4000);
+        BitSet blocks = new BitSet();
+        blocks.set(10, 200);
+        blocks.set(240, 900);
+        BitSet fragmented = new BitSet();
+        Random random = new Random(7);
+        for (int line = 1; line < 2000; line++) {
+            if (random.nextBoolean()) {
+                fragmented.set(line);
+            }
+        }
+
+        for (BitSet lines : new BitSet[]{new BitSet(), sparse, blocks, fragmented}) {
+            assertEquals(lines, LineBitmapConverter.decode(LineBitmapConverter.encode(lines)));
+        }
+    }
+
+    @Test
+    void picksTheSmallestEncoding() {
+        BitSet blocks = new BitSet();
+        blocks.set(1, 5000);
+        // One run: type, count, gap, length
+        assertTrue(LineBitmapConverter.encode(blocks).length <= 5);
+        // Three scattered lines: type, count and one gap each
+        assertTrue(LineBitmapConverter.encode(lines(3, 90, 4000)).length <= 6);
+    }
+
+    @Test
+    void keepsNull() {
+        assertNull(LineBitmapConverter.encode(null));
+        assertNull(LineBitmapConverter.decode(null));
+    }
+
+    private static BitSet lines(int... numbers) {
+        BitSet lines = new BitSet();
+        for (int line : numbers) {
+            lines.set(line);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,118 @@
+package com.apex.testsuite.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic synthetic org used by {@link FakeToolingApiServer}.
+ * Every {@code testClassEvery}-th class is a test class with {@code methodsPerTestClass} methods.
+ */
+public class FakeOrg {
+
+    public static final String ORG_ID = "00DFAKE00000001AAA";
+    public static final String ORG_NAME = "Fake Org";
+
+    private final int classCount;
+    private final int testClassEvery;
+    private final int methodsPerTestClass;
+    private final int bodyBytes;
+    private final double methodFailureRate;
+    private final int coveredClassesPerTest;
+
+    public FakeOrg(int classCount, int testClassEvery, int methodsPerTestClass, int bodyBytes,
+                   double methodFailureRate, int coveredClassesPerTest) {
+        this.classCount = classCount;
+        this.testClassEvery = Math.max(1, testClassEvery);
+        this.methodsPerTestClass = methodsPerTestClass;
+        this.bodyBytes = bodyBytes;
+        this.methodFailureRate = methodFailureRate;
+        this.coveredClassesPerTest = coveredClassesPerTest;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getMethodsPerTestClass() {
+        return methodsPerTestClass;
+    }
+
+    public int getCoveredClassesPerTest() {
+        return coveredClassesPerTest;
+    }
+
+    public boolean isTestClass(int index) {
+        return index % testClassEvery == 0;
+    }
+
+    public List<Integer> testClassIndexes() {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            if (isTestClass(i)) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    public String classId(int index) {
+        return sfId("01p", index);
+    }
+
+    public int indexOfClassId(String id) {
+        if (id == null || !id.startsWith("01p")) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(id.substring(3, 15).replace("A", ""));
+            return index < classCount ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String className(int index) {
+        return (isTestClass(index) ? "FakeTest" : "FakeService") + index;
+    }
+
+    public String body(int index) {
+        StringBuilder sb = new StringBuilder(bodyBytes + 128);
+        if (isTestClass(index)) {
+            sb.append("@isTest\n");
+        }
+        sb.append("public class ").append(className(index)).append(" {\n");
+        int line = 0;
+        while (sb.length() < bodyBytes) {
+            sb.append("    // generated filler line ").append(line++).append('\n');
+        }
+        if (isTestClass(index)) {
+            for (int m = 0; m < methodsPerTestClass; m++) {
+                sb.append("    @isTest static void ").append(methodName(m)).append("() {}\n");
+            }
+        }
+        return sb.append("}\n").toString();
+    }
+
+    public String methodName(int methodIndex) {
+        return "testMethod" + methodIndex;
+    }
+
+    // Stable pseudo-random outcome so repeated runs are comparable
+    public boolean methodFails(int classIndex, int methodIndex) {
+        if (methodFailureRate <= 0) {
+            return false;
+        }
+        int h = (classIndex * 31 + methodIndex) * 0x9E3779B1;
+        return ((h >>> 8) % 10_000) < methodFailureRate * 10_000;
+    }
+
+    public int coveredClassIndex(int testClassIndex, int n) {
+        int candidate = (testClassIndex + n + 1) % classCount;
+        return isTestClass(candidate) ? (candidate + 1) % classCount : candidate;
+    }
+
+    static String sfId(String prefix, long n) {
+        String digits = Long.toString(n);
+        return prefix + "A".repeat(Math.max(0, 12 - digits.length())) + digits + "AAA";
+    }
+}
@@ -0,0 +1,675 @@
+package com.apex.testsuite.fake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embeddable stand-in for the Salesforce OAuth and Tooling REST endpoints used by the backend.
+ * Supports SOQL queries against ApexClass (including {@code SystemModstamp >} and {@code LastModifiedDate >} filters), ApexTestQueueItem, ApexTestResult and ApexCodeCoverage,
+ * {@code runTestsAsynchronous}, query pagination, injected latency, random failures and token expiry.
+ */
+public class FakeToolingApiServer implements AutoCloseable {
+
+    private static final String API_PREFIX = "/services/data/v59.0/tooling";
+    private static final Pattern SELECT_PATTERN =
+            Pattern.compile("(?is)^\\s*SELECT\\s+(.+?)\\s+FROM\\s+(\\w+)(.*)$");
+    private static final Pattern LITERAL_PATTERN = Pattern.compile("'([^']*)'");
+    private static final Pattern ID_IN_PATTERN = Pattern.compile("(?i)\\bId\\s+IN\\s*\\(");
+    private static final Pattern ID_AFTER_PATTERN = Pattern.compile("(?i)\\bId\\s*>\\s*'([^']*)'");
+    private static final Pattern MODSTAMP_AFTER_PATTERN =
+            Pattern.compile("(?i)\\b(?:SystemModstamp|LastModifiedDate)\\s*>\\s*(\\d{4}-\\d{2}-\\d{2}T[0-9:.]+Z)");
+    private static final DateTimeFormatter SF_DATETIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ").withZone(ZoneOffset.UTC);
+    private static final Instant DEFAULT_MODSTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final FakeOrg org;
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Map<String, FakeJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<Map<String, Object>>> cursors = new ConcurrentHashMap<>();
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final Map<Integer, Instant> classModstamps = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private FakeToolingApiServer(FakeOrg org, Settings settings) throws IOException {
+        // Without TCP_NODELAY the JDK server's separate header/body writes hit delayed-ACK stalls (~40ms)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.org = org;
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port), 0);
+        this.executor = Executors.newFixedThreadPool(settings.serverThreads);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public FakeToolingApiServer start() {
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public FakeOrg getOrg() {
+        return org;
+    }
+
+    public long getRequestCount(String endpoint) {
+        AtomicLong count = requestCounts.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        requestCounts.forEach((k, v) -> snapshot.put(k, v.get()));
+        return snapshot;
+    }
+
+    public void resetRequestCounts() {
+        requestCounts.clear();
+    }
+
+    // Simulates a deploy touching the given class
+    public void touchClass(int index) {
+        classModstamps.put(index, Instant.now());
+    }
+
+    // Starts a job whose queue items are already finished, useful for benchmarking result retrieval
+    public String createCompletedJob(List<String> classIds) {
+        FakeJob job = newJob(classIds);
+        job.startedAtMs = System.currentTimeMillis() - job.durationMs() - 1;
+        return job.id;
+    }
+
+    // --- Request dispatch ---
+
+    private void handle(HttpExchange exchange) {
+        try {
+            dispatch(exchange);
+        } catch (Exception e) {
+            try {
+                sendJson(exchange, 500, List.of(Map.of("message", String.valueOf(e.getMessage()),
+                        "errorCode", "UNKNOWN_EXCEPTION")));
+            } catch (IOException ignored) {
+                // response already committed
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        simulateLatency();
+
+        if (path.equals("/services/oauth2/token")) {
+            count("oauth.token");
+            handleToken(exchange);
+            return;
+        }
+        if (path.equals("/services/oauth2/revoke")) {
+            count("oauth.revoke");
+            sendJson(exchange, 200, Map.of());
+            return;
+        }
+
+        if (!isAuthorized(exchange)) {
+            count("unauthorized");
+            sendJson(exchange, 401, List.of(Map.of(
+                    "message", "Session expired or invalid", "errorCode", "INVALID_SESSION_ID")));
+            return;
+        }
+        if (settings.failureRate > 0 && ThreadLocalRandom.current().nextDouble() < settings.failureRate) {
+            count("injected-failure");
+            sendJson(exchange, 503, List.of(Map.of(
+                    "message", "Injected failure", "errorCode", "SERVER_UNAVAILABLE")));
+            return;
+        }
+
+        if (path.equals("/services/oauth2/userinfo")) {
+            count("oauth.userinfo");
+            sendJson(exchange, 200, userInfo());
+        } else if (path.equals(API_PREFIX + "/query") || path.equals(API_PREFIX + "/query/")) {
+            String soql = queryParam(exchange, "q");
+            count("tooling.query." + objectName(soql));
+            sendJson(exchange, 200, query(soql));
+        } else if (path.startsWith(API_PREFIX + "/query/")) {
+            count("tooling.query.next");
+            handleNextPage(exchange, path.substring((API_PREFIX + "/query/").length()));
+        } else if (path.equals(API_PREFIX + "/runTestsAsynchronous") && "POST".equals(method)) {
+            count("tooling.runTestsAsynchronous");
+            handleRunTests(exchange);
+        } else if (path.startsWith(API_PREFIX + "/sobjects/ApexTestQueueItem/") && "PATCH".equals(method)) {
+            count("tooling.abortQueueItem");
+            handleAbortQueueItem(exchange, path.substring((API_PREFIX + "/sobjects/ApexTestQueueItem/").length()));
+        } else {
+            count("not-found");
+            sendJson(exchange, 404, List.of(Map.of("message", "Not found: " + path, "errorCode", "NOT_FOUND")));
+        }
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseForm(readBody(exchange));
+        String grantType = form.getOrDefault("grant_type", "");
+        if (!grantType.equals("authorization_code") && !grantType.equals("refresh_token")) {
+            sendJson(exchange, 400, Map.of("error", "unsupported_grant_type"));
+            return;
+        }
+        String token = "fake-token-" + sequence.incrementAndGet();
+        tokens.put(token, System.currentTimeMillis());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("access_token", token);
+        if (grantType.equals("authorization_code")) {
+            response.put("refresh_token", "fake-refresh-token");
+        }
+        response.put("instance_url", getBaseUrl());
+        response.put("id", getBaseUrl() + "/id/" + FakeOrg.ORG_ID + "/005FAKE00000001AAA");
+        response.put("token_type", "Bearer");
+        response.put("issued_at", String.valueOf(System.currentTimeMillis()));
+        sendJson(exchange, 200, response);
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        Long issuedAt = tokens.get(header.substring("Bearer ".length()));
+        if (issuedAt == null) {
+            return false;
+        }
+        return settings.tokenTtlMs <= 0 || System.currentTimeMillis() - issuedAt < settings.tokenTtlMs;
+    }
+
+    private Map<String, Object> userInfo() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("user_id", "005FAKE00000001AAA");
+        info.put("organization_id", FakeOrg.ORG_ID);
+        info.put("organization_name", FakeOrg.ORG_NAME);
+        info.put("preferred_username", "bench@fake.org");
+        info.put("name", "Bench User");
+        info.put("email", "bench@fake.org");
+        return info;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handleRunTests(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = objectMapper.readValue(readBody(exchange), Map.class);
+        String classIds = (String) body.getOrDefault("classids", "");
+        List<String> ids = Arrays.stream(classIds.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+        if (ids.isEmpty()) {
+            sendJson(exchange, 400, List.of(Map.of("message", "No classes specified", "errorCode", "INVALID_INPUT")));
+            return;
+        }
+        FakeJob job = newJob(ids);
+        job.skipCodeCoverage = Boolean.TRUE.equals(body.get("skipCodeCoverage"));
+        sendJson(exchange, 200, job.id);
+    }
+
+    // Only items that have not started can be aborted, as in a real org
+    private void handleAbortQueueItem(HttpExchange exchange, String itemId) throws IOException {
+        readBody(exchange);
+        long now = System.currentTimeMillis();
+        for (FakeJob job : jobs.values()) {
+            for (int i = 0; i < job.classIndexes.size(); i++) {
+                if (!job.queueItemId(i).equals(itemId)) continue;
+                if (!"Queued".equals(job.itemStatus(i, now))) {
+                    sendJson(exchange, 400, List.of(Map.of("message", "Item already started", "errorCode", "INVALID_OPERATION")));
+                    return;
+                }
+                job.abortedItems.add(i);
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+                return;
+            }
+        }
+        sendJson(exchange, 404, List.of(Map.of("message", "Not found: " + itemId, "errorCode", "NOT_FOUND")));
+    }
+
+    private void handleNextPage(HttpExchange exchange, String cursorAndOffset) throws IOException {
+        int dash = cursorAndOffset.lastIndexOf('-');
+        String cursorId = dash > 0 ? cursorAndOffset.substring(0, dash) : cursorAndOffset;
+        int offset = dash > 0 ? Integer.parseInt(cursorAndOffset.substring(dash + 1)) : 0;
+        List<Map<String, Object>> rows = cursors.get(cursorId);
+        if (rows == null) {
+            sendJson(exchange, 400, List.of(Map.of("message", "Invalid query locator", "errorCode", "INVALID_QUERY_LOCATOR")));
+            return;
+        }
+        sendJson(exchange, 200, page(cursorId, rows, offset));
+    }
+
+    // --- SOQL evaluation ---
+
+    private Map<String, Object> query(String soql) {
+        Matcher m = SELECT_PATTERN.matcher(soql);
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Unsupported SOQL: " + soql);
+        }
+        String selectList = m.group(1).trim();
+        String object = m.group(2);
+        String rest = m.group(3);
+        List<Function<String, Object>> rows = rows(object, rest);
+
+        if (selectList.equalsIgnoreCase("COUNT()")) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("size", rows.size());
+            result.put("totalSize", rows.size());
+            result.put("done", true);
+            result.put("records", List.of());
+            return result;
+        }
+
+        List<String> fields = Arrays.stream(selectList.split(",")).map(String::trim).toList();
+        List<Map<String, Object>> projected = new ArrayList<>(rows.size());
+        for (Function<String, Object> row : rows) {
+            projected.add(project(object, row, fields));
+        }
+
+        String cursorId = FakeOrg.sfId("01g", sequence.incrementAndGet());
+        if (projected.size() > settings.pageSize) {
+            cursors.put(cursorId, projected);
+        }
+        return page(cursorId, projected, 0);
+    }
+
+    private Map<String, Object> page(String cursorId, List<Map<String, Object>> rows, int offset) {
+        int end = Math.min(rows.size(), offset + settings.pageSize);
+        boolean done = end >= rows.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", rows.size());
+        result.put("totalSize", rows.size());
+        result.put("done", done);
+        if (!done) {
+            result.put("nextRecordsUrl", API_PREFIX + "/query/" + cursorId + "-" + end);
+        } else {
+            cursors.remove(cursorId);
+        }
+        result.put("queryLocator", done ? null : cursorId + "-" + end);
+        result.put("entityTypeName", null);
+        result.put("records", rows.subList(offset, end));
+        return result;
+    }
+
+    private List<Function<String, Object>> rows(String object, String clause) {
+        List<String> literals = new ArrayList<>();
+        Matcher lm = LITERAL_PATTERN.matcher(clause);
+        while (lm.find()) {
+            literals.add(lm.group(1));
+        }
+        return switch (object.toLowerCase(Locale.ROOT)) {
+            case "apexclass" -> apexClassRows(clause, literals);
+            case "apextestqueueitem" -> queueItemRows(literals);
+            case "apextestresult" -> testResultRows(clause, literals);
+            case "apexcodecoverage" -> coverageRows(literals);
+            default -> throw new IllegalArgumentException("Unsupported object: " + object);
+        };
+    }
+
+    private List<Function<String, Object>> apexClassRows(String clause, List<String> literals) {
+        List<Integer> indexes = new ArrayList<>();
+        if (ID_IN_PATTERN.matcher(clause).find()) {
+            for (String literal : literals) {
+                int index = org.indexOfClassId(literal);
+                if (index >= 0) indexes.add(index);
+            }
+        } else {
+            Matcher after = MODSTAMP_AFTER_PATTERN.matcher(clause);
+            Instant since = after.find() ? Instant.parse(after.group(1)) : null;
+            for (int i = 0; i < org.getClassCount(); i++) {
+                if (since == null || classModstamps.getOrDefault(i, DEFAULT_MODSTAMP).isAfter(since)) {
+                    indexes.add(i);
+                }
+            }
+        }
+
+        List<Function<String, Object>> rows = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            String modstamp = SF_DATETIME.format(classModstamps.getOrDefault(index, DEFAULT_MODSTAMP));
+            rows.add(field -> switch (field) {
+                case "Id" -> org.classId(index);
+                case "Name" -> org.className(index);
+                case "NamespacePrefix" -> null;
+                case "Status" -> "Active";
+                case "Body" -> org.body(index);
+                case "LengthWithoutComments" -> org.body(index).length();
+                case "SystemModstamp", "LastModifiedDate" -> modstamp;
+                default -> null;
+            });
+        }
+        return rows;
+    }
+
+    private List<Function<String, Object>> queueItemRows(List<String> jobIds) {
+        long now = System.currentTimeMillis();
+        List<Function<String, Object>> rows = new ArrayList<>();
+        for (String jobId : jobIds) {
+            FakeJob job = jobs.get(jobId);
+            if (job == null) continue;
+            for (int i = 0; i < job.classIndexes.size(); i++) {
+                int item = i;
+                rows.add(field -> switch (field) {
+                    case "Id" -> job.queueItemId(item);
+                    case "Status" -> job.itemStatus(item, now);
+                    case "ApexClassId" -> org.classId(job.classIndexes.get(item));
+                    case "ParentJobId" -> job.id;
+                    case "TestRunResultId" -> FakeOrg.sfId("05m", job.seq);
+                    default -> null;
+                });
+            }
+        }
+        return rows;
+    }
+
+    // Rows come out in Id order, which matches completion order, so "Id > x" filters work as a watermark
+    private List<Function<String, Object>> testResultRows(String clause, List<String> literals) {
+        long now = System.currentTimeMillis();
+        Matcher after = ID_AFTER_PATTERN.matcher(clause);
+        String afterId = after.find() ? after.group(1) : null;
+        List<Function<String, Object>> rows = new ArrayList<>();
+        for (String literal : literals) {
+            FakeJob job = jobs.get(literal);
+            if (job == null) continue;
+            for (int i = 0; i < job.classIndexes.size(); i++) {
+                if (!"Completed".equals(job.itemStatus(i, now))) continue;
+                int item = i;
+                int classIndex = job.classIndexes.get(i);
+                for (int m = 0; m < org.getMethodsPerTestClass(); m++) {
+                    if (afterId != null && job.resultId(item, m).compareTo(afterId) <= 0) continue;
+                    int method = m;
+                    boolean fails = org.methodFails(classIndex, method);
+                    rows.add(field -> switch (field) {
+                        case "Id" -> job.resultId(item, method);
+                        case "ApexClass.Name" -> org.className(classIndex);
+                        case "ApexClassId" -> org.classId(classIndex);
+                        case "MethodName" -> org.methodName(method);
+                        case "Outcome" -> fails ? "Fail" : "Pass";
+                        case "Message" -> fails ? "System.AssertException: Assertion Failed: expected 1, actual 2" : null;
+                        case "StackTrace" -> fails ? "Class." + org.className(classIndex) + "." + org.methodName(method) + ": line 12, column 1" : null;
+                        case "RunTime" -> 5 + (classIndex * 7 + method * 13) % 200;
+                        case "AsyncApexJobId" -> job.id;
+                        case "QueueItemId" -> job.queueItemId(item);
+                        default -> null;
+                    });
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Rows come out sorted by class name, as the backend's ORDER BY ApexClassOrTrigger.Name asks
+    private List<Function<String, Object>> coverageRows(List<String> literals) {
+        long now = System.currentTimeMillis();
+        List<Function<String, Object>> rows = new ArrayList<>();
+        for (String literal : literals) {
+            FakeJob job = jobs.get(literal);
+            if (job == null || job.skipCodeCoverage) continue;
+            for (int i = 0; i < job.classIndexes.size(); i++) {
+                if (!"Completed".equals(job.itemStatus(i, now))) continue;
+                int testClassIndex = job.classIndexes.get(i);
+                for (int n = 0; n < org.getCoveredClassesPerTest(); n++) {
+                    int coveredIndex = org.coveredClassIndex(testClassIndex, n);
+                    // Each test covers one block of the class's lines, so tests overlap differently
+                    int lineCount = 40 + (coveredIndex * 11) % 80;
+                    int start = 1 + (testClassIndex * 7) % (lineCount / 2);
+                    int end = Math.min(lineCount + 1, start + 5 + (testClassIndex + n * 17) % (lineCount / 2));
+                    List<Integer> coveredLines = new ArrayList<>();
+                    List<Integer> uncoveredLines = new ArrayList<>();
+                    for (int line = 1; line <= lineCount; line++) {
+                        (line >= start && line < end ? coveredLines : uncoveredLines).add(line);
+                    }
+                    int covered = coveredLines.size();
+                    int uncovered = uncoveredLines.size();
+                    rows.add(field -> switch (field) {
+                        case "ApexClassOrTrigger.Name" -> org.className(coveredIndex);
+                        case "ApexClassOrTriggerId" -> org.classId(coveredIndex);
+                        case "ApexTestClassId" -> org.classId(testClassIndex);
+                        case "TestMethodName" -> org.methodName(0);
+                        case "NumLinesCovered" -> covered;
+                        case "NumLinesUncovered" -> uncovered;
+                        case "Coverage" -> Map.of("coveredLines", coveredLines, "uncoveredLines", uncoveredLines);
+                        default -> null;
+                    });
+                }
+            }
+        }
+        rows.sort(Comparator.comparing(row -> (String) row.apply("ApexClassOrTrigger.Name")));
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> project(String object, Function<String, Object> row, List<String> fields) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("attributes", Map.of("type", object));
+        for (String field : fields) {
+            Object value = row.apply(field);
+            int dot = field.indexOf('.');
+            if (dot > 0) {
+                Map<String, Object> parent = (Map<String, Object>) record.computeIfAbsent(
+                        field.substring(0, dot), k -> new LinkedHashMap<String, Object>());
+                parent.put(field.substring(dot + 1), value);
+            } else {
+                record.put(field, value);
+            }
+        }
+        return record;
+    }
+
+    private FakeJob newJob(List<String> classIds) {
+        List<Integer> indexes = new ArrayList<>();
+        for (String id : classIds) {
+            int index = org.indexOfClassId(id);
+            if (index >= 0) {
+                indexes.add(index);
+            }
+        }
+        FakeJob job = new FakeJob(sequence.incrementAndGet(), indexes, System.currentTimeMillis(),
+                settings.classDurationMs, settings.parallelism);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    // --- Helpers ---
+
+    private void simulateLatency() {
+        long delay = settings.latencyMs;
+        if (settings.latencyJitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(settings.latencyJitterMs + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void count(String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static String objectName(String soql) {
+        Matcher m = SELECT_PATTERN.matcher(soql);
+        return m.matches() ? m.group(2) : "unknown";
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return "";
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            count("gzip-responses");
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // --- Job model ---
+
+    private static final class FakeJob {
+        final long seq;
+        final String id;
+        final List<Integer> classIndexes;
+        final long classDurationMs;
+        final int parallelism;
+        final Set<Integer> abortedItems = ConcurrentHashMap.newKeySet();
+        volatile long startedAtMs;
+        volatile boolean skipCodeCoverage;
+
+        FakeJob(long seq, List<Integer> classIndexes, long startedAtMs, long classDurationMs, int parallelism) {
+            this.seq = seq;
+            this.id = FakeOrg.sfId("707", seq);
+            this.classIndexes = classIndexes;
+            this.startedAtMs = startedAtMs;
+            this.classDurationMs = classDurationMs;
+            this.parallelism = Math.max(1, parallelism);
+        }
+
+        long durationMs() {
+            return ((classIndexes.size() + parallelism - 1) / parallelism) * classDurationMs;
+        }
+
+        String itemStatus(int item, long now) {
+            long slotStart = startedAtMs + (item / parallelism) * classDurationMs;
+            if (abortedItems.contains(item)) return "Aborted";
+            if (now < slotStart) return "Queued";
+            if (now < slotStart + classDurationMs) return "Processing";
+            return "Completed";
+        }
+
+        String queueItemId(int item) {
+            return FakeOrg.sfId("709", seq * 100_000 + item);
+        }
+
+        // Fixed-width ids so lexical order follows completion order
+        String resultId(int item, int method) {
+            return FakeOrg.sfId("07M", seq * 100_000_000L + item * 1_000L + method);
+        }
+    }
+
+    // --- Configuration ---
+
+    public static final class Settings {
+        int port = 0;
+        int serverThreads = 32;
+        int pageSize = 2000;
+        long latencyMs = 0;
+        long latencyJitterMs = 0;
+        double failureRate = 0;
+        long tokenTtlMs = 0;
+        long classDurationMs = 500;
+        int parallelism = 4;
+    }
+
+    public static final class Builder {
+        private final Settings settings = new Settings();
+        private int classCount = 500;
+        private int testClassEvery = 3;
+        private int methodsPerTestClass = 5;
+        private int bodyBytes = 4_000;
+        private double methodFailureRate = 0.05;
+        private int coveredClassesPerTest = 3;
+
+        public Builder classCount(int classCount) { this.classCount = classCount; return this; }
+        public Builder testClassEvery(int testClassEvery) { this.testClassEvery = testClassEvery; return this; }
+        public Builder methodsPerTestClass(int methods) { this.methodsPerTestClass = methods; return this; }
+        public Builder bodyBytes(int bodyBytes) { this.bodyBytes = bodyBytes; return this; }
+        public Builder methodFailureRate(double rate) { this.methodFailureRate = rate; return this; }
+        public Builder coveredClassesPerTest(int count) { this.coveredClassesPerTest = count; return this; }
+        public Builder port(int port) { settings.port = port; return this; }
+        public Builder serverThreads(int threads) { settings.serverThreads = threads; return this; }
+        public Builder pageSize(int pageSize) { settings.pageSize = pageSize; return this; }
+        public Builder latencyMs(long latencyMs) { settings.latencyMs = latencyMs; return this; }
+        public Builder latencyJitterMs(long jitterMs) { settings.latencyJitterMs = jitterMs; return this; }
+        public Builder failureRate(double failureRate) { settings.failureRate = failureRate; return this; }
+        public Builder tokenTtlMs(long tokenTtlMs) { settings.tokenTtlMs = tokenTtlMs; return this; }
+        public Builder classDurationMs(long durationMs) { settings.classDurationMs = durationMs; return this; }
+        public Builder parallelism(int parallelism) { settings.parallelism = parallelism; return this; }
+
+        public FakeToolingApiServer build() throws IOException {
+            FakeOrg org = new FakeOrg(classCount, testClassEvery, methodsPerTestClass, bodyBytes,
+                    methodFailureRate, coveredClassesPerTest);
+            return new FakeToolingApiServer(org, settings);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.apex.testsuite.repository;
+
+import com.apex.testsuite.entity.TestMethodStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+class TestMethodStatsRepositoryTest {
+
+    @Autowired
+    private TestMethodStatsRepository statsRepository;
+
+    @Test
+    void findsOnlyMethodsThatFlippedWithinEnoughRuns() {
+        statsRepository.saveAllAndFlush(List.of(
+                stats("org", "flaky", 10, 2, 0.4),
+                stats("org", "flakier", 10, 6, 0.5),
+                stats("org", "alwaysFails", 10, 0, 1.0),
+                stats("org", "tooFewRuns", 3, 2, 0.3),
+                stats("other-org", "flaky", 10, 2, 0.4)));
+
+        List<String> flaky = statsRepository.findFlaky("org", 5, Pageable.ofSize(10)).stream()
+                .map(TestMethodStats::getMethodName)
+                .toList();
+
+        assertEquals(List.of("flakier", "flaky"), flaky);
+    }
+
+    private static TestMethodStats stats(String orgId, String methodName, int windowSize, int flips, double failureRate) {
+        TestMethodStats stats = new TestMethodStats();
+        stats.setOrgId(orgId);
+        stats.setClassName("AccountTest");
+        stats.setMethodName(methodName);
+        stats.setWindowSize(windowSize);
+        stats.setFlipCount(flips);
+        stats.setFlipRate((double) flips / (windowSize - 1));
+        stats.setFailureRate(failureRate);
+        return stats;
+    }
+}
@@ -0,0 +1,128 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ClassCoverageDiffDTO;
+import com.apex.testsuite.dto.CoverageDiffDTO;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.CoverageSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoverageServiceTest {
+
+    private static final long BASE = 1L;
+    private static final long HEAD = 2L;
+
+    private final CoverageSnapshotRepository snapshotRepository = mock(CoverageSnapshotRepository.class);
+    private final CoverageService coverageService = new CoverageService(snapshotRepository,
+            mock(ApexClassCatalogRepository.class), mock(PlatformTransactionManager.class));
+
+    @Test
+    void comparesTheLinesOfClassesInBothRuns() {
+        run(BASE, row("01p000000000001AAA", "Account", lines(1, 2, 3), lines(4, 5)));
+        run(HEAD, row("01p000000000001AAA", "Account", lines(2, 3, 4), lines(1, 5)));
+
+        CoverageDiffDTO diff = coverageService.diff(BASE, HEAD, false, false);
+
+        ClassCoverageDiffDTO account = diff.classes().get(0);
+        assertEquals(List.of(4), account.newlyCoveredLines());
+        assertEquals(List.of(1), account.newlyUncoveredLines());
+        assertEquals(2, account.unchangedCoveredCount());
+        assertEquals(1, diff.newlyCoveredLines());
+        assertEquals(1, diff.newlyUncoveredLines());
+    }
+
+    @Test
+    void treatsAClassMissingFromOneRunAsHavingNoCoveredLines() {
+        run(BASE, row("01p000000000001AAA", "Removed", lines(4, 5), lines(6)));
+        run(HEAD, row("01p000000000002AAA", "Added", lines(1, 2, 3), lines()));
+
+        CoverageDiffDTO diff = coverageService.diff(BASE, HEAD, false, false);
+
+        ClassCoverageDiffDTO removed = find(diff, "Removed");
+        assertEquals(List.of(4, 5), removed.newlyUncoveredLines());
+        assertEquals(List.of(), removed.newlyCoveredLines());
+        assertNull(removed.headCoveragePercent());
+        ClassCoverageDiffDTO added = find(diff, "Added");
+        assertEquals(List.of(1, 2, 3), added.newlyCoveredLines());
+        assertNull(added.baseCoveragePercent());
+        assertEquals(100.0, added.headCoveragePercent());
+        // Lost coverage sorts first
+        assertEquals("Removed", diff.classes().get(0).className());
+    }
+
+    @Test
+    void fallsBackToCountsWhenARunHasNoLineDetail() {
+        run(BASE, new Object[]{"01p000000000001AAA", "Account", 10, 10, null, null});
+        run(HEAD, row("01p000000000001AAA", "Account", range(1, 12), range(13, 20)));
+
+        ClassCoverageDiffDTO account = coverageService.diff(BASE, HEAD, false, false).classes().get(0);
+
+        assertEquals(2, account.newlyCoveredCount());
+        assertEquals(0, account.newlyUncoveredCount());
+        assertEquals(10, account.unchangedCoveredCount());
+        assertNull(account.newlyCoveredLines());
+        assertNull(account.newlyUncoveredLines());
+    }
+
+    @Test
+    void leavesOutUnchangedClassesUnlessAsked() {
+        run(BASE, row(null, "Same", lines(1, 2), lines(3)), row(null, "Better", lines(1), lines(2)));
+        run(HEAD, row(null, "Same", lines(1, 2), lines(3)), row(null, "Better", lines(1, 2), lines()));
+
+        assertEquals(List.of("Better"), names(coverageService.diff(BASE, HEAD, false, false)));
+        assertEquals(List.of("Better", "Same"), names(coverageService.diff(BASE, HEAD, false, true)));
+    }
+
+    @Test
+    void summaryKeepsCountsOnly() {
+        run(BASE, row(null, "Account", lines(1), lines(2)));
+        run(HEAD, row(null, "Account", lines(2), lines(1)));
+
+        ClassCoverageDiffDTO account = coverageService.diff(BASE, HEAD, true, false).classes().get(0);
+
+        assertEquals(1, account.newlyCoveredCount());
+        assertEquals(1, account.newlyUncoveredCount());
+        assertNull(account.newlyCoveredLines());
+        assertNull(account.newlyUncoveredLines());
+    }
+
+    private void run(long runId, Object[]... rows) {
+        when(snapshotRepository.findLineCoverageByTestRunId(runId)).thenReturn(List.of(rows));
+    }
+
+    private static Object[] row(String classId, String className, BitSet covered, BitSet uncovered) {
+        return new Object[]{classId, className, covered.cardinality(), uncovered.cardinality(), covered, uncovered};
+    }
+
+    private static BitSet lines(int... lines) {
+        BitSet bits = new BitSet();
+        for (int line : lines) {
+            bits.set(line);
+        }
+        return bits;
+    }
+
+    private static BitSet range(int from, int to) {
+        BitSet bits = new BitSet();
+        bits.set(from, to + 1);
+        return bits;
+    }
+
+    private static ClassCoverageDiffDTO find(CoverageDiffDTO diff, String className) {
+        return diff.classes().stream().filter(c -> c.className().equals(className)).findFirst().orElseThrow();
+    }
+
+    private static List<String> names(CoverageDiffDTO diff) {
+        List<String> names = new ArrayList<>();
+        diff.classes().forEach(c -> names.add(c.className()));
+        return names;
+    }
+}
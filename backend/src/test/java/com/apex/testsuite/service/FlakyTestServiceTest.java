@@ -0,0 +1,93 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.entity.TestMethodStats;
+import com.apex.testsuite.entity.TestOutcome;
+import org.junit.jupiter.api.Test;
+
+import static com.apex.testsuite.entity.TestOutcome.FAIL;
+import static com.apex.testsuite.entity.TestOutcome.PASS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakyTestServiceTest {
+
+    @Test
+    void shiftsTheNewestOutcomeIntoBitZero() {
+        TestMethodStats stats = apply(30, PASS, FAIL, PASS);
+
+        assertEquals(0b010, stats.getOutcomeWindow());
+        assertEquals(3, stats.getWindowSize());
+        assertEquals(PASS, stats.getLastOutcome());
+    }
+
+    @Test
+    void dropsOutcomesThatLeaveTheWindow() {
+        TestMethodStats stats = apply(4, FAIL, PASS, PASS, PASS, PASS);
+
+        assertEquals(0, stats.getOutcomeWindow());
+        assertEquals(4, stats.getWindowSize());
+        assertEquals(0, stats.getFailCount());
+        // The totals still count every run
+        assertEquals(5, stats.getTotalRuns());
+        assertEquals(1, stats.getTotalFailures());
+    }
+
+    @Test
+    void capsTheWindowAtSixtyFourRuns() {
+        TestMethodStats stats = new TestMethodStats();
+        for (int i = 0; i < 70; i++) {
+            FlakyTestService.apply(stats, FAIL, 100);
+        }
+
+        assertEquals(64, stats.getWindowSize());
+        assertEquals(-1L, stats.getOutcomeWindow());
+        assertEquals(64, stats.getFailCount());
+    }
+
+    @Test
+    void countsFlipsBetweenNeighbouringOutcomes() {
+        TestMethodStats stats = apply(30, PASS, FAIL, PASS, FAIL, FAIL);
+
+        assertEquals(3, stats.getFlipCount());
+        assertEquals(0.75, stats.getFlipRate());
+        assertEquals(3, stats.getFailCount());
+        assertEquals(0.6, stats.getFailureRate());
+    }
+
+    @Test
+    void forgetsAFlipOnceOneOfItsOutcomesLeavesTheWindow() {
+        TestMethodStats stats = apply(3, FAIL, PASS, PASS);
+        assertEquals(1, stats.getFlipCount());
+
+        FlakyTestService.apply(stats, PASS, 3);
+
+        assertEquals(0, stats.getFlipCount());
+        assertEquals(0, stats.getFlipRate());
+    }
+
+    @Test
+    void consistentFailuresHaveNoFlips() {
+        TestMethodStats stats = apply(30, FAIL, FAIL, FAIL, FAIL, FAIL, FAIL);
+
+        assertEquals(1.0, stats.getFailureRate());
+        // flipCount > 0 is what separates flaky tests from broken ones
+        assertEquals(0, stats.getFlipCount());
+    }
+
+    @Test
+    void oneOutcomeHasNoFlipRate() {
+        TestMethodStats stats = apply(30, FAIL);
+
+        assertEquals(1, stats.getWindowSize());
+        assertEquals(0, stats.getFlipCount());
+        assertEquals(0, stats.getFlipRate());
+        assertEquals(1.0, stats.getFailureRate());
+    }
+
+    private static TestMethodStats apply(int window, TestOutcome... outcomes) {
+        TestMethodStats stats = new TestMethodStats();
+        for (TestOutcome outcome : outcomes) {
+            FlakyTestService.apply(stats, outcome, window);
+        }
+        return stats;
+    }
+}
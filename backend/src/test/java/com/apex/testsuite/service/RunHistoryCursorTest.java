@@ -0,0 +1,91 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.RunSummaryDTO;
+import com.apex.testsuite.entity.TestRun;
+import com.apex.testsuite.entity.TestRunStatus;
+import com.apex.testsuite.repository.TestRunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+class RunHistoryCursorTest {
+
+    @Autowired
+    private TestRunRepository testRunRepository;
+
+    @Test
+    void roundTrips() {
+        RunHistoryCursor cursor = new RunHistoryCursor(LocalDateTime.of(2024, 3, 1, 12, 30, 5, 123_456_000), 42L);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(cursor, RunHistoryCursor.decode(token));
+    }
+
+    @Test
+    void roundTripsWholeSeconds() {
+        RunHistoryCursor cursor = new RunHistoryCursor(LocalDateTime.of(2024, 3, 1, 12, 0), 7L);
+
+        assertEquals(cursor, RunHistoryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void rejectsTokensThatAreNotBase64() {
+        assertThrows(IllegalArgumentException.class, () -> RunHistoryCursor.decode("not a cursor!"));
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> RunHistoryCursor.decode(encode("2024-03-01T12:00")));
+        assertThrows(IllegalArgumentException.class, () -> RunHistoryCursor.decode(encode("yesterday|42")));
+        assertThrows(IllegalArgumentException.class, () -> RunHistoryCursor.decode(encode("2024-03-01T12:00|forty-two")));
+        assertThrows(IllegalArgumentException.class, () -> RunHistoryCursor.decode(""));
+    }
+
+    @Test
+    void pagesThroughRunsStartedAtTheSameTimeByDescendingId() {
+        LocalDateTime sameStart = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(save(sameStart));
+        }
+        expected.add(save(sameStart.minusMinutes(1)));
+        expected.add(0, save(sameStart.plusMinutes(1)));
+        expected.subList(1, 6).sort(Comparator.reverseOrder());
+
+        List<Long> paged = new ArrayList<>();
+        List<RunSummaryDTO> page = testRunRepository.findFirstRunSummaries("org", Pageable.ofSize(2));
+        while (!page.isEmpty()) {
+            page.forEach(run -> paged.add(run.id()));
+            RunSummaryDTO last = page.get(page.size() - 1);
+            RunHistoryCursor after = RunHistoryCursor.decode(new RunHistoryCursor(last.startedAt(), last.id()).encode());
+            page = testRunRepository.findRunSummariesBefore("org", after.startedAt(), after.id(), Pageable.ofSize(2));
+        }
+
+        assertEquals(expected, paged);
+    }
+
+    private Long save(LocalDateTime startedAt) {
+        TestRun run = new TestRun();
+        run.setOrgId("org");
+        run.setStatus(TestRunStatus.COMPLETED);
+        run.setStartedAt(startedAt);
+        return testRunRepository.saveAndFlush(run).getId();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,110 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Tooling API client against {@link FakeToolingApiServer}: paging, gzip and aborting queued items.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tooling-it;DB_CLOSE_DELAY=-1",
+        "spring.h2.console.enabled=false",
+        "app.rollups.backfill-on-startup=false",
+        "salesforce.client-id=test-client",
+        "salesforce.client-secret=test-secret"
+})
+class SalesforceToolingServiceIntegrationTest {
+
+    private static final int PAGE_SIZE = 50;
+    private static final FakeToolingApiServer fakeServer = startFakeServer();
+
+    @Autowired
+    private SalesforceAuthService authService;
+    @Autowired
+    private SalesforceToolingService toolingService;
+    @Autowired
+    private SalesforceSessionResolver sessionResolver;
+
+    private String sessionId;
+
+    @DynamicPropertySource
+    static void salesforceProperties(DynamicPropertyRegistry registry) {
+        registry.add("salesforce.login-url", fakeServer::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopFakeServer() {
+        fakeServer.close();
+    }
+
+    @BeforeEach
+    void logIn() {
+        sessionId = SalesforceSessionResolver.sessionIdOf(authService.exchangeCodeForToken("test-code"));
+        fakeServer.resetRequestCounts();
+    }
+
+    @Test
+    void streamsEveryPageOfAQuery() {
+        List<Object> ids = sessionResolver.callAs(sessionId, () -> {
+            try (Stream<Map<String, Object>> records = toolingService.streamToolingQuery("SELECT Id, Name FROM ApexClass")) {
+                return records.map(r -> r.get("Id")).toList();
+            }
+        });
+
+        assertEquals(fakeServer.getOrg().getClassCount(), ids.size());
+        assertEquals(fakeServer.getOrg().classId(0), ids.get(0));
+        assertEquals(4, fakeServer.getRequestCount("tooling.query.next"));
+    }
+
+    @Test
+    void asksForGzipAndDecodesIt() {
+        Map<String, Object> page = sessionResolver.callAs(sessionId,
+                () -> toolingService.queryToolingApi("SELECT COUNT() FROM ApexClass"));
+
+        assertEquals(fakeServer.getOrg().getClassCount(), page.get("totalSize"));
+        assertEquals(1, fakeServer.getRequestCount("gzip-responses"));
+    }
+
+    @Test
+    void abortsOnlyQueuedItems() {
+        List<String> classIds = List.of(
+                fakeServer.getOrg().classId(0), fakeServer.getOrg().classId(1), fakeServer.getOrg().classId(2));
+
+        int aborted = sessionResolver.callAs(sessionId, () -> {
+            String jobId = toolingService.runTestsAsync(classIds);
+            return toolingService.abortTestRun(jobId);
+        });
+
+        // One item at a time runs, so the first is processing and the other two can still be aborted
+        assertEquals(2, aborted);
+        assertEquals(2, fakeServer.getRequestCount("tooling.abortQueueItem"));
+    }
+
+    private static FakeToolingApiServer startFakeServer() {
+        try {
+            return FakeToolingApiServer.builder()
+                    .classCount(4 * PAGE_SIZE + 10)
+                    .pageSize(PAGE_SIZE)
+                    .classDurationMs(60_000)
+                    .parallelism(1)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
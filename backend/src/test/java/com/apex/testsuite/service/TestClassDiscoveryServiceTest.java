@@ -0,0 +1,73 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.OrgStatsDTO;
+import com.apex.testsuite.entity.CatalogSyncState;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.CatalogSyncStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TestClassDiscoveryServiceTest {
+
+    private static final String ORG = "00D000000000001AAA";
+
+    private final SalesforceToolingService toolingService = mock(SalesforceToolingService.class);
+    private final ApexClassCatalogRepository catalogRepository = mock(ApexClassCatalogRepository.class);
+    private final CatalogSyncStateRepository syncStateRepository = mock(CatalogSyncStateRepository.class);
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("orgStats");
+    private final TestClassDiscoveryService discoveryService = new TestClassDiscoveryService(toolingService,
+            mock(SalesforceAuthService.class), mock(SalesforceSessionResolver.class), catalogRepository,
+            syncStateRepository, cacheManager);
+
+    @BeforeEach
+    void syncedBefore() {
+        ReflectionTestUtils.setField(discoveryService, "reconcileInterval", Duration.ofHours(6));
+        CatalogSyncState state = new CatalogSyncState();
+        state.setOrgId(ORG);
+        state.setLastSyncAt(Instant.now().minusSeconds(300));
+        state.setLastReconcileAt(Instant.now());
+        state.setWatermark(Instant.now().minusSeconds(300));
+        when(syncStateRepository.findByOrgId(ORG)).thenReturn(Optional.of(state));
+        orgStats().put(ORG, new OrgStatsDTO(10, 4, "Org"));
+    }
+
+    @Test
+    void evictsTheOrgStatsWhenASyncRemovesClasses() {
+        when(toolingService.streamToolingQuery(anyString())).thenAnswer(invocation -> Stream.of(Map.of(
+                "Id", "01p000000000001AAA", "Name", "Gone", "Status", "Deleted",
+                "SystemModstamp", "2026-01-01T00:00:00.000+0000")));
+
+        discoveryService.syncCatalog(ORG);
+
+        verify(catalogRepository).deleteByOrgIdAndClassIdIn(ORG, List.of("01p000000000001AAA"));
+        assertNull(orgStats().get(ORG));
+    }
+
+    @Test
+    void keepsTheOrgStatsWhenNothingChanged() {
+        when(toolingService.streamToolingQuery(anyString())).thenAnswer(invocation -> Stream.empty());
+
+        discoveryService.syncCatalog(ORG);
+
+        assertNotNull(orgStats().get(ORG));
+        verify(catalogRepository, never()).deleteByOrgIdAndClassIdIn(any(), any());
+    }
+
+    private Cache orgStats() {
+        return cacheManager.getCache("orgStats");
+    }
+}
@@ -0,0 +1,65 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.entity.RunProfile;
+import com.apex.testsuite.repository.TestRunRepository;
+import com.apex.testsuite.repository.TestRunShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.client.RestClientException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TestExecutionServiceTest {
+
+    private static final String ORG = "00D000000000001AAA";
+
+    private final SalesforceToolingService toolingService = mock(SalesforceToolingService.class);
+    private final SalesforceAuthService authService = mock(SalesforceAuthService.class);
+    private final TestRunRepository testRunRepository = mock(TestRunRepository.class);
+    private final TestRunShardRepository shardRepository = mock(TestRunShardRepository.class);
+    private final TestShardPlanner shardPlanner = mock(TestShardPlanner.class);
+    private final TestRunPollScheduler pollScheduler = mock(TestRunPollScheduler.class);
+    private final TestExecutionService executionService = new TestExecutionService(toolingService, authService,
+            mock(SalesforceSessionResolver.class), mock(SimpMessagingTemplate.class), testRunRepository,
+            shardRepository, mock(TestResultIngestionService.class), shardPlanner, pollScheduler,
+            mock(TrendRollupService.class), mock(FlakyTestService.class), Runnable::run);
+
+    @Test
+    void abortsSubmittedShardsWhenALaterShardFailsToStart() {
+        when(authService.getCurrentOrgId()).thenReturn(ORG);
+        when(shardPlanner.plan(eq(ORG), any(), eq(3))).thenReturn(List.of(
+                new TestShardPlanner.Shard(List.of("a"), 10),
+                new TestShardPlanner.Shard(List.of("b"), 10),
+                new TestShardPlanner.Shard(List.of("c"), 10)));
+        when(toolingService.runTestsAsync(any(), anyBoolean(), any()))
+                .thenReturn("707000000000001AAA", "707000000000002AAA")
+                .thenThrow(new RestClientException("limit exceeded"));
+        // One failed abort does not keep the others from being aborted
+        when(toolingService.abortTestRun("707000000000001AAA")).thenThrow(new RestClientException("timeout"));
+
+        assertThrows(RestClientException.class, () -> executionService.startShardedTestRun(
+                List.of("a", "b", "c"), 3, TestExecutionService.RunOptions.FULL));
+
+        verify(toolingService).abortTestRun("707000000000001AAA");
+        verify(toolingService).abortTestRun("707000000000002AAA");
+        verifyNoInteractions(testRunRepository, shardRepository, pollScheduler);
+    }
+
+    @Test
+    void abortsNothingWhenTheFirstShardFailsToStart() {
+        when(authService.getCurrentOrgId()).thenReturn(ORG);
+        when(shardPlanner.plan(eq(ORG), any(), eq(2))).thenReturn(List.of(
+                new TestShardPlanner.Shard(List.of("a"), 10),
+                new TestShardPlanner.Shard(List.of("b"), 10)));
+        when(toolingService.runTestsAsync(any(), anyBoolean(), any())).thenThrow(new RestClientException("down"));
+
+        assertThrows(RestClientException.class, () -> executionService.startShardedTestRun(
+                List.of("a", "b"), 2, new TestExecutionService.RunOptions(RunProfile.FAST, null)));
+
+        verify(toolingService, never()).abortTestRun(any());
+    }
+}
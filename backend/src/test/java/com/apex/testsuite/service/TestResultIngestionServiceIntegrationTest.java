@@ -0,0 +1,162 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.entity.TestRun;
+import com.apex.testsuite.entity.TestRunStatus;
+import com.apex.testsuite.fake.FakeOrg;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import com.apex.testsuite.repository.TestRunRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ingests results from {@link FakeToolingApiServer}: the watermark across ticks of a running job,
+ * and the recount in {@link TestResultIngestionService#finalizeRun}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestion-it;DB_CLOSE_DELAY=-1",
+        "spring.h2.console.enabled=false",
+        "app.rollups.backfill-on-startup=false",
+        "salesforce.client-id=test-client",
+        "salesforce.client-secret=test-secret"
+})
+class TestResultIngestionServiceIntegrationTest {
+
+    private static final int TEST_CLASSES = 8;
+    private static final FakeToolingApiServer fakeServer = startFakeServer();
+
+    @Autowired
+    private SalesforceAuthService authService;
+    @Autowired
+    private SalesforceToolingService toolingService;
+    @Autowired
+    private SalesforceSessionResolver sessionResolver;
+    @Autowired
+    private TestResultIngestionService ingestionService;
+    @Autowired
+    private TestRunRepository testRunRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String sessionId;
+
+    @DynamicPropertySource
+    static void salesforceProperties(DynamicPropertyRegistry registry) {
+        registry.add("salesforce.login-url", fakeServer::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopFakeServer() {
+        fakeServer.close();
+    }
+
+    @BeforeEach
+    void logIn() {
+        sessionId = SalesforceSessionResolver.sessionIdOf(authService.exchangeCodeForToken("test-code"));
+    }
+
+    @Test
+    void ingestsEachResultOnceAcrossTicksOfARunningJob() throws Exception {
+        String jobId = sessionResolver.callAs(sessionId, () -> toolingService.runTestsAsync(testClassIds()));
+        Long dbRunId = createRun(jobId);
+
+        // Tick faster than classes complete, so most ticks find nothing new and the rest find part of the run
+        List<Integer> totals = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (totals.isEmpty() || totals.get(totals.size() - 1) < expectedTotal()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Run never reached its total: " + totals);
+            totals.add(sessionResolver.callAs(sessionId, () -> ingestionService.ingestNewResults(jobId, dbRunId)).getTotalTests());
+            Thread.sleep(25);
+        }
+        TestRun run = sessionResolver.callAs(sessionId, () -> ingestionService.ingestNewResults(jobId, dbRunId));
+
+        assertTrue(totals.stream().anyMatch(t -> t > 0 && t < expectedTotal()), "No tick saw a partial run: " + totals);
+        assertCounts(run, dbRunId);
+        assertEquals(TestRunStatus.PROCESSING, run.getStatus());
+    }
+
+    @Test
+    void finalizeRunReReadsResultsWhenTheCountDoesNotMatch() {
+        String jobId = fakeServer.createCompletedJob(testClassIds());
+        Long dbRunId = createRun(jobId);
+        sessionResolver.runAs(sessionId, () -> ingestionService.ingestNewResults(jobId, dbRunId));
+
+        // As if the watermark had moved past a result that landed late
+        Long skipped = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM test_results WHERE test_run_id = ? AND outcome = 'PASS'", Long.class, dbRunId);
+        jdbcTemplate.update("DELETE FROM test_results WHERE id = ?", skipped);
+        jdbcTemplate.update("UPDATE test_runs SET total_tests = total_tests - 1, pass_count = pass_count - 1 WHERE id = ?", dbRunId);
+
+        TestRun run = sessionResolver.callAs(sessionId, () -> ingestionService.finalizeRun(jobId, dbRunId));
+
+        assertCounts(run, dbRunId);
+        assertEquals(TestRunStatus.COMPLETED, run.getStatus());
+        assertNotNull(run.getCompletedAt());
+    }
+
+    private Long createRun(String jobId) {
+        TestRun run = new TestRun();
+        run.setAsyncApexJobId(jobId);
+        run.setOrgId(FakeOrg.ORG_ID);
+        run.setStatus(TestRunStatus.QUEUED);
+        run.setStartedAt(LocalDateTime.now());
+        return testRunRepository.save(run).getId();
+    }
+
+    // The run's counters and its stored rows both match what the fake org reports
+    private void assertCounts(TestRun run, Long dbRunId) {
+        FakeOrg org = fakeServer.getOrg();
+        int expectedFail = 0;
+        for (int classIndex : org.testClassIndexes().subList(0, TEST_CLASSES)) {
+            for (int m = 0; m < org.getMethodsPerTestClass(); m++) {
+                if (org.methodFails(classIndex, m)) expectedFail++;
+            }
+        }
+        assertEquals(expectedTotal(), run.getTotalTests());
+        assertEquals(expectedFail, run.getFailCount());
+        assertEquals(expectedTotal() - expectedFail, run.getPassCount());
+        assertEquals(expectedTotal(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM test_results WHERE test_run_id = ?", Integer.class, dbRunId));
+        assertEquals(expectedTotal(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT CONCAT(class_name, '.', method_name)) FROM test_results WHERE test_run_id = ?",
+                Integer.class, dbRunId));
+    }
+
+    private static int expectedTotal() {
+        return TEST_CLASSES * fakeServer.getOrg().getMethodsPerTestClass();
+    }
+
+    private static List<String> testClassIds() {
+        FakeOrg org = fakeServer.getOrg();
+        return org.testClassIndexes().subList(0, TEST_CLASSES).stream().map(org::classId).toList();
+    }
+
+    private static FakeToolingApiServer startFakeServer() {
+        try {
+            // A small page size makes a tick page through results, and a high failure rate gives both outcomes
+            return FakeToolingApiServer.builder()
+                    .classCount(60)
+                    .pageSize(7)
+                    .methodFailureRate(0.3)
+                    .classDurationMs(100)
+                    .parallelism(2)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
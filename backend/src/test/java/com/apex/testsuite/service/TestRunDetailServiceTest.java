@@ -0,0 +1,237 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.controller.TestHistoryController;
+import com.apex.testsuite.dto.TestResultPageDTO;
+import com.apex.testsuite.dto.TestResultRowDTO;
+import com.apex.testsuite.entity.TestOutcome;
+import com.apex.testsuite.entity.TestResult;
+import com.apex.testsuite.entity.TestRun;
+import com.apex.testsuite.entity.TestRunStatus;
+import com.apex.testsuite.exception.GlobalExceptionHandler;
+import com.apex.testsuite.repository.FailureTextRepository;
+import com.apex.testsuite.repository.TestResultRepository;
+import com.apex.testsuite.repository.TestRunRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not transactional: the NDJSON body is written on another thread, which only sees committed rows
+@DataJpaTest(showSql = false)
+@Import({TestRunDetailService.class, FailureTextStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TestRunDetailServiceTest {
+
+    private static final String ORG = "00D000000000001AAA";
+    private static final TestRunDetailService.ResultFilter BY_NAME =
+            new TestRunDetailService.ResultFilter(null, null, TestRunDetailService.ResultSort.NAME);
+    private static final TestRunDetailService.ResultFilter BY_RUNTIME =
+            new TestRunDetailService.ResultFilter(null, null, TestRunDetailService.ResultSort.RUNTIME);
+
+    @Autowired
+    private TestRunDetailService detailService;
+    @Autowired
+    private FailureTextStore failureTextStore;
+    @Autowired
+    private TestRunRepository testRunRepository;
+    @Autowired
+    private TestResultRepository testResultRepository;
+    @Autowired
+    private FailureTextRepository failureTextRepository;
+
+    private TestRun run;
+    private List<TestResult> results;
+
+    @BeforeEach
+    void saveRun() {
+        run = saveRun(ORG);
+        // Runtimes tie across page boundaries, and A.m1 appears twice, so both sorts rely on the id
+        results = saveResults(run,
+                result("B", "m1", TestOutcome.FAIL, 100, "Expected 1 but was 2"),
+                result("A", "m1", TestOutcome.PASS, 100, null),
+                result("A", "m1", TestOutcome.FAIL, 100, "Expected 1 but was 2"),
+                result("A", "m2", TestOutcome.PASS, 50, null),
+                result("C", "m2", TestOutcome.SKIP, 100, null),
+                result("B", "m2", TestOutcome.PASS, 100, null),
+                result("C", "m1", TestOutcome.PASS, 30, null),
+                result("A", "m3", TestOutcome.FAIL, 100, "Null pointer"));
+        saveResults(saveRun("00D000000000002AAA"), result("A", "m1", TestOutcome.FAIL, 100, "Other run"));
+    }
+
+    @AfterEach
+    void deleteRuns() {
+        testResultRepository.deleteAllInBatch();
+        // Failure texts stay: they are shared by hash, and the store caches which ones exist
+        testRunRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void pagesByNameWithoutSkippingOrRepeatingTiedRows() {
+        List<Long> expected = results.stream()
+                .sorted(Comparator.comparing(TestResult::getClassName)
+                        .thenComparing(TestResult::getMethodName)
+                        .thenComparing(TestResult::getId))
+                .map(TestResult::getId)
+                .toList();
+
+        for (int size = 1; size <= 4; size++) {
+            assertEquals(expected, ids(pageThrough(BY_NAME, size)), "page size " + size);
+        }
+    }
+
+    @Test
+    void pagesByRuntimeSlowestFirstWithoutSkippingOrRepeatingTiedRows() {
+        List<Long> expected = results.stream()
+                .sorted(Comparator.comparing(TestResult::getRunTimeMs).reversed()
+                        .thenComparing(Comparator.comparing(TestResult::getId).reversed()))
+                .map(TestResult::getId)
+                .toList();
+
+        for (int size = 1; size <= 4; size++) {
+            assertEquals(expected, ids(pageThrough(BY_RUNTIME, size)), "page size " + size);
+        }
+    }
+
+    @Test
+    void filtersByOutcomeAndClass() {
+        assertEquals(List.of("A.m1", "A.m3", "B.m1"), names(pageThrough(
+                new TestRunDetailService.ResultFilter(TestOutcome.FAIL, null, TestRunDetailService.ResultSort.NAME), 2)));
+        assertEquals(List.of("B.m1", "B.m2"), names(pageThrough(
+                new TestRunDetailService.ResultFilter(null, "B", TestRunDetailService.ResultSort.NAME), 1)));
+        // Equal runtimes, so the later row comes first
+        assertEquals(List.of("A.m3", "A.m1"), names(pageThrough(
+                new TestRunDetailService.ResultFilter(TestOutcome.FAIL, "A", TestRunDetailService.ResultSort.RUNTIME), 1)));
+    }
+
+    @Test
+    void resolvesFailureTextsAndLeavesOutStackTracesUnlessAsked() {
+        TestResultRowDTO withoutTrace = detailService.getResultPage(run.getId(),
+                new TestRunDetailService.ResultFilter(null, "A", TestRunDetailService.ResultSort.NAME), null, 10, false)
+                .results().stream().filter(r -> r.methodName().equals("m3")).findFirst().orElseThrow();
+        TestResultRowDTO withTrace = detailService.getResultPage(run.getId(),
+                new TestRunDetailService.ResultFilter(null, "A", TestRunDetailService.ResultSort.NAME), null, 10, true)
+                .results().stream().filter(r -> r.methodName().equals("m3")).findFirst().orElseThrow();
+
+        assertEquals("Null pointer", withoutTrace.message());
+        assertNull(withoutTrace.stackTrace());
+        assertEquals("Class.A.m3: line 1", withTrace.stackTrace());
+    }
+
+    @Test
+    void rejectsACursorOfTheOtherSort() throws Exception {
+        String nameCursor = detailService.getResultPage(run.getId(), BY_NAME, null, 2, false).nextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> detailService.getResultPage(run.getId(), BY_RUNTIME, nameCursor, 2, false));
+        mockMvc().perform(get("/api/history/runs/{id}/results", run.getId())
+                        .param("sort", "runtime")
+                        .param("cursor", nameCursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamsMatchingResultsAsNdjson() throws Exception {
+        MockMvc mockMvc = mockMvc();
+        MvcResult started = mockMvc.perform(get("/api/history/runs/{id}/results", run.getId())
+                        .param("outcome", "fail")
+                        .param("includeStackTrace", "true")
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<String> names = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            JsonNode row = objectMapper.readTree(line);
+            names.add(row.get("className").asText() + "." + row.get("methodName").asText());
+            assertEquals("FAIL", row.get("outcome").asText());
+            assertFalse(row.get("stackTrace").isNull());
+        }
+        assertEquals(List.of("A.m1", "A.m3", "B.m1"), names);
+    }
+
+    private List<TestResultRowDTO> pageThrough(TestRunDetailService.ResultFilter filter, int size) {
+        List<TestResultRowDTO> rows = new ArrayList<>();
+        String cursor = null;
+        do {
+            TestResultPageDTO page = detailService.getResultPage(run.getId(), filter, cursor, size, false);
+            assertTrue(page.results().size() <= size);
+            rows.addAll(page.results());
+            cursor = page.nextCursor();
+        } while (cursor != null && rows.size() <= results.size());
+        return rows;
+    }
+
+    private MockMvc mockMvc() {
+        TestHistoryService historyService = mock(TestHistoryService.class);
+        when(historyService.getRunById(ORG, run.getId())).thenReturn(Optional.of(run));
+        SalesforceAuthService authService = mock(SalesforceAuthService.class);
+        when(authService.getCurrentOrgId()).thenReturn(ORG);
+        TestHistoryController controller = new TestHistoryController(historyService, authService, detailService,
+                mock(FlakyTestService.class), mock(CoverageService.class), new ObjectMapper());
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private TestRun saveRun(String orgId) {
+        TestRun saved = new TestRun();
+        saved.setOrgId(orgId);
+        saved.setStatus(TestRunStatus.COMPLETED);
+        saved.setStartedAt(LocalDateTime.now());
+        return testRunRepository.save(saved);
+    }
+
+    private List<TestResult> saveResults(TestRun owner, TestResult... rows) {
+        for (TestResult row : rows) {
+            row.setTestRun(owner);
+        }
+        return testResultRepository.saveAll(List.of(rows));
+    }
+
+    private TestResult result(String className, String methodName, TestOutcome outcome, long runTimeMs, String message) {
+        TestResult result = new TestResult();
+        result.setClassName(className);
+        result.setMethodName(methodName);
+        result.setOutcome(outcome);
+        result.setRunTimeMs(runTimeMs);
+        if (message != null) {
+            String stackTrace = "Class." + className + "." + methodName + ": line 1";
+            Map<String, String> hashes = failureTextStore.internAll(List.of(message, stackTrace));
+            result.setMessageText(failureTextRepository.getReferenceById(hashes.get(message)));
+            result.setStackTraceText(failureTextRepository.getReferenceById(hashes.get(stackTrace)));
+        }
+        return result;
+    }
+
+    private static List<Long> ids(List<TestResultRowDTO> rows) {
+        return rows.stream().map(TestResultRowDTO::id).toList();
+    }
+
+    private static List<String> names(List<TestResultRowDTO> rows) {
+        return rows.stream().map(r -> r.className() + "." + r.methodName()).toList();
+    }
+}
@@ -0,0 +1,148 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.fake.FakeOrg;
+import com.apex.testsuite.fake.FakeToolingApiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the batched poller against {@link FakeToolingApiServer}: one queue query per tick and per
+ * chunk of run ids, with each run's items handed to its own listener.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:poll-it;DB_CLOSE_DELAY=-1",
+        "spring.h2.console.enabled=false",
+        "app.rollups.backfill-on-startup=false",
+        "salesforce.client-id=test-client",
+        "salesforce.client-secret=test-secret",
+        "app.polling.batched=true",
+        "app.polling.tick=20ms",
+        "app.polling.min-interval=200ms",
+        "app.polling.max-interval=200ms"
+})
+class TestRunPollSchedulerIntegrationTest {
+
+    private static final FakeToolingApiServer fakeServer = startFakeServer();
+
+    @Autowired
+    private SalesforceAuthService authService;
+    @Autowired
+    private TestRunPollScheduler pollScheduler;
+
+    private String sessionId;
+
+    @DynamicPropertySource
+    static void salesforceProperties(DynamicPropertyRegistry registry) {
+        registry.add("salesforce.login-url", fakeServer::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopFakeServer() {
+        fakeServer.close();
+    }
+
+    @BeforeEach
+    void logIn() {
+        sessionId = SalesforceSessionResolver.sessionIdOf(authService.exchangeCodeForToken("test-code"));
+        fakeServer.resetRequestCounts();
+    }
+
+    @Test
+    void pollsSeveralRunsWithOneQueueQuery() throws Exception {
+        Map<String, Integer> sizes = createCompletedJobs(3);
+
+        Map<String, CompletableFuture<TestRunPollScheduler.QueueProgress>> outcomes = trackAll(sizes.keySet());
+
+        assertEachCompletedWithItsOwnItems(sizes, outcomes);
+        assertEquals(1, fakeServer.getRequestCount("tooling.query.ApexTestQueueItem"));
+    }
+
+    @Test
+    void splitsTheQueueQueryPastTwoHundredRuns() throws Exception {
+        Map<String, Integer> sizes = createCompletedJobs(201);
+
+        Map<String, CompletableFuture<TestRunPollScheduler.QueueProgress>> outcomes = trackAll(sizes.keySet());
+
+        assertEachCompletedWithItsOwnItems(sizes, outcomes);
+        assertEquals(2, fakeServer.getRequestCount("tooling.query.ApexTestQueueItem"));
+    }
+
+    // Jobs of one, two and three test classes in turn, so a run handed another run's items shows a wrong total
+    private static Map<String, Integer> createCompletedJobs(int count) {
+        FakeOrg org = fakeServer.getOrg();
+        List<Integer> testClasses = org.testClassIndexes();
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int size = 1 + i % 3;
+            List<String> classIds = new ArrayList<>(size);
+            for (int n = 0; n < size; n++) {
+                classIds.add(org.classId(testClasses.get((i + n) % testClasses.size())));
+            }
+            sizes.put(fakeServer.createCompletedJob(classIds), size);
+        }
+        return sizes;
+    }
+
+    private Map<String, CompletableFuture<TestRunPollScheduler.QueueProgress>> trackAll(Collection<String> jobIds) {
+        Map<String, CompletableFuture<TestRunPollScheduler.QueueProgress>> outcomes = new HashMap<>();
+        for (String jobId : jobIds) {
+            CompletableFuture<TestRunPollScheduler.QueueProgress> outcome = new CompletableFuture<>();
+            outcomes.put(jobId, outcome);
+            pollScheduler.track(jobId, sessionId, new TestRunPollScheduler.RunListener() {
+                @Override
+                public void onProgress(TestRunPollScheduler.QueueProgress progress) {
+                }
+
+                @Override
+                public void onComplete(TestRunPollScheduler.QueueProgress progress) {
+                    outcome.complete(progress);
+                }
+
+                @Override
+                public void onTimeout() {
+                    outcome.completeExceptionally(new AssertionError("Run " + jobId + " timed out"));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    outcome.completeExceptionally(e);
+                }
+            });
+        }
+        return outcomes;
+    }
+
+    private static void assertEachCompletedWithItsOwnItems(
+            Map<String, Integer> sizes, Map<String, CompletableFuture<TestRunPollScheduler.QueueProgress>> outcomes)
+            throws Exception {
+        for (Map.Entry<String, Integer> job : sizes.entrySet()) {
+            TestRunPollScheduler.QueueProgress progress = outcomes.get(job.getKey()).get(10, TimeUnit.SECONDS);
+            assertEquals(job.getValue(), progress.total(), job.getKey());
+            assertEquals(job.getValue(), progress.completed(), job.getKey());
+        }
+    }
+
+    private static FakeToolingApiServer startFakeServer() {
+        try {
+            return FakeToolingApiServer.builder()
+                    .classCount(60)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
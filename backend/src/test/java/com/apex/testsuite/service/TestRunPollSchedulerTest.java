@@ -0,0 +1,124 @@
+package com.apex.testsuite.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestRunPollSchedulerTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(400);
+
+    private final SalesforceToolingService toolingService = mock(SalesforceToolingService.class);
+    private final TestRunPollScheduler scheduler =
+            new TestRunPollScheduler(toolingService, new SalesforceSessionResolver(new SalesforceSessionRegistry()));
+    // Queue items completed so far per run; each poll of an advancing run completes one more
+    private final Map<String, AtomicInteger> completed = new ConcurrentHashMap<>();
+    private final Set<String> advancing = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startScheduler() {
+        ReflectionTestUtils.setField(scheduler, "threads", 2);
+        ReflectionTestUtils.setField(scheduler, "tick", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(scheduler, "minInterval", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(scheduler, "maxInterval", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(scheduler, "timeout", TIMEOUT);
+        ReflectionTestUtils.setField(scheduler, "batched", true);
+        when(toolingService.getTestQueueStatuses(anyList())).thenAnswer(invocation -> {
+            Map<String, List<Map<String, Object>>> records = new HashMap<>();
+            for (String runId : invocation.<List<String>>getArgument(0)) {
+                AtomicInteger done = completed.computeIfAbsent(runId, k -> new AtomicInteger());
+                records.put(runId, queue(20, advancing.contains(runId) ? done.incrementAndGet() : done.get()));
+            }
+            return records;
+        });
+        scheduler.start();
+    }
+
+    @AfterEach
+    void stopScheduler() {
+        scheduler.stop();
+    }
+
+    @Test
+    void keepsARunThatOutlastsTheTimeoutWhileItsItemsComplete() throws Exception {
+        advancing.add("707000000000001AAA");
+        Outcome outcome = track("707000000000001AAA");
+
+        // 20 polls 50 ms apart take about 1 s, more than twice the timeout
+        assertEquals("complete", outcome.result.get(5, TimeUnit.SECONDS));
+        assertTrue(outcome.elapsedMs() > TIMEOUT.toMillis());
+    }
+
+    @Test
+    void timesOutARunWhoseItemsStopCompleting() throws Exception {
+        Outcome outcome = track("707000000000002AAA");
+
+        assertEquals("timeout", outcome.result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getActiveRunCount());
+    }
+
+    private Outcome track(String testRunId) {
+        Outcome outcome = new Outcome(System.currentTimeMillis());
+        scheduler.track(testRunId, null, new TestRunPollScheduler.RunListener() {
+            @Override
+            public void onProgress(TestRunPollScheduler.QueueProgress progress) {
+            }
+
+            @Override
+            public void onComplete(TestRunPollScheduler.QueueProgress progress) {
+                outcome.finish("complete");
+            }
+
+            @Override
+            public void onTimeout() {
+                outcome.finish("timeout");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                outcome.finish("error");
+            }
+        });
+        return outcome;
+    }
+
+    private static List<Map<String, Object>> queue(int size, int completed) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            records.add(Map.of("Status", i < completed ? "Completed" : "Queued"));
+        }
+        return records;
+    }
+
+    private static final class Outcome {
+        final long trackedAtMs;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        volatile long finishedAtMs;
+
+        Outcome(long trackedAtMs) {
+            this.trackedAtMs = trackedAtMs;
+        }
+
+        void finish(String how) {
+            finishedAtMs = System.currentTimeMillis();
+            result.complete(how);
+        }
+
+        long elapsedMs() {
+            return finishedAtMs - trackedAtMs;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.apex.testsuite.service;
+
+import com.apex.testsuite.dto.ClassRuntimePoint;
+import com.apex.testsuite.entity.ApexClassCatalogEntry;
+import com.apex.testsuite.repository.ApexClassCatalogRepository;
+import com.apex.testsuite.repository.TestResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestShardPlannerTest {
+
+    private static final String ORG = "00D000000000001AAA";
+
+    private final ApexClassCatalogRepository catalogRepository = mock(ApexClassCatalogRepository.class);
+    private final TestResultRepository testResultRepository = mock(TestResultRepository.class);
+    private final TestShardPlanner planner = new TestShardPlanner(catalogRepository, testResultRepository);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(planner, "maxShards", 5);
+        ReflectionTestUtils.setField(planner, "historyDays", 30);
+        ReflectionTestUtils.setField(planner, "defaultClassMs", 1000L);
+    }
+
+    @Test
+    void givesEachClassToTheLeastLoadedShardLongestFirst() {
+        Map<String, Long> estimates = Map.of("a", 7L, "b", 6L, "c", 5L, "d", 4L, "e", 3L, "f", 2L);
+
+        List<TestShardPlanner.Shard> shards = TestShardPlanner.assign(estimates, 3);
+
+        assertEquals(List.of(
+                new TestShardPlanner.Shard(List.of("a", "f"), 9),
+                new TestShardPlanner.Shard(List.of("b", "e"), 9),
+                new TestShardPlanner.Shard(List.of("c", "d"), 9)), shards);
+    }
+
+    @Test
+    void breaksTiesByClassIdThenShardIndex() {
+        Map<String, Long> forward = new LinkedHashMap<>();
+        Map<String, Long> backward = new LinkedHashMap<>();
+        for (String id : List.of("w", "x", "y", "z")) {
+            forward.put(id, 5L);
+        }
+        for (String id : List.of("z", "y", "x", "w")) {
+            backward.put(id, 5L);
+        }
+
+        List<TestShardPlanner.Shard> shards = TestShardPlanner.assign(forward, 2);
+
+        assertEquals(List.of(
+                new TestShardPlanner.Shard(List.of("w", "y"), 10),
+                new TestShardPlanner.Shard(List.of("x", "z"), 10)), shards);
+        assertEquals(shards, TestShardPlanner.assign(backward, 2));
+    }
+
+    @Test
+    void leavesOutShardsThatGetNoClasses() {
+        List<TestShardPlanner.Shard> shards = TestShardPlanner.assign(Map.of("a", 3L, "b", 1L), 4);
+
+        assertEquals(List.of(
+                new TestShardPlanner.Shard(List.of("a"), 3),
+                new TestShardPlanner.Shard(List.of("b"), 1)), shards);
+    }
+
+    @Test
+    void plansNoMoreShardsThanClasses() {
+        catalog("01p000000000001AAA", "A", "01p000000000002AAA", "B");
+
+        assertEquals(2, planner.plan(ORG, List.of("01p000000000001AAA", "01p000000000002AAA"), 4).size());
+        assertEquals(List.of(new TestShardPlanner.Shard(List.of("01p000000000001AAA"), 0)),
+                planner.plan(ORG, List.of("01p000000000001AAA", "01p000000000001AAA"), 4));
+    }
+
+    @Test
+    void estimatesClassesWithoutHistoryAtTheMedian() {
+        catalog("01p000000000001AAA", "A", "01p000000000002AAA", "B",
+                "01p000000000003AAA", "C", "01p000000000004AAA", "D");
+        when(testResultRepository.findClassRuntimes(eq(ORG), any(), any())).thenReturn(List.of(
+                new ClassRuntimePoint("A", 200L, 2L),
+                new ClassRuntimePoint("B", 900L, 3L),
+                new ClassRuntimePoint("C", 2700L, 3L)));
+
+        List<TestShardPlanner.Shard> shards = planner.plan(ORG,
+                List.of("01p000000000001AAA", "01p000000000002AAA", "01p000000000003AAA", "01p000000000004AAA"), 2);
+
+        // A 100, B 300, C 900 and D at their median, 300
+        assertEquals(List.of(
+                new TestShardPlanner.Shard(List.of("01p000000000003AAA"), 900),
+                new TestShardPlanner.Shard(List.of("01p000000000002AAA", "01p000000000004AAA", "01p000000000001AAA"), 700)),
+                shards);
+    }
+
+    @Test
+    void usesTheConfiguredDefaultWithoutAnyHistory() {
+        catalog("01p000000000001AAA", "A", "01p000000000002AAA", "B", "01p000000000003AAA", "C");
+        when(testResultRepository.findClassRuntimes(eq(ORG), any(), any())).thenReturn(List.of());
+
+        List<TestShardPlanner.Shard> shards = planner.plan(ORG,
+                List.of("01p000000000001AAA", "01p000000000002AAA", "01p000000000003AAA"), 3);
+
+        assertEquals(3, shards.size());
+        shards.forEach(shard -> assertEquals(1000, shard.estimatedMs()));
+    }
+
+    private void catalog(String... idsAndNames) {
+        List<ApexClassCatalogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < idsAndNames.length; i += 2) {
+            ApexClassCatalogEntry entry = new ApexClassCatalogEntry();
+            entry.setOrgId(ORG);
+            entry.setClassId(idsAndNames[i]);
+            entry.setName(idsAndNames[i + 1]);
+            entries.add(entry);
+        }
+        when(catalogRepository.findByOrgIdAndClassIdIn(eq(ORG), any())).thenReturn(entries);
+    }
+}
@@ -0,0 +1,66 @@
+package com.apex.testsuite.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolingQueryCursorTest {
+
+    private final Executor directExecutor = Runnable::run;
+
+    @Test
+    void followsNextRecordsUrlUntilDone() {
+        Map<String, Map<String, Object>> pages = Map.of(
+                "/next-2", page(List.of("c", "d"), "/next-3"),
+                "/next-3", page(List.of("e"), null));
+        List<String> fetched = new ArrayList<>();
+
+        ToolingQueryCursor cursor = new ToolingQueryCursor(page(List.of("a", "b"), "/next-2"), url -> {
+            fetched.add(url);
+            return pages.get(url);
+        }, directExecutor);
+
+        List<Object> ids = new ArrayList<>();
+        cursor.forEachRemaining(r -> ids.add(r.get("Id")));
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), ids);
+        assertEquals(List.of("/next-2", "/next-3"), fetched);
+    }
+
+    @Test
+    void prefetchesOnlyOnePageAhead() {
+        List<String> fetched = new ArrayList<>();
+        ToolingQueryCursor cursor = new ToolingQueryCursor(page(List.of("a"), "/p2"), url -> {
+            fetched.add(url);
+            return page(List.of(url), url.equals("/p2") ? "/p3" : null);
+        }, directExecutor);
+
+        assertEquals(List.of("/p2"), fetched);
+        cursor.next();
+        cursor.next();
+        assertEquals(List.of("/p2", "/p3"), fetched);
+        assertTrue(cursor.hasNext());
+        cursor.next();
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    void propagatesPageFailures() {
+        ToolingQueryCursor cursor = new ToolingQueryCursor(page(List.of(), "/broken"), url -> {
+            throw new IllegalStateException("boom");
+        }, runnable -> new Thread(runnable).start());
+
+        assertThrows(IllegalStateException.class, cursor::hasNext);
+    }
+
+    private static Map<String, Object> page(List<String> ids, String nextRecordsUrl) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("records", ids.stream().map(id -> Map.<String, Object>of("Id", id)).toList());
+        page.put("done", nextRecordsUrl == null);
+        page.put("nextRecordsUrl", nextRecordsUrl);
+        return page;
+    }
+}
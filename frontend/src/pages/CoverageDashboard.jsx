@@ -40,8 +40,8 @@ export default function CoverageDashboard() {
 
   const loadCoverage = async (runId) => {
     try {
-      const { data } = await api.get(`/history/runs/${runId}`)
-      setCoverage(data.coverage || [])
+      const { data } = await api.get(`/history/runs/${runId}/coverage`)
+      setCoverage(data.classes || [])
     } catch {
       setCoverage([])
     }
@@ -49,10 +49,10 @@ export default function CoverageDashboard() {
 
   const filteredCoverage = useMemo(() => {
     let result = coverage.filter(c =>
-      c.classOrTriggerName.toLowerCase().includes(search.toLowerCase())
+      c.className.toLowerCase().includes(search.toLowerCase())
     )
     if (sortBy === 'name') {
-      result.sort((a, b) => a.classOrTriggerName.localeCompare(b.classOrTriggerName))
+      result.sort((a, b) => a.className.localeCompare(b.className))
     } else if (sortBy === 'coverage-asc') {
       result.sort((a, b) => a.coveragePercent - b.coveragePercent)
     } else if (sortBy === 'coverage-desc') {
@@ -152,7 +152,7 @@ export default function CoverageDashboard() {
           <tbody className="bg-white divide-y divide-gray-200">
             {filteredCoverage.map((item, idx) => (
               <tr key={idx} className="hover:bg-gray-50">
-                <td className="px-6 py-4 text-sm text-gray-900 font-medium">{item.classOrTriggerName}</td>
+                <td className="px-6 py-4 text-sm text-gray-900 font-medium">{item.className}</td>
                 <td className="px-6 py-4 text-sm text-green-600">{item.linesCovered}</td>
                 <td className="px-6 py-4 text-sm text-red-600">{item.linesUncovered}</td>
                 <td className="px-6 py-4">
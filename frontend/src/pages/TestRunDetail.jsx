@@ -5,17 +5,26 @@ import TestResultBadge from '../components/TestResultBadge'
 import ErrorBanner from '../components/ErrorBanner'
 import { TableSkeleton } from '../components/LoadingSkeleton'
 
+const PAGE_SIZE = 100
+
 export default function TestRunDetail() {
   const { runId } = useParams()
   const [run, setRun] = useState(null)
   const [loading, setLoading] = useState(true)
   const [error, setError] = useState(null)
   const [filter, setFilter] = useState('All')
+  const [results, setResults] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
+  const [resultsLoading, setResultsLoading] = useState(false)
 
   useEffect(() => {
     loadRunDetail()
   }, [runId])
 
+  useEffect(() => {
+    loadResults(null)
+  }, [runId, filter])
+
   const loadRunDetail = async () => {
     try {
       setLoading(true)
@@ -29,10 +38,24 @@ export default function TestRunDetail() {
     }
   }
 
-  const filteredResults = run?.results?.filter(r => {
-    if (filter === 'All') return true
-    return r.outcome === filter
-  }) || []
+  // Results are paged and filtered by the server; a large run is never loaded at once
+  const loadResults = async (cursor) => {
+    try {
+      setResultsLoading(true)
+      const params = { size: PAGE_SIZE, includeStackTrace: true }
+      if (filter !== 'All') params.outcome = filter
+      if (cursor) params.cursor = cursor
+      const { data } = await api.get(`/history/runs/${runId}/results`, { params })
+      setResults(prev => (cursor ? [...prev, ...data.results] : data.results))
+      setNextCursor(data.nextCursor)
+    } catch (err) {
+      setError(err.response?.data?.message || 'Failed to load test results')
+    } finally {
+      setResultsLoading(false)
+    }
+  }
+
+  const outcomeCounts = { PASS: run?.passCount, FAIL: run?.failCount }
 
   if (loading) {
     return (
@@ -104,7 +127,7 @@ export default function TestRunDetail() {
                 : 'text-gray-500 hover:text-gray-700 hover:bg-gray-100'
             }`}
           >
-            {f} {f !== 'All' && `(${run.results?.filter(r => r.outcome === f).length || 0})`}
+            {f} {outcomeCounts[f] != null && `(${outcomeCounts[f]})`}
           </button>
         ))}
       </div>
@@ -121,10 +144,10 @@ export default function TestRunDetail() {
             </tr>
           </thead>
           <tbody className="bg-white divide-y divide-gray-200">
-            {filteredResults.map((result, idx) => (
-              <ResultRow key={idx} result={result} />
+            {results.map(result => (
+              <ResultRow key={result.id} result={result} />
             ))}
-            {filteredResults.length === 0 && (
+            {results.length === 0 && !resultsLoading && (
               <tr>
                 <td colSpan={4} className="px-6 py-8 text-center text-sm text-gray-400">
                   No results match the current filter.
@@ -133,6 +156,17 @@ export default function TestRunDetail() {
             )}
           </tbody>
         </table>
+        {nextCursor && (
+          <div className="px-6 py-4 border-t border-gray-200 text-center">
+            <button
+              onClick={() => loadResults(nextCursor)}
+              disabled={resultsLoading}
+              className="px-4 py-2 text-sm font-medium text-indigo-600 bg-indigo-50 rounded-lg hover:bg-indigo-100 transition-colors disabled:opacity-50"
+            >
+              {resultsLoading ? 'Loading...' : 'Load more'}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   )
@@ -71,7 +71,7 @@ export default function TestRunner() {
       setDbRunId(null)
       setError(null)
 
-      subscribe('/topic/test-progress', handleProgressUpdate)
+      subscribe('/user/queue/test-progress', handleProgressUpdate)
 
       const { data } = await api.post('/tests/run', { classIds: selectedIds })
       setDbRunId(data.dbRunId)
@@ -131,7 +131,9 @@ export default function TestRunner() {
         <div className="mb-6 bg-white rounded-lg shadow overflow-hidden">
           <div className="px-6 py-4 border-b border-gray-200 flex items-center justify-between">
             <h3 className="text-sm font-medium text-gray-700">
-              Test Results — {results.results?.length || 0} methods
+              Test Results — {results.nextCursor
+                ? `first ${results.results.length} of ${results.totalTests} methods`
+                : `${results.results?.length || 0} methods`}
             </h3>
             <div className="flex gap-3 text-sm">
               <span className="text-green-600 font-medium">{results.passCount} passed</span>
@@ -4,6 +4,8 @@ const API_BASE = import.meta.env.VITE_API_URL || ''
 
 const api = axios.create({
   baseURL: `${API_BASE}/api`,
+  // The session cookie identifies the login; the API may be on another origin
+  withCredentials: true,
   headers: {
     'Content-Type': 'application/json',
   },